@@ -0,0 +1,152 @@
+package framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * In-memory exchange for benchmarks
+ */
+public class BenchmarkExchange extends HttpExchange {
+
+    /**
+     * Request method
+     */
+    final String method;
+
+    /**
+     * Request uri
+     */
+    final URI uri;
+
+    /**
+     * Request headers
+     */
+    final Headers requestHeaders = new Headers();
+
+    /**
+     * Response headers
+     */
+    final Headers responseHeaders = new Headers();
+
+    /**
+     * Request body
+     */
+    InputStream in;
+
+    /**
+     * Response body
+     */
+    OutputStream out = new ByteArrayOutputStream();
+
+    /**
+     * @param method Request method
+     * @param uri Request uri
+     * @param contentType Content type(null if none)
+     * @param body Request body
+     */
+    public BenchmarkExchange(String method, String uri, String contentType, byte[] body) {
+        this.method = method;
+        this.uri = URI.create(uri);
+        if (contentType != null) {
+            requestHeaders.add("Content-Type", contentType);
+            requestHeaders.add("Content-Length", String.valueOf(body.length));
+        }
+        in = new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return in;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return out;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return InetSocketAddress.createUnresolved("127.0.0.1", 0);
+    }
+
+    @Override
+    public int getResponseCode() {
+        return 0;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return InetSocketAddress.createUnresolved("127.0.0.1", 0);
+    }
+
+    @Override
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            in = i;
+        }
+        if (o != null) {
+            out = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+}
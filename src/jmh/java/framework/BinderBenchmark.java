@@ -0,0 +1,118 @@
+package framework;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binder(nested bean) benchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BinderBenchmark {
+
+    /**
+     * Customer
+     */
+    public static class Customer {
+        /**
+         * Id
+         */
+        public int id;
+        /**
+         * Name
+         */
+        public String name;
+        /**
+         * Birthday
+         */
+        public LocalDate birthday;
+    }
+
+    /**
+     * Order line
+     */
+    public static class Line {
+        /**
+         * Product
+         */
+        public String product;
+        /**
+         * Quantity
+         */
+        public int quantity;
+    }
+
+    /**
+     * Order
+     */
+    public static class Order {
+        /**
+         * Id
+         */
+        public long id;
+        /**
+         * Customer
+         */
+        public Customer customer;
+        /**
+         * Lines
+         */
+        public List<Line> lines;
+    }
+
+    /**
+     * Order line count
+     */
+    @Param({ "1", "50" })
+    public int lines;
+
+    /**
+     * Request parameters
+     */
+    Map<String, List<String>> parameters;
+
+    /**
+     * setup
+     */
+    @Setup
+    public void setup() {
+        StringBuilder s = new StringBuilder("order.id=1&order.customer.id=2&order.customer.name=abc&order.customer.birthday=2001-02-03");
+        for (int i = 0; i < lines; i++) {
+            s.append("&order.lines[")
+                .append(i)
+                .append("].product=p")
+                .append(i)
+                .append("&order.lines[")
+                .append(i)
+                .append("].quantity=")
+                .append(i);
+        }
+        parameters = new Parser.Url().parse(s.toString());
+    }
+
+    /**
+     * @return bound order
+     */
+    @Benchmark
+    public Object bind() {
+        return new Binder(parameters).bind("order", Order.class);
+    }
+}
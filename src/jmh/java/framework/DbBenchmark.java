@@ -0,0 +1,104 @@
+package framework;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import framework.Try.TryFunction;
+
+/**
+ * Db.toObject benchmark(in-memory H2)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DbBenchmark {
+
+    /**
+     * Row
+     */
+    public static class Row {
+        /**
+         * Id
+         */
+        public int id;
+        /**
+         * Name
+         */
+        public String name;
+        /**
+         * Price
+         */
+        public long price;
+        /**
+         * Created
+         */
+        public LocalDateTime created;
+    }
+
+    /**
+     * Row count
+     */
+    @Param({ "10", "1000" })
+    public int rows;
+
+    /**
+     * Database
+     */
+    Db db;
+
+    /**
+     * Mapper
+     */
+    TryFunction<ResultSet, Row> toObject;
+
+    /**
+     * setup
+     */
+    @Setup
+    public void setup() {
+        db = Db.connect(Db.Type.H2, "mem:benchmark;DB_CLOSE_DELAY=-1");
+        db.executeOne("DROP TABLE IF EXISTS t_bench");
+        db.executeOne("CREATE TABLE t_bench(id INT PRIMARY KEY, name VARCHAR(100), price BIGINT, created TIMESTAMP)");
+        for (int i = 0; i < rows; i++) {
+            db.executeOne("INSERT INTO t_bench VALUES(" + i + ", 'name" + i + "', " + i * 100 + ", CURRENT_TIMESTAMP)");
+        }
+        toObject = Db.toObject(Row.class);
+    }
+
+    /**
+     * tear down
+     */
+    @TearDown
+    public void tearDown() {
+        db.close();
+    }
+
+    /**
+     * @return rows
+     */
+    @Benchmark
+    public List<Row> toObject() {
+        return db.stream("SELECT * FROM t_bench")
+            .map(Try.f(toObject))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,73 @@
+package framework;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Escape benchmark(typical template payloads)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EscapeBenchmark {
+
+    /**
+     * Payload
+     */
+    @Param({ "Lorem ipsum dolor sit amet, consectetur adipiscing elit 12345", "Tom & Jerry <tom@example.com> said \"hi\"" })
+    public String text;
+
+    /**
+     * Output
+     */
+    final StringBuilder out = new StringBuilder();
+
+    /**
+     * @return escaped text
+     */
+    @Benchmark
+    public String html() {
+        return Tool.htmlEscape(text);
+    }
+
+    /**
+     * @return escaped length
+     * @throws IOException IO error
+     */
+    @Benchmark
+    public int htmlAppend() throws IOException {
+        out.setLength(0);
+        return Tool.htmlEscape(text, out)
+            .length();
+    }
+
+    /**
+     * @return escaped text
+     */
+    @Benchmark
+    public String script() {
+        return Tool.scriptEscape(text);
+    }
+
+    /**
+     * @return escaped text
+     */
+    @Benchmark
+    public String formatterScript() {
+        return Formatter.scriptEscape(text);
+    }
+}
@@ -0,0 +1,70 @@
+package framework;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatter benchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FormatterBenchmark {
+
+    /**
+     * Template
+     */
+    final String html = "<ul>\n<li>${name}</li>\n<li>${price * count}</li>\n<li>${name.length() > 3}</li>\n<li>{0}</li>\n</ul>\n";
+
+    /**
+     * Sql(1000 lines)
+     */
+    final String sql = Stream.generate(() -> "SELECT * FROM t_item WHERE id = ${id} AND name = '{x}' -- {y}\n")
+        .limit(1000)
+        .collect(Collectors.joining());
+
+    /**
+     * Bind parameters
+     */
+    final Map<String, ?> map = Tool.map("name", "<apple & orange>", "price", 120, "count", 3);
+
+    /**
+     * @return formatted html
+     */
+    @Benchmark
+    public String html() {
+        return Formatter.format(html, Formatter::excludeForHtml, Tool::htmlEscape, Locale.ROOT, map, "value");
+    }
+
+    /**
+     * @return formatted text
+     */
+    @Benchmark
+    public String text() {
+        return Formatter.format("${name}: ${price * count} ({0})", Formatter::excludeForHtml, null, Locale.ROOT, map, "value");
+    }
+
+    /**
+     * @return formatted sql
+     */
+    @Benchmark
+    public String sql() {
+        return Formatter.format((before, prefix, suffix) -> "'" + before.substring(prefix, before.length() - suffix) + "'", sql, Formatter::excludeForSql, null, Locale.ROOT, null);
+    }
+}
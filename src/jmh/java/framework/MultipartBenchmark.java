@@ -0,0 +1,82 @@
+package framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Standalone.RequestImpl(multipart/form-data) benchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MultipartBenchmark {
+
+    /**
+     * Boundary
+     */
+    static final String BOUNDARY = "----benchmarkBoundary7MA4YWxkTrZu0gW";
+
+    /**
+     * File size(bytes, below RequestImpl.fileSizeThreshold)
+     */
+    @Param({ "1024", "16384" })
+    public int fileSize;
+
+    /**
+     * Request body
+     */
+    byte[] body;
+
+    /**
+     * setup
+     */
+    @Setup
+    public void setup() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            write(out, "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"field" + i + "\"\r\n\r\nvalue " + i + "\r\n");
+        }
+        write(out, "--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.bin\"\r\nContent-Type: application/octet-stream\r\n\r\n");
+        byte[] file = new byte[fileSize];
+        Arrays.fill(file, (byte) 'x');
+        out.write(file, 0, file.length);
+        write(out, "\r\n--" + BOUNDARY + "--\r\n");
+        body = out.toByteArray();
+    }
+
+    /**
+     * @param out Output
+     * @param text Text
+     */
+    static void write(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @return request
+     * @throws IOException IO error
+     */
+    @Benchmark
+    public Request parse() throws IOException {
+        return new Standalone.RequestImpl(new BenchmarkExchange("POST", "/upload", "multipart/form-data; boundary=" + BOUNDARY, body));
+    }
+}
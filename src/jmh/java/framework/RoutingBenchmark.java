@@ -0,0 +1,81 @@
+package framework;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import framework.annotation.Route;
+
+/**
+ * Route matching benchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RoutingBenchmark {
+
+    /**
+     * Route count
+     */
+    @Param({ "10", "100" })
+    public int routes;
+
+    /**
+     * Request
+     */
+    Request request;
+
+    /**
+     * Request path(matches last route)
+     */
+    String path;
+
+    /**
+     * Route target
+     */
+    @Route
+    public void target() {
+    }
+
+    /**
+     * @throws Exception error
+     */
+    @Setup
+    public void setup() throws Exception {
+        Method method = RoutingBenchmark.class.getMethod("target");
+        Application.routing = new HashMap<>();
+        for (int i = 0; i < routes; i++) {
+            Application.routing.put(Tuple.of(Tool.set(Route.Method.GET), Pattern.compile("/resource" + i + "/(?<id>[0-9]+)"), new HashMap<>()), Tuple.of(RoutingBenchmark.class, method));
+        }
+        path = "/resource" + (routes - 1) + "/12345";
+        request = new Standalone.RequestImpl(new BenchmarkExchange("GET", path, null, new byte[0]));
+    }
+
+    /**
+     * @return matched route
+     */
+    @Benchmark
+    public Object route() {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        return Application.route(request, path, parameters);
+    }
+}
@@ -0,0 +1,127 @@
+package framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tool.traverse(json, xml, csv) and serialize benchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraverseBenchmark {
+
+    /**
+     * Item
+     */
+    @SuppressWarnings("serial")
+    public static class Item implements Serializable {
+        /**
+         * Id
+         */
+        public int id;
+        /**
+         * Name
+         */
+        public String name;
+        /**
+         * Price
+         */
+        public long price;
+        /**
+         * Date
+         */
+        public LocalDate date;
+        /**
+         * Tags
+         */
+        public List<String> tags;
+    }
+
+    /**
+     * Item count
+     */
+    @Param({ "10", "1000" })
+    public int size;
+
+    /**
+     * Items
+     */
+    ArrayList<Item> items;
+
+    /**
+     * setup
+     */
+    @Setup
+    public void setup() {
+        items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Item item = new Item();
+            item.id = i;
+            item.name = "item \"" + i + "\" <&>";
+            item.price = i * 100L;
+            item.date = LocalDate.of(2018, 1, 1)
+                .plusDays(i);
+            item.tags = Tool.list("a", "b,c", "d\ne");
+            items.add(item);
+        }
+    }
+
+    /**
+     * @return json
+     */
+    @Benchmark
+    public byte[] json() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Tool.json(items, out, StandardCharsets.UTF_8);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return xml
+     */
+    @Benchmark
+    public byte[] xml() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Tool.xml(items, out, StandardCharsets.UTF_8);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return csv
+     */
+    @Benchmark
+    public byte[] csv() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Tool.csv(items, out, StandardCharsets.UTF_8);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return serialized bytes
+     */
+    @Benchmark
+    public byte[] serialize() {
+        return Tool.serialize(items);
+    }
+}
@@ -0,0 +1,123 @@
+package framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Xml parse and serialize benchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class XmlBenchmark {
+
+    /**
+     * Row count
+     */
+    @Param({ "10", "1000" })
+    public int rows;
+
+    /**
+     * Source html
+     */
+    String html;
+
+    /**
+     * Parsed html
+     */
+    Xml xml;
+
+    /**
+     * Output
+     */
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    /**
+     * setup
+     */
+    @Setup
+    public void setup() {
+        StringBuilder s = new StringBuilder("<html><head><title>benchmark</title></head><body><table id=\"list\">");
+        for (int i = 0; i < rows; i++) {
+            s.append("<tr class=\"row\"><td>")
+                .append(i)
+                .append("</td><td><a href=\"/item/")
+                .append(i)
+                .append("\">item &amp; ")
+                .append(i)
+                .append("</a></td><td><input type=\"checkbox\" name=\"c\" value=\"")
+                .append(i)
+                .append("\"></td></tr>");
+        }
+        html = s.append("</table></body></html>")
+            .toString();
+        xml = Xml.parse(html);
+    }
+
+    /**
+     * @return parsed xml
+     */
+    @Benchmark
+    public Xml parse() {
+        return Xml.parse(html);
+    }
+
+    /**
+     * @return serialized string
+     */
+    @Benchmark
+    public String string() {
+        return xml.toString();
+    }
+
+    /**
+     * @return serialized bytes
+     * @throws IOException IO error
+     */
+    @Benchmark
+    public int stream() throws IOException {
+        out.reset();
+        xml.write(out, StandardCharsets.UTF_8);
+        return out.size();
+    }
+
+    /**
+     * @return parsed and serialized bytes
+     * @throws IOException IO error
+     */
+    @Benchmark
+    public int tree() throws IOException {
+        out.reset();
+        Xml.parseMap(html, null)
+            .write(out, StandardCharsets.UTF_8);
+        return out.size();
+    }
+
+    /**
+     * @return streaming rewritten bytes
+     * @throws IOException IO error
+     */
+    @Benchmark
+    public int rewrite() throws IOException {
+        out.reset();
+        Xml.rewrite(html, null, out, StandardCharsets.UTF_8);
+        return out.size();
+    }
+}
@@ -12,8 +12,11 @@ import java.util.regex.Pattern;
 import app.controller.Main;
 import app.model.Account;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import framework.Db.Selection;
 import framework.Db.Setup;
+import framework.Limiter;
 import framework.Message;
+import framework.QueryCache;
 import framework.Tool;
 import framework.annotation.Config;
 import framework.annotation.Help;
@@ -85,6 +88,81 @@ public class Sys {
         public static int readTimeout = 10 * 1000;
         @Help("Debug output")
         public static boolean debug = true;
+        @Help("Outbox sender threads(SMTP connections)")
+        public static int outbox_threads = 1;
+        @Help("Outbox max queued messages(unlimited if 0)")
+        public static int outbox_capacity = 10000;
+        @Help("Outbox messages per SMTP connection before reconnect")
+        public static int outbox_batch = 100;
+        @Help("Outbox seconds to keep an idle SMTP connection")
+        public static int outbox_idle_seconds = 30;
+        @Help("Outbox retries before giving up")
+        public static int outbox_retries = 5;
+        @Help("Outbox first retry delay milliseconds(doubled each retry)")
+        public static long outbox_retry_millis = 1000;
+        @Help("Outbox max retry delay milliseconds")
+        public static long outbox_retry_max_millis = 5 * 60 * 1000;
+        @Help("Outbox persists messages to t_mail until sent")
+        public static boolean outbox_persist = false;
+        @Help("Outbox seconds to wait for queued messages at shutdown")
+        public static int outbox_drain_seconds = 5;
+    }
+
+    public static class AccessLog {
+        @Help("write access log(a JSON line per completed request)")
+        public static boolean enabled = false;
+        @Help("access log output folder")
+        public static String folder = "/temp/";
+        @Help("access log filename pattern(DateTimeFormatter format, a file per day)")
+        public static DateTimeFormatter file_pattern = Tool.getFormat("'access_'uuuuMMdd'.log'", Locale.JAPAN);
+        @Help("access log buffer bytes(written when full)")
+        public static int buffer_bytes = 64 * 1024;
+        @Help("access log max milliseconds to keep records in buffer")
+        public static long flush_millis = 1000;
+        @Help("gzip access log of previous day")
+        public static boolean gzip = true;
+    }
+
+    public static class Limit {
+        @Help("admission control of requests(excess requests are rejected with 503 and Retry-After)")
+        public static boolean enabled = false;
+        @Help("concurrency limit algorithm(AIMD, GRADIENT, FIXED)")
+        public static Limiter.Algorithm algorithm = Limiter.Algorithm.GRADIENT;
+        @Help("initial global concurrency limit")
+        public static int initial = 200;
+        @Help("initial concurrency limit per route")
+        public static int route_initial = 50;
+        @Help("min concurrency limit")
+        public static int min = 4;
+        @Help("max concurrency limit")
+        public static int max = 2000;
+        @Help("usable ratio of global limit for normal requests(the rest is reserved for priority requests)")
+        public static double normal_ratio = 0.8;
+        @Help("path pattern of priority requests(static assets and health checks)")
+        public static Pattern priority_paths = Pattern.compile("^/health|\\.(css|js|png|jpe?g|gif|svg|ico|woff2?)$");
+        @Help("AIMD: latency milliseconds regarded as overload")
+        public static long aimd_timeout_millis = 1000;
+        @Help("AIMD: limit multiplier on overload")
+        public static double aimd_backoff = 0.9;
+        @Help("GRADIENT: tolerated ratio of current latency to long-term average")
+        public static double gradient_tolerance = 2.0;
+        @Help("Retry-After seconds of rejected response")
+        public static int retry_after_seconds = 1;
+        @Help("rate limit store(RateLimiter$Memory or RateLimiter$RedisStore to share among servers)")
+        public static String rate_store = "framework.RateLimiter$Memory";
+        @Help("max clients tracked in memory(oldest is evicted if over)")
+        public static int rate_max_keys = 100000;
+        @Help({ "use client IP headers(X-Forwarded-For etc.) as rate limit key of guests, else peer address",
+            "enable only behind a trusted proxy that overwrites them(clients can send any value)" })
+        public static boolean rate_trust_forwarded = false;
+        @Help("seconds between removals of full buckets in memory")
+        public static int rate_idle_seconds = 60;
+        @Help("redis host of rate limit")
+        public static String rate_redis_host = "127.0.0.1";
+        @Help("redis port of rate limit")
+        public static int rate_redis_port = 6379;
+        @Help("redis connect and read timeout milliseconds of rate limit(allowed if timed out)")
+        public static int rate_redis_timeout_millis = 200;
     }
 
     public static class Db {
@@ -94,6 +172,15 @@ public class Sys {
         @Help("datasource generator class")
         public static String datasource_class = "";
 
+        @Help("read replica connection strings by suffix(Sys.Db.replicas.h2 = url, ...)")
+        public static String replicas = "";
+
+        @Help({ "read replica selection", "[ROUND_ROBIN]: in turn", "LEAST_LOADED: fewest open connections" })
+        public static Selection replica_selection = Selection.ROUND_ROBIN;
+
+        @Help("milliseconds to read from primary after a write in the same session")
+        public static long read_your_writes_millis = 5 * 1000;
+
         @Help({ "database auto config", "CREATE: drop and create", "[UPDATE]: create if not exists", "RELOAD: delete and insert", "NONE: no operation" })
         public static Setup setup = Setup.UPDATE;
 
@@ -117,6 +204,30 @@ public class Sys {
 
         @Help("SQLServer tcp database connection string(inclucde id and password)")
         public static String sqlserver = "jdbc:sqlserver://localhost:1433;user=sa;password=;schema=dbo";
+
+        @Help("query cache store class(implements framework.QueryCache$Store)")
+        public static String cache_store = "framework.QueryCache$Memory";
+
+        @Help("query cache default time to live milliseconds")
+        public static long cache_ttl_millis = 60 * 1000;
+
+        @Help("query cache max entries(unlimited if 0)")
+        public static int cache_max_entries = 1000;
+
+        @Help({ "query cache eviction", "[LRU]: least recently used", "LFU: least frequently used" })
+        public static QueryCache.Eviction cache_eviction = QueryCache.Eviction.LRU;
+
+        @Help("parents per window and keys per IN list of @Join eager loading")
+        public static int join_batch_size = 500;
+
+        @Help("slow query log threshold milliseconds(disabled if negative)")
+        public static long slow_query_millis = 1000;
+
+        @Help("capture execution plan of first slow select by fingerprint")
+        public static boolean slow_query_explain = false;
+
+        @Help("max SQL fingerprints to aggregate(rest to (other), unlimited if 0)")
+        public static int trace_max_fingerprints = 1000;
     }
 
     @Help("session cookie name")
@@ -147,9 +258,34 @@ public class Sys {
     @Help("template folder")
     public static String template_folder = "/template/";
 
+    @Help({ "stream Render response(opt-in, only elements that has render attribute are built as tree)",
+        "renders can not edit outside of the element(siblings and parents), so enable only if templates do not need it" })
+    public static boolean render_streaming = false;
+
+    @Help("default timeout seconds of asynchronous route result(no timeout if 0)")
+    public static int async_timeout_seconds = 30;
+
+    @Help("max wait seconds for the same response being computed by another request(@Cached route)")
+    public static int response_cache_wait_seconds = 10;
+
+    @Help("streaming response writer threads(shared by all open streams)")
+    public static int stream_threads = 2;
+
+    @Help("server-sent events heartbeat interval seconds(disabled if 0)")
+    public static int stream_heartbeat_seconds = 15;
+
+    @Help("max unsent bytes per stream(slow client is disconnected if exceeded)")
+    public static long stream_max_pending_bytes = 1024 * 1024;
+
+    @Help("max seconds of a blocked write to a stream(slow client is disconnected if exceeded, disabled if 0)")
+    public static int stream_write_timeout_seconds = 10;
+
     @Help("include file pattern to apply format")
     public static Pattern format_include_regex = Pattern.compile(".*\\.(html?|js|css)");
 
+    @Help("max depth of formatting converted text(nested expression in message or value)")
+    public static int format_max_depth = 8;
+
     @Help("exclude file pattern to apply format")
     public static Pattern format_exclude_regex = Pattern.compile(".*[.]min[.](html?|js|css)");
 
@@ -243,15 +379,33 @@ public class Sys {
     @Help("Default avator")
     public static String default_avator = "&#9924;";
 
+    @Help("config reload interval seconds(watch config files and t_config, disabled if 0)")
+    public static int config_watch_seconds = 0;
+
     @Help("Request method change parameter key")
     public static String request_method_key = "_method";
 
+    @Help("max parameter count of query string or url encoded form(ignore the rest)")
+    public static int request_max_parameters = 10000;
+
+    @Help("max bytes of query string or url encoded form(ignore the rest)")
+    public static long request_max_form_bytes = 2 * 1024 * 1024;
+
     @Help("Background css")
     public static String background = "#23282d";
 
     @Help("Nendo start month")
     public static int nendo_start_month = 4;
 
+    @Help("add Server-Timing header(route, bind, session, db, app and total milliseconds)")
+    public static boolean server_timing = false;
+
+    @Help("ratio of requests whose phase timings are logged and recorded to metrics(0 to 1)")
+    public static double timing_sample_ratio = 0;
+
+    @Help("metrics path of prometheus text format(disabled if empty)")
+    public static Optional<String> metrics_path = Tool.of();
+
     public enum Item implements Message {
         title,
         login,
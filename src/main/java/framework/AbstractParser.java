@@ -71,14 +71,33 @@ public abstract class AbstractParser {
      * @return true:ate a word, false:not ate
      */
     protected boolean eat(String word) {
-        int length = word.length();
-        if (index + length <= lastIndex && source.substring(index, index + length).equals(word)) {
-            index += length;
+        if (at(index, word)) {
+            index += word.length();
             return true;
         }
         return false;
     }
 
+    /**
+     * word check(no allocation)
+     *
+     * @param start Start index
+     * @param word word
+     * @return true:word exists at start index, false:not exists
+     */
+    protected boolean at(int start, String word) {
+        int length = word.length();
+        if (start < 0 || start + length > lastIndex) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * index of word from current index
      *
@@ -96,17 +115,72 @@ public abstract class AbstractParser {
      * @return true:equals prev word, false:not equals
      */
     boolean prev(String word) {
-        int length = word.length();
-        return index - length >= 0 && source.substring(index - length, index).equals(word);
+        return at(index - word.length(), word);
     }
 
     /**
      * @param start Start index
      * @param end End index
-     * @return Sub sequence
+     * @return Sub sequence(view of source, valid until source is changed)
      */
     CharSequence subSequence(int start, int end) {
-        return source.subSequence(start, end);
+        if (start < 0 || end > source.length() || start > end) {
+            throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + source.length());
+        }
+        return new Slice(source, start, end);
+    }
+
+    /**
+     * View of char sequence(no copy)
+     */
+    static class Slice implements CharSequence {
+
+        /**
+         * Source
+         */
+        final CharSequence source;
+
+        /**
+         * Start index
+         */
+        final int start;
+
+        /**
+         * End index
+         */
+        final int end;
+
+        /**
+         * @param source Source
+         * @param start Start index
+         * @param end End index
+         */
+        Slice(CharSequence source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Slice(source, this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return source.subSequence(start, end)
+                .toString();
+        }
     }
 
     /**
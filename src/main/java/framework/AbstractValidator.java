@@ -1,7 +1,6 @@
 package framework;
 
 import java.lang.annotation.Annotation;
-import java.util.stream.Stream;
 
 import framework.annotation.Valid;
 import framework.annotation.Validator.ErrorAppender;
@@ -17,11 +16,34 @@ public abstract class AbstractValidator<T extends Annotation> {
      */
     protected T annotation;
 
+    /**
+     * Apply groups(groups or value of annotation)
+     */
+    final Class<?>[] groups;
+
     /**
      * @param annotation Annotation
      */
     public AbstractValidator(T annotation) {
         this.annotation = annotation;
+        groups = Tool.or(Reflector.method(annotation.getClass(), "groups"), () -> Reflector.method(annotation.getClass(), "value"))
+            .map(Try.f(method -> method.invoke(annotation)))
+            .filter(Class[].class::isInstance)
+            .map(Class[].class::cast)
+            .orElse(new Class<?>[0]);
+    }
+
+    /**
+     * @param valid Valid
+     * @return True if apply to valid group
+     */
+    public boolean isTarget(Class<? extends Valid.All> valid) {
+        for (Class<?> c : groups) {
+            if (valid.isAssignableFrom(c)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -38,8 +60,7 @@ public abstract class AbstractValidator<T extends Annotation> {
      * @param appender Error appender
      */
     final public void validate(Class<? extends Valid.All> valid, String name, String value, ErrorAppender appender) {
-        if (Tool.or(Reflector.method(annotation.getClass(), "groups"), () -> Reflector.method(annotation.getClass(), "value")).map(Try.f(method -> (Class[]) method.invoke(annotation)))
-                .flatMap(cs -> Stream.of(cs).filter(c -> valid.isAssignableFrom(c)).findAny()).isPresent()) {
+        if (isTarget(valid)) {
             validate(name, value, appender);
         }
     }
@@ -0,0 +1,539 @@
+package framework;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import app.config.Sys;
+
+/**
+ * Access log(a JSON line per completed request, buffered and written by size or time, daily files and gzip of old files)
+ */
+public class AccessLog {
+
+    /**
+     * Per-thread encoder
+     */
+    static class Encoder {
+
+        /**
+         * Record text
+         */
+        final StringBuilder text = new StringBuilder(256);
+
+        /**
+         * UTF-8 bytes
+         */
+        byte[] bytes = new byte[512];
+
+        /**
+         * @return Length of UTF-8 bytes
+         */
+        int encode() {
+            StringBuilder s = text;
+            int length = s.length();
+            if (bytes.length < length * 3) {
+                bytes = new byte[length * 3];
+            }
+            byte[] b = bytes;
+            int n = 0;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    b[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[n++] = (byte) (0xC0 | c >> 6);
+                    b[n++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int p = Character.toCodePoint(c, s.charAt(++i));
+                    b[n++] = (byte) (0xF0 | p >> 18);
+                    b[n++] = (byte) (0x80 | p >> 12 & 0x3F);
+                    b[n++] = (byte) (0x80 | p >> 6 & 0x3F);
+                    b[n++] = (byte) (0x80 | p & 0x3F);
+                } else {
+                    b[n++] = (byte) (0xE0 | c >> 12);
+                    b[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    b[n++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Output stream to count written bytes
+     */
+    static class Counter extends FilterOutputStream {
+
+        /**
+         * Written bytes
+         */
+        final long[] bytes;
+
+        /**
+         * @param out Output
+         * @param bytes Written bytes
+         */
+        Counter(OutputStream out, long[] bytes) {
+            super(out);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes[0]++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytes[0] += len;
+        }
+    }
+
+    /**
+     * Formatted second
+     */
+    static class Second {
+
+        /**
+         * Epoch second
+         */
+        final long epoch;
+
+        /**
+         * Local date time text(to second)
+         */
+        final String text;
+
+        /**
+         * @param epoch Epoch second
+         */
+        Second(long epoch) {
+            this.epoch = epoch;
+            this.text = LocalDateTime.ofInstant(Instant.ofEpochSecond(epoch), ZoneId.systemDefault())
+                .format(format);
+        }
+    }
+
+    /**
+     * Format of second
+     */
+    static final DateTimeFormatter format = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
+    /**
+     * Encoder of current thread
+     */
+    static final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    /**
+     * Last formatted second
+     */
+    static volatile Second second = new Second(0);
+
+    /**
+     * Lock of file
+     */
+    static final Object lock = new Object();
+
+    /**
+     * Lock of buffers
+     */
+    static final Object buffers = new Object();
+
+    /**
+     * Buffer(null if not started)
+     */
+    static byte[] buffer;
+
+    /**
+     * Free buffer to swap(null while the other one is being written)
+     */
+    static byte[] spare;
+
+    /**
+     * Buffered bytes
+     */
+    static int size;
+
+    /**
+     * Current file
+     */
+    static Path path;
+
+    /**
+     * Current file channel
+     */
+    static FileChannel channel;
+
+    /**
+     * Write, flush and gzip thread
+     */
+    static volatile ScheduledExecutorService writer;
+
+    /**
+     * @param out Output getter
+     * @param bytes Written bytes
+     * @return Output getter to count bytes(as is if disabled)
+     */
+    static Supplier<OutputStream> count(Supplier<OutputStream> out, long[] bytes) {
+        if (!Sys.AccessLog.enabled) {
+            return out;
+        }
+        Counter[] counter = { null };
+        return () -> {
+            if (counter[0] == null) {
+                counter[0] = new Counter(out.get(), bytes);
+            }
+            return counter[0];
+        };
+    }
+
+    /**
+     * write a record(if Sys.AccessLog.enabled)
+     *
+     * @param request Request
+     * @param session Session(nullable)
+     * @param status Status code
+     * @param bytes Sent body bytes
+     * @param timing Phase timings(nullable)
+     */
+    public static void write(Request request, Session session, int status, long bytes, String timing) {
+        if (!Sys.AccessLog.enabled || request == null) {
+            return;
+        }
+        Encoder encoder = encoders.get();
+        StringBuilder s = encoder.text;
+        s.setLength(0);
+        time(s.append("{\"time\":\""), System.currentTimeMillis());
+        s.append("\",\"method\":\"")
+            .append(request.getMethod())
+            .append("\",\"path\":");
+        string(s, request.getPath());
+        string(s.append(",\"route\":"), request.route);
+        s.append(",\"status\":")
+            .append(status)
+            .append(",\"bytes\":")
+            .append(bytes)
+            .append(",\"duration_ms\":");
+        Timing.millis(s, System.nanoTime() - request.startNanos);
+        string(s.append(",\"ip\":"), request.getRemoteIp());
+        s.append(",\"request\":")
+            .append(request.number);
+        /* hash of session id(not the id itself, SessionImpl.toString is the id) */
+        hex(s.append(",\"session\":\""), Tool.of(session)
+            .map(Object::toString)
+            .map(String::hashCode)
+            .orElse(0)).append('"');
+        if (timing != null) {
+            string(s.append(",\"timing\":"), timing);
+        }
+        s.append("}\n");
+        int length = encoder.encode();
+        append(encoder.bytes, length);
+    }
+
+    /**
+     * @param s Output
+     * @param millis Epoch millis
+     * @return Output(local date time to millis)
+     */
+    static StringBuilder time(StringBuilder s, long millis) {
+        long epoch = Math.floorDiv(millis, 1000);
+        Second current = second;
+        if (current.epoch != epoch) {
+            second = current = new Second(epoch);
+        }
+        s.append(current.text);
+        int fraction = (int) Math.floorMod(millis, 1000);
+        s.append('.');
+        if (fraction < 100) {
+            s.append('0');
+        }
+        if (fraction < 10) {
+            s.append('0');
+        }
+        return s.append(fraction);
+    }
+
+    /**
+     * @param s Output
+     * @param value Value(null if not exists)
+     * @return Output(JSON string)
+     */
+    static StringBuilder string(StringBuilder s, String value) {
+        if (value == null) {
+            return s.append("null");
+        }
+        s.append('"');
+        for (int i = 0, end = value.length(); i < end; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+            case '\\':
+                s.append('\\')
+                    .append(c);
+                break;
+            case '\n':
+                s.append("\\n");
+                break;
+            case '\r':
+                s.append("\\r");
+                break;
+            case '\t':
+                s.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    s.append("\\u00");
+                    hex(s, c, 2);
+                } else {
+                    s.append(c);
+                }
+            }
+        }
+        return s.append('"');
+    }
+
+    /**
+     * @param s Output
+     * @param value Value
+     * @return Output(8 hex digits)
+     */
+    static StringBuilder hex(StringBuilder s, int value) {
+        return hex(s, value, 8);
+    }
+
+    /**
+     * @param s Output
+     * @param value Value
+     * @param digits Hex digits
+     * @return Output
+     */
+    static StringBuilder hex(StringBuilder s, int value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            s.append(Character.forDigit(value >>> shift & 0xF, 16));
+        }
+        return s;
+    }
+
+    /**
+     * @param bytes Record
+     * @param length Length
+     */
+    static void append(byte[] bytes, int length) {
+        synchronized (buffers) {
+            if (buffer == null) {
+                buffer = new byte[Math.max(1024, Sys.AccessLog.buffer_bytes)];
+                spare = new byte[buffer.length];
+                long millis = Math.max(10, Sys.AccessLog.flush_millis);
+                writer = Executors.newSingleThreadScheduledExecutor(r -> Tool.peek(new Thread(r, "access-log"), t -> t.setDaemon(true)));
+                writer.scheduleWithFixedDelay(() -> flush(false), millis, millis, TimeUnit.MILLISECONDS);
+            }
+            if (size + length > buffer.length && size > 0) {
+                /* swap to spare and write the full one on access-log thread */
+                byte[] full = buffer;
+                int n = size;
+                buffer = take();
+                size = 0;
+                writer.execute(() -> output(full, n, full));
+            }
+            if (length > buffer.length) {
+                byte[] token = take();
+                byte[] copy = Arrays.copyOf(bytes, length);
+                writer.execute(() -> output(copy, length, token));
+            } else {
+                System.arraycopy(bytes, 0, buffer, size, length);
+                size += length;
+            }
+        }
+    }
+
+    /**
+     * take spare buffer(wait while the other one is being written, call holding buffers lock)
+     *
+     * @return Spare buffer
+     */
+    static byte[] take() {
+        while (spare == null) {
+            try {
+                buffers.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                    .interrupt();
+                return new byte[buffer.length];
+            }
+        }
+        byte[] b = spare;
+        spare = null;
+        return b;
+    }
+
+    /**
+     * @param bytes Bytes
+     * @param length Length
+     * @param taken Buffer to give back as spare
+     */
+    static void output(byte[] bytes, int length, byte[] taken) {
+        try {
+            synchronized (lock) {
+                write(bytes, length);
+            }
+        } finally {
+            synchronized (buffers) {
+                spare = taken;
+                buffers.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * write buffered records
+     */
+    public static void flush() {
+        flush(true);
+    }
+
+    /**
+     * write buffered records(rotate even if idle)
+     *
+     * @param wait True to wait for the buffer being written(false on access-log thread: it is written next)
+     */
+    static void flush(boolean wait) {
+        byte[] full;
+        int length;
+        synchronized (buffers) {
+            if (buffer == null || (spare == null && !wait)) {
+                return;
+            }
+            byte[] next = take();
+            length = size;
+            if (length > 0) {
+                full = buffer;
+                buffer = next;
+                size = 0;
+            } else {
+                full = next;
+            }
+        }
+        output(full, length, full);
+    }
+
+    /**
+     * write to file of today(rotate and gzip old file if date changed)
+     *
+     * @param bytes Bytes
+     * @param length Length
+     */
+    static void write(byte[] bytes, int length) {
+        Path p = Paths.get(Sys.AccessLog.folder, Sys.AccessLog.file_pattern.format(LocalDate.now()));
+        try {
+            if (!p.equals(path)) {
+                Path old = path;
+                close();
+                if (length <= 0) {
+                    return;
+                }
+                Path parent = p.getParent();
+                if (parent != null && Files.notExists(parent)) {
+                    Files.createDirectories(parent);
+                }
+                channel = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                path = p;
+                if (old != null && Sys.AccessLog.gzip) {
+                    ScheduledExecutorService w = writer;
+                    if (w == null) {
+                        gzip(old);
+                    } else {
+                        w.execute(() -> gzip(old));
+                    }
+                }
+            }
+            ByteBuffer b = ByteBuffer.wrap(bytes, 0, length);
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+        } catch (IOException e) {
+            Log.warning(e, () -> "access log write error: " + p);
+        }
+    }
+
+    /**
+     * close current file
+     */
+    static void close() {
+        if (channel != null) {
+            Try.r(channel::close, e -> Log.warning(e, () -> "access log close error: " + path))
+                .run();
+            channel = null;
+        }
+    }
+
+    /**
+     * @param file File to compress(replaced to file.gz)
+     */
+    static void gzip(Path file) {
+        Path gz = Paths.get(file + ".gz");
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+            Tool.copy(in, out, new byte[8192]);
+        } catch (IOException e) {
+            Log.warning(e, () -> "access log gzip error: " + file);
+            return;
+        }
+        Try.r(() -> Files.delete(file), e -> Log.warning(e, () -> "access log delete error: " + file))
+            .run();
+        Log.info(() -> "access log compressed: " + gz);
+    }
+
+    /**
+     * write buffered records and close file
+     */
+    public static void shutdown() {
+        ScheduledExecutorService w;
+        byte[] rest;
+        int length;
+        synchronized (buffers) {
+            if (buffer == null) {
+                return;
+            }
+            take();
+            rest = buffer;
+            length = size;
+            buffer = null;
+            spare = null;
+            size = 0;
+            w = writer;
+            writer = null;
+        }
+        synchronized (lock) {
+            if (length > 0) {
+                write(rest, length);
+            }
+            close();
+            path = null;
+        }
+        w.shutdown();
+        Try.r(() -> w.awaitTermination(10, TimeUnit.SECONDS))
+            .run();
+    }
+}
@@ -19,10 +19,21 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
@@ -61,10 +72,16 @@ public abstract class Application implements Attributes<Object> {
     public final Set<AbstractValidator<?>> globalValidators = new LinkedHashSet<>();
 
     /**
-     * Shutdown actions
+     * Timeout timers of asynchronous route
+     */
+    static final Lazy<ScheduledExecutorService> timers = new Lazy<>(() -> Executors.newSingleThreadScheduledExecutor(r -> Tool.peek(new Thread(r, "async-timeout"), t -> t
+        .setDaemon(true))));
+
+    /**
+     * Shutdown actions(run in reverse order: Outbox and AccessLog drain before Db and Log are closed)
      */
     protected List<Runnable> shutdowns = Tool
-        .list(Log::shutdown, Job.Scheduler::shutdown, Try.r(Db::shutdown, e -> Log.warning("Db shutdown error")), () -> Tool.stream(DriverManager.getDrivers())
+        .list(Log::shutdown, () -> QueryCache.store.ifGot(i -> Log.info(QueryCache::stats)), AccessLog::shutdown, Try.r(Db::shutdown, e -> Log.warning("Db shutdown error")), Outbox::shutdown, () -> timers.ifGot(ExecutorService::shutdownNow), Response.Chunked::shutdown, Job.Scheduler::shutdown, () -> Tool.stream(DriverManager.getDrivers())
             .forEach(Try.c(DriverManager::deregisterDriver)));
 
     /**
@@ -137,7 +154,7 @@ public abstract class Application implements Attributes<Object> {
         /* setup routing */
         if (routing == null) {
             routing = new HashMap<>();
-            try (Stream<Class<?>> cs = Tool.getClasses(Main.class.getPackage()
+            try (Stream<Class<?>> cs = Index.classes(Route.class, Main.class.getPackage()
                 .getName())) {
                 cs.flatMap(c -> Stream.of(c.getDeclaredMethods())
                     .map(m -> Tuple.of(m, m.getAnnotation(Route.class)))
@@ -235,6 +252,11 @@ public abstract class Application implements Attributes<Object> {
 
         /* load database config */
         Config.Injector.loadDb();
+        Config.Injector.watch()
+            .ifPresent(watcher -> shutdowns.add(watcher::shutdownNow));
+
+        /* resend unsent mails */
+        Outbox.restore();
 
         Log.info(() -> "---- setting ----" + Letters.CRLF + Config.Injector.classes.stream()
             .map(c -> String.join(Letters.CRLF, Config.Injector.dumpConfig(c, true)))
@@ -246,7 +268,7 @@ public abstract class Application implements Attributes<Object> {
         List<Class<?>> cs = new ArrayList<>();
         Sys.job_packages.stream()
             .forEach(p -> {
-                try (Stream<Class<?>> classes = Tool.getClasses(p)) {
+                try (Stream<Class<?>> classes = Index.classes(Job.class, p)) {
                     classes.forEach(cs::add);
                 }
             });
@@ -270,6 +292,182 @@ public abstract class Application implements Attributes<Object> {
      * @param session session
      */
     void handle(Request request, Session session) {
+        Timing.begin(request);
+        Limiter.Permit permit = Limiter.global(request);
+        if (permit == null) {
+            Limiter.reject();
+            return;
+        }
+        Db.lastWrite.set(lastWrite(session));
+        try {
+            dispatch(request, session);
+        } catch (RuntimeException e) {
+            permit.drop();
+            if (Metrics.request(request, Status.Internal_Server_Error.code)) {
+                AccessLog.write(request, session, Status.Internal_Server_Error.code, 0, Timing.end());
+            }
+            throw e;
+        } finally {
+            Db.lastWrite.remove();
+            permit.close();
+        }
+    }
+
+    /**
+     * @param session Session(nullable)
+     * @return Last write of the session(loaded at first read from a database with replicas)
+     */
+    static Db.LastWrite lastWrite(Session session) {
+        return session == null ? null : new Db.LastWrite(() -> session.<Long>getAttr(Db.WRITTEN), millis -> session.setAttr(Db.WRITTEN, millis));
+    }
+
+    /**
+     * respond on completion of asynchronous route result(request thread is released if server supports)
+     *
+     * @param stage Route result
+     * @param method Route method
+     * @param db Database(closed on completion)
+     * @param respond Response writer
+     */
+    static void respondAsync(CompletionStage<?> stage, Method method, Lazy<Db> db, Consumer<Object> respond) {
+        Request request = Request.CURRENT.get();
+        Session session = Session.CURRENT.get();
+        int timeout = Tool.of(method.getAnnotation(Route.class))
+            .map(Route::timeout)
+            .filter(i -> i != 0)
+            .orElse(Sys.async_timeout_seconds);
+        CompletableFuture<?> future = stage.toCompletableFuture();
+        AtomicBoolean finished = new AtomicBoolean();
+        /* concurrency permits are released on completion */
+        Runnable release = Limiter.defer();
+        Runnable closer = Response.factory.get()
+            .detach(() -> {
+                if (finished.compareAndSet(false, true)) {
+                    Log.info("async route aborted");
+                    future.cancel(true);
+                    db.ifGot(Db::rollback)
+                        .close();
+                    release.run();
+                }
+            });
+        if (closer == null) {
+            /* not supported: wait on request thread */
+            Limiter.resume();
+            try (Lazy<Db> d = db) {
+                respond.accept(timeout > 0 ? future.get(timeout, TimeUnit.SECONDS) : future.get());
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                db.ifGot(Db::rollback);
+                Log.warning("async route timeout: " + timeout + " seconds");
+                Response.error(Status.Service_Unavailable)
+                    .flush();
+            } catch (InterruptedException | ExecutionException e) {
+                db.ifGot(Db::rollback);
+                Throwable t = e.getCause() == null ? e : e.getCause();
+                throw t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t);
+            }
+            return;
+        }
+        BiConsumer<Object, Throwable> complete = (value, error) -> {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            boolean[] isStream = { false };
+            with(request, session, () -> {
+                try (Lazy<Db> d = db) {
+                    if (error instanceof TimeoutException) {
+                        future.cancel(true);
+                        db.ifGot(Db::rollback);
+                        Log.warning("async route timeout: " + timeout + " seconds");
+                        Response.error(Status.Service_Unavailable)
+                            .flush();
+                    } else if (error != null) {
+                        db.ifGot(Db::rollback);
+                        Throwable t = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        Log.warning(t, () -> "async route error");
+                        Response.error(Status.Internal_Server_Error)
+                            .flush();
+                    } else {
+                        Object content = value instanceof Response ? ((Response) value).content : value;
+                        if (content instanceof Response.Chunked) {
+                            ((Response.Chunked) content).onClose(release);
+                        }
+                        respond.accept(value);
+                        isStream[0] = content instanceof Response.Chunked;
+                    }
+                } catch (RuntimeException e) {
+                    Log.warning(e, () -> "async response error");
+                    Try.r(() -> Response.error(Status.Internal_Server_Error)
+                        .flush(), ee -> Log.config("async error response not sent: " + ee))
+                        .run();
+                } finally {
+                    if (!isStream[0]) {
+                        closer.run();
+                        release.run();
+                    }
+                }
+                return null;
+            });
+        };
+        ScheduledFuture<?> timer = timeout > 0 ? timers.get()
+            .schedule(() -> complete.accept(null, new TimeoutException()), timeout, TimeUnit.SECONDS) : null;
+        future.whenComplete((value, error) -> {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            complete.accept(value, error);
+        });
+    }
+
+    /**
+     * @param <T> Result type
+     * @param request Request
+     * @param session Session
+     * @param action Action(Request.current() and Session.current() are available)
+     * @return Result
+     */
+    static <T> T with(Request request, Session session, Supplier<T> action) {
+        Request oldRequest = Request.CURRENT.get();
+        Session oldSession = Session.CURRENT.get();
+        Db.LastWrite oldLastWrite = Db.lastWrite.get();
+        Request.CURRENT.set(request);
+        Session.CURRENT.set(session);
+        Db.lastWrite.set(lastWrite(session));
+        try {
+            return action.get();
+        } finally {
+            Request.CURRENT.set(oldRequest);
+            Session.CURRENT.set(oldSession);
+            Db.lastWrite.set(oldLastWrite);
+            if (oldRequest == null) {
+                Request.CURRENT.remove();
+            }
+            if (oldSession == null) {
+                Session.CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * run task asynchronously with current request and session(for asynchronous route)
+     *
+     * @param <T> Result type
+     * @param task Task
+     * @return Future
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        Request request = Request.CURRENT.get();
+        Session session = Session.CURRENT.get();
+        return CompletableFuture.supplyAsync(() -> with(request, session, task));
+    }
+
+    /**
+     * request dispatch
+     *
+     * @param request request
+     * @param session session
+     */
+    void dispatch(Request request, Session session) {
         Log.info(request::toString);
 
         final String path = request.getPath();
@@ -281,6 +479,15 @@ public abstract class Application implements Attributes<Object> {
             return;
         }
 
+        /* metrics */
+        if (Sys.metrics_path.filter(path::equals).isPresent()) {
+            request.route = path;
+            Response.write(w -> w.print(Metrics.prometheus()))
+                .contentType("text/plain; version=0.0.4", StandardCharsets.UTF_8)
+                .flush();
+            return;
+        }
+
         final Optional<String> mime = Tool.string(Tool.getExtension(path))
                 .map(Tool::getContentType);
 
@@ -307,23 +514,9 @@ public abstract class Application implements Attributes<Object> {
         /* action */
         Map<String, List<String>> parameters = new HashMap<>(request.getParameters());
         final String normalizedPath = Tool.prefix(Tool.trim(null, path, "/"), "/");
-        final Tuple<Class<?>, Method> pair = routing.entrySet()
-            .stream()
-            .filter(e -> e.getKey().l.isEmpty() || e.getKey().l.contains(request.getMethod()))
-            .map(e -> Tuple.of(e.getKey().r.l.matcher(normalizedPath), e.getKey().r.r, e.getValue()))
-            .filter(p -> p.l.matches())
-            .sorted(Comparator.comparing(c -> c.getValue()
-                .getValue()
-                .getValue()
-                .getAnnotation(Route.class)
-                .priority(), Comparator.reverseOrder()))
-            .findFirst()
-            .map(p -> {
-                Reflector.<Map<String, Integer>>invoke(p.l.pattern(), "namedGroups", Tool.array())
-                    .forEach((k, v) -> Tool.setValue(parameters, p.r.l.getOrDefault(k, k), p.l.group(v), ArrayList::new));
-                return p.r.r;
-            })
-            .orElse(null);
+        long routeStart = System.nanoTime();
+        final Tuple<Class<?>, Method> pair = route(request, normalizedPath, parameters);
+        Timing.add(Timing.Phase.ROUTE, routeStart);
         if (pair != null && Tool.of(pair.r.getAnnotation(Content.class))
             .map(Content::value)
             .map(i -> Tool.list(i)
@@ -368,10 +561,31 @@ public abstract class Application implements Attributes<Object> {
                     return;
                 }
 
+                /* rate limit */
+                if (!RateLimiter.check(method, request, session)) {
+                    return;
+                }
+
+                /* response cache */
+                final ResponseCache.Call cache = ResponseCache.call(method, request, session, parameters);
+                if (cache != null && cache.replay()) {
+                    return;
+                }
+
+                /* concurrency limit of route */
+                final Limiter.Permit permit = Limiter.route(request.route);
+                if (permit == null) {
+                    Tool.of(cache).ifPresent(ResponseCache.Call::release);
+                    Limiter.reject();
+                    return;
+                }
+
+                boolean[] isAsync = { false };
                 try (Lazy<Db> db = new Lazy<>(Db::connect)) {
                     try {
                         Log.config("[invoke method] " + method.getDeclaringClass()
                             .getName() + "." + method.getName());
+                        long bindStart = System.nanoTime();
                         Binder binder = new Binder(parameters).files(request.getFiles());
                         Object[] args = Stream.of(method.getParameters())
                             .map(p -> {
@@ -394,18 +608,21 @@ public abstract class Application implements Attributes<Object> {
                                 String name = p.getName();
                                 Valid valid = p.getAnnotation(Valid.class);
                                 if(valid != null) {
-                                	Validator.Manager.validateClass(valid.value(), p.getType(), name, binder.parameters, binder);
+                                	Validator.Manager.validateClass(valid.value(), p.getType(), name, binder.tree(binder.parameters), binder);
                                 	binder.validator(null);
                                 } else {
-                                	binder.validator((n, value) -> Stream.concat(globalValidators.stream(), //
-											Stream.of(p.getAnnotations())//
-													.map(a -> Validator.Manager.instance(a).orElse(null))//
-													.filter(Objects::nonNull))//
-											.forEach(v -> v.validate(Valid.All.class, n, value, binder)));
+                                	List<AbstractValidator<?>> validators = Validator.Manager.validators(p);
+                                	binder.validator((n, value) -> {
+                                		globalValidators.forEach(v -> v.validate(Valid.All.class, n, value, binder));
+                                		validators.forEach(v -> v.validate(Valid.All.class, n, value, binder));
+                                	});
                                 }
 								return binder.bind(name, type, Reflector.getGenericParameters(p));
 	                        }).toArray();
+                        Timing.add(Timing.Phase.BIND, bindStart);
+                        long actionStart = System.nanoTime();
                         Object response = method.invoke(Modifier.isStatic(method.getModifiers()) ? null : Reflector.instance(pair.l), args);
+                        Timing.add(Timing.Phase.ACTION, actionStart);
                         Consumer<Response> setContentType = r -> {
                             Content content = method.getAnnotation(Content.class);
                             String[] accept = request.getHeaders()
@@ -423,17 +640,47 @@ public abstract class Application implements Attributes<Object> {
                                     throw new RuntimeException("not accept mime type: " + Arrays.toString(accept));
                                 });
                         };
-                        if (response instanceof Response) {
-                            Tool.peek((Response) response, r -> {
-                                if (r.headers == null || !r.headers.containsKey("Content-Type")) {
+                        Consumer<Object> respond = value -> {
+                            if (value instanceof Response) {
+                                Tool.peek((Response) value, r -> {
+                                    if (r.headers == null || !r.headers.containsKey("Content-Type")) {
+                                        setContentType.accept(r);
+                                    }
+                                    r.cache = cache;
+                                })
+                                    .flush();
+                            } else {
+                                Tool.peek(Response.of(value), r -> {
                                     setContentType.accept(r);
+                                    r.cache = cache;
+                                })
+                                    .flush();
+                            }
+                        };
+                        if (response instanceof CompletionStage) {
+                            /* db is closed on completion */
+                            Lazy<Db> owner = new Lazy<>(null);
+                            db.ifGot(owner::set);
+                            db.instance = Optional.empty();
+                            isAsync[0] = true;
+                            if (cache != null) {
+                                /* waiting requests are released on completion */
+                                ((CompletionStage<?>) response).whenComplete((value, error) -> {
+                                    if (error != null) {
+                                        cache.release();
+                                    }
+                                });
+                            }
+                            respondAsync((CompletionStage<?>) response, method, owner, value -> {
+                                try {
+                                    respond.accept(value);
+                                } finally {
+                                    Tool.of(cache).ifPresent(ResponseCache.Call::release);
                                 }
-                            })
-                                .flush();
-                        } else {
-                            Tool.peek(Response.of(response), setContentType::accept)
-                                .flush();
+                            });
+                            return;
                         }
+                        respond.accept(response);
                         return;
                     } catch (InvocationTargetException e) {
                         db.ifGot(Db::rollback);
@@ -460,8 +707,14 @@ public abstract class Application implements Attributes<Object> {
                         Log.warning(t.toString());
                         return;
                     } else {
+                        permit.drop();
                         throw e;
                     }
+                } finally {
+                    permit.close();
+                    if (cache != null && !isAsync[0]) {
+                        cache.release();
+                    }
                 }
             } while (false);
         }
@@ -482,6 +735,35 @@ public abstract class Application implements Attributes<Object> {
         }
     }
 
+    /**
+     * find route
+     *
+     * @param request request(set route if matched)
+     * @param normalizedPath normalized path
+     * @param parameters parameters(add path parameters if matched)
+     * @return class and method(null if not matched)
+     */
+    static Tuple<Class<?>, Method> route(Request request, String normalizedPath, Map<String, List<String>> parameters) {
+        return routing.entrySet()
+            .stream()
+            .filter(e -> e.getKey().l.isEmpty() || e.getKey().l.contains(request.getMethod()))
+            .map(e -> Tuple.of(e.getKey().r.l.matcher(normalizedPath), e.getKey().r.r, e.getValue()))
+            .filter(p -> p.l.matches())
+            .sorted(Comparator.comparing(c -> c.getValue()
+                .getValue()
+                .getValue()
+                .getAnnotation(Route.class)
+                .priority(), Comparator.reverseOrder()))
+            .findFirst()
+            .map(p -> {
+                request.route = p.l.pattern().pattern();
+                Reflector.<Map<String, Integer>>invoke(p.l.pattern(), "namedGroups", Tool.array())
+                    .forEach((k, v) -> Tool.setValue(parameters, p.r.l.getOrDefault(k, k), p.l.group(v), ArrayList::new));
+                return p.r.r;
+            })
+            .orElse(null);
+    }
+
 	/**
 	 * @param annotation Annotation
 	 */
@@ -12,7 +12,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +54,60 @@ public class Binder implements ErrorAppender {
      */
     public final Errors errors = new Errors();
 
+    /**
+     * Parameter trees(by parameters identity)
+     */
+    final Map<Map<String, List<String>>, Tree> trees = new IdentityHashMap<>();
+
+    /**
+     * Parameters indexed by name prefix(built once, walked by name instead of scanning all parameters)
+     */
+    public static class Tree {
+
+        /**
+         * Parameters
+         */
+        public final Map<String, List<String>> parameters;
+
+        /**
+         * Name to parameters of the name, its indexed elements(name[...]) and children(name.xxx) in parameters order
+         */
+        final Map<String, List<Map.Entry<String, List<String>>>> entries = new HashMap<>();
+
+        /**
+         * Parameter count when built
+         */
+        final int size;
+
+        /**
+         * @param parameters Parameters
+         */
+        public Tree(Map<String, List<String>> parameters) {
+            this.parameters = parameters;
+            this.size = parameters.size();
+            for (Map.Entry<String, List<String>> e : parameters.entrySet()) {
+                String key = e.getKey();
+                for (int i = 0, end = key.length(); i < end; i++) {
+                    char c = key.charAt(i);
+                    if (c == '[' || c == '.') {
+                        entries.computeIfAbsent(key.substring(0, i), k -> new ArrayList<>())
+                            .add(e);
+                    }
+                }
+                entries.computeIfAbsent(key, k -> new ArrayList<>())
+                    .add(e);
+            }
+        }
+
+        /**
+         * @param name Name
+         * @return Parameters of the name, its indexed elements and children
+         */
+        public List<Map.Entry<String, List<String>>> entries(String name) {
+            return entries.getOrDefault(name, Collections.emptyList());
+        }
+    }
+
     /**
      * @param parameters parameters
      */
@@ -58,6 +115,19 @@ public class Binder implements ErrorAppender {
         this.parameters = parameters;
     }
 
+    /**
+     * @param parameters Parameters
+     * @return Tree(rebuild if parameters size changed)
+     */
+    public Tree tree(Map<String, List<String>> parameters) {
+        Tree tree = trees.get(parameters);
+        if (tree == null || tree.size != parameters.size()) {
+            tree = new Tree(parameters);
+            trees.put(parameters, tree);
+        }
+        return tree;
+    }
+
     /**
      * @param files Files
      * @return Self
@@ -217,16 +287,13 @@ public class Binder implements ErrorAppender {
         }
         // List<String> values = Tool.or(parameters.get(name), () -> parameters.get(name + "[]")).orElse(null);
         List<Object> sub = new ArrayList<>();
-        parameters.forEach((key, value) -> {
+        tree(parameters).entries(name).forEach(e -> {
+            String key = e.getKey();
+            List<String> value = e.getValue();
             int prefixLength = name.length();
             int start = key.indexOf('[', prefixLength);
             int dot = key.indexOf('.', prefixLength);
-            int min = start < 0 ? (dot < 0 ? key.length() : dot) : (dot < 0 ? start : Math.min(start, dot));
-            String realKey = key.substring(0, min);
-            if (!name.equals(realKey)) {
-                return;
-            }
-            if (key.equals(realKey)) {
+            if (key.length() == prefixLength) {
                 sub.addAll(value);
             }
             if (start >= 0 && (dot == -1 || start < dot)) {
@@ -370,7 +437,7 @@ public class Binder implements ErrorAppender {
                     .filter(c -> c.getParameterCount() == 0).findFirst()
                     .orElseGet(Try.s(Attributes.Impl.class::getConstructor)).newInstance());
             String prefix = name + ".";
-            return parameters.entrySet()
+            return tree(parameters).entries(name)
                 .stream()
                 .filter(e -> e.getKey()
                     .startsWith(prefix))
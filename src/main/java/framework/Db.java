@@ -14,6 +14,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -28,22 +29,31 @@ import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -360,6 +370,106 @@ public class Db implements AutoCloseable {
      */
     private String schema;
 
+    /**
+     * connection url(for cache key)
+     */
+    private String url;
+
+    /**
+     * tables written in current transaction(lower case)
+     */
+    final Set<String> writtenTables = new HashSet<>();
+
+    /**
+     * replica sets(key: suffix)
+     */
+    static final Map<String, Optional<Replicas>> replicaMap = new ConcurrentHashMap<>();
+
+    /**
+     * session key of last write millis(for read your writes)
+     */
+    static final String WRITTEN = "$written$";
+
+    /**
+     * Last write of current request(set by Application, for read your writes)
+     */
+    public static class LastWrite {
+
+        /**
+         * Loader of last write millis
+         */
+        final Supplier<Optional<Long>> load;
+
+        /**
+         * Saver of last write millis
+         */
+        final Consumer<Long> save;
+
+        /**
+         * Last write millis(null if not loaded)
+         */
+        Optional<Long> millis;
+
+        /**
+         * @param load Loader of last write millis(called at most once)
+         * @param save Saver of last write millis
+         */
+        public LastWrite(Supplier<Optional<Long>> load, Consumer<Long> save) {
+            this.load = load;
+            this.save = save;
+        }
+
+        /**
+         * @param now Current millis
+         * @return True if written within Sys.Db.read_your_writes_millis
+         */
+        synchronized boolean isRecent(long now) {
+            if (millis == null) {
+                millis = load.get();
+            }
+            return millis.filter(written -> now - written < Sys.Db.read_your_writes_millis)
+                .isPresent();
+        }
+
+        /**
+         * @param now Written millis
+         */
+        synchronized void written(long now) {
+            millis = Optional.of(now);
+            save.accept(now);
+        }
+    }
+
+    /**
+     * Last write of current request
+     */
+    public static final ThreadLocal<LastWrite> lastWrite = new ThreadLocal<>();
+
+    /**
+     * config suffix(null if direct connection)
+     */
+    String suffix;
+
+    /**
+     * True if reads are pinned to primary
+     */
+    boolean pinned;
+
+    /**
+     * database for read(opened at first read, self if no replica)
+     */
+    private Db reader;
+
+    /**
+     * replica set(only replica connection)
+     */
+    private Replicas replicas;
+
+    /**
+     * index in replica set
+     */
+    private int replicaIndex;
+
     /**
      * ResultSet to int
      */
@@ -423,7 +533,9 @@ public class Db implements AutoCloseable {
      * @return db
      */
     public static Db connect(String suffix) {
-        return Tool.val(getDataSource(suffix), trio -> new Db(Try.s(trio.l::getConnection).get(), trio.r.l, trio.r.r));
+        Db db = Tool.val(getDataSource(suffix), trio -> new Db(Try.s(trio.l::getConnection).get(), trio.r.l, trio.r.r));
+        db.suffix = suffix;
+        return db;
     }
 
     /**
@@ -571,6 +683,8 @@ public class Db implements AutoCloseable {
             builder = new SqlserverBuilder();
             break;
         case H2:
+            builder = new H2Builder();
+            break;
         case MYSQL:
             builder = new Builder();
             break;
@@ -586,14 +700,24 @@ public class Db implements AutoCloseable {
     public static synchronized Tuple3<DataSource, Type, String> getDataSource(String suffix) {
         return dataSourceMap.computeIfAbsent(suffix, Try.f(key -> {
             Properties p = Config.Injector.getSource(Sys.class, Session.currentLocale());
-            String url = p.getProperty("Sys.Db." + key);
-            Log.info("Database connect to " + url);
-            Type type = Type.fromUrl(url);
-            String schema = "";
-            switch(type) {
-            case ORACLE:
-            	schema = Tool.val(Tool.splitAt(url, ":", 3), i -> i.substring(0, i.indexOf('/'))).toUpperCase();
-            	break;
+            return createDataSource(p.getProperty("Sys.Db." + key), p.getProperty("Sys.Db.datasource_class." + key));
+        }));
+    }
+
+    /**
+     * @param url connection string
+     * @param className DataSource class name(default by type if empty)
+     * @return data source, database type, schema
+     * @throws Exception create error
+     */
+    static Tuple3<DataSource, Type, String> createDataSource(String url, String className) throws Exception {
+        Log.info("Database connect to " + url);
+        Type type = Type.fromUrl(url);
+        String schema = "";
+        switch(type) {
+        case ORACLE:
+        	schema = Tool.val(Tool.splitAt(url, ":", 3), i -> i.substring(0, i.indexOf('/'))).toUpperCase();
+        	break;
 			case H2:
 				break;
 			case MYSQL:
@@ -620,39 +744,182 @@ public class Db implements AutoCloseable {
 				}
 				break;
 			}
-            }
-            String name = Tool.string(p.getProperty("Sys.Db.datasource_class." + key))
-                .orElse(type.dataSource);
-            Class<DataSource> c = Reflector.<DataSource>clazz(name)
-                .orElseThrow(() -> new RuntimeException("class not found : " + name));
-            DataSource ds = Reflector.instance(c);
-            if (type == Type.H2) { /* hack: h2 Duplicate property "USER" */
-                List<String> list = new ArrayList<>();
-                for (String s : url.split("\\s*;\\s*")) {
-                    String[] a = s.split("\\s*=\\s*", 2);
-                    if ("user".equalsIgnoreCase(a[0])) {
-                        if (a.length > 1) {
-                            c.getMethod("setUser", String.class)
-                                .invoke(ds, a[1]);
-                        }
-                    } else {
-                        list.add(s);
+        }
+        String name = Tool.string(className)
+            .orElse(type.dataSource);
+        Class<DataSource> c = Reflector.<DataSource>clazz(name)
+            .orElseThrow(() -> new RuntimeException("class not found : " + name));
+        DataSource ds = Reflector.instance(c);
+        if (type == Type.H2) { /* hack: h2 Duplicate property "USER" */
+            List<String> list = new ArrayList<>();
+            for (String s : url.split("\\s*;\\s*")) {
+                String[] a = s.split("\\s*=\\s*", 2);
+                if ("user".equalsIgnoreCase(a[0])) {
+                    if (a.length > 1) {
+                        c.getMethod("setUser", String.class)
+                            .invoke(ds, a[1]);
                     }
+                } else {
+                    list.add(s);
                 }
-                url = String.join("; ", list);
             }
-            for (String method : Tool.array("setURL", "setUrl")) {
+            url = String.join("; ", list);
+        }
+        for (String method : Tool.array("setURL", "setUrl")) {
+            try {
+                c.getMethod(method, String.class)
+                    .invoke(ds, url);
+                break;
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+        }
+        Log.info("DataSource created #" + ds);
+        return Tuple.of(ds, type, schema);
+    }
+
+    /**
+     * replica selection
+     */
+    public static enum Selection {
+        /**
+         * in turn
+         */
+        ROUND_ROBIN,
+        /**
+         * fewest open connections
+         */
+        LEAST_LOADED,;
+    }
+
+    /**
+     * read replica set of a suffix
+     */
+    public static class Replicas {
+
+        /**
+         * data sources
+         */
+        final List<Tuple3<DataSource, Type, String>> sources;
+
+        /**
+         * open connections of each replica
+         */
+        final AtomicInteger[] actives;
+
+        /**
+         * round robin counter
+         */
+        final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * @param sources data sources
+         */
+        Replicas(List<Tuple3<DataSource, Type, String>> sources) {
+            this.sources = sources;
+            actives = sources.stream()
+                .map(i -> new AtomicInteger())
+                .toArray(AtomicInteger[]::new);
+        }
+
+        /**
+         * @param selection selection
+         * @return replica index
+         */
+        int select(Selection selection) {
+            int start = Math.floorMod(next.getAndIncrement(), actives.length);
+            if (selection != Selection.LEAST_LOADED) {
+                return start;
+            }
+            int index = start;
+            for (int i = 1; i < actives.length; i++) {
+                int j = (start + i) % actives.length;
+                if (actives[j].get() < actives[index].get()) {
+                    index = j;
+                }
+            }
+            return index;
+        }
+
+        /**
+         * @return replica connection(empty if all replicas failed)
+         */
+        Optional<Db> connect() {
+            int start = select(Sys.Db.replica_selection);
+            for (int i = 0; i < actives.length; i++) {
+                int index = (start + i) % actives.length;
+                Tuple3<DataSource, Type, String> trio = sources.get(index);
                 try {
-                    c.getMethod(method, String.class)
-                        .invoke(ds, url);
-                    break;
-                } catch (NoSuchMethodException e) {
-                    continue;
+                    Connection connection = trio.l.getConnection();
+                    Try.r(() -> connection.setReadOnly(true), e -> Log.config("setReadOnly failed: " + e))
+                        .run();
+                    Db db = new Db(connection, trio.r.l, trio.r.r);
+                    db.replicas = this;
+                    db.replicaIndex = index;
+                    actives[index].incrementAndGet();
+                    return Optional.of(db);
+                } catch (SQLException e) {
+                    Log.warning(e, () -> "replica connect error #" + index);
                 }
             }
-            Log.info("DataSource created #" + ds);
-            return Tuple.of(ds, type, schema);
-        }));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param suffix config suffix
+     * @return replica set(empty if not configured)
+     */
+    static Optional<Replicas> replicas(String suffix) {
+        return replicaMap.computeIfAbsent(suffix, key -> {
+            Properties p = Config.Injector.getSource(Sys.class, Session.currentLocale());
+            List<Tuple3<DataSource, Type, String>> sources = Tool.string(p.getProperty("Sys.Db.replicas." + key))
+                .map(urls -> Stream.of(urls.split("\\s*,\\s*"))
+                    .filter(url -> !url.isEmpty())
+                    .map(Try.f(url -> createDataSource(url, p.getProperty("Sys.Db.datasource_class." + key))))
+                    .collect(Collectors.toList()))
+                .orElseGet(Collections::emptyList);
+            return sources.isEmpty() ? Optional.empty() : Optional.of(new Replicas(sources));
+        });
+    }
+
+    /**
+     * database for read: replica if configured, nothing written in this transaction and out of
+     * Sys.Db.read_your_writes_millis after a write in the same session, else self
+     *
+     * @return database for read
+     */
+    public Db reader() {
+        if (suffix == null || pinned || !writtenTables.isEmpty()) {
+            /* read your writes in this transaction */
+            return this;
+        }
+        if (reader != null) {
+            return reader;
+        }
+        Optional<Replicas> set = replicas(suffix);
+        if (!set.isPresent()) {
+            reader = this;
+            return this;
+        }
+        LastWrite last = lastWrite.get();
+        if (last != null && last.isRecent(System.currentTimeMillis())) {
+            return this;
+        }
+        reader = set.get()
+            .connect()
+            .orElse(this);
+        return reader;
+    }
+
+    /**
+     * pin reads to primary(e.g. session store: no replica lag and no read your writes lookup)
+     *
+     * @return self
+     */
+    public Db primary() {
+        pinned = true;
+        return this;
     }
 
     /**
@@ -691,6 +958,18 @@ public class Db implements AutoCloseable {
         return type;
     }
 
+    /**
+     * @return connection url
+     */
+    public String url() {
+        if (url == null) {
+            url = Try.s(() -> connection.getMetaData()
+                .getURL(), e -> "#" + connection.hashCode())
+                .get();
+        }
+        return url;
+    }
+
     /**
      * @return database type
      */
@@ -735,6 +1014,10 @@ public class Db implements AutoCloseable {
     @Override
     public void close() {
         try {
+            if (reader != null && reader != this) {
+                reader.close();
+                reader = null;
+            }
             if (resources != null) {
                 resources.forEach(ResultSetSpliterator::close);
             }
@@ -742,7 +1025,17 @@ public class Db implements AutoCloseable {
                 connection.rollback();
             } else {
                 connection.commit();
+                if (suffix != null && !writtenTables.isEmpty() && replicas(suffix).isPresent()) {
+                    /* read from primary until replicas catch up */
+                    Tool.of(lastWrite.get())
+                        .ifPresent(last -> last.written(System.currentTimeMillis()));
+                }
+            }
+            if (replicas != null) {
+                replicas.actives[replicaIndex].decrementAndGet();
+                replicas = null;
             }
+            QueryCache.release(this);
             connection.close();
             Log.config("Connection dropped #" + connection.hashCode() + " " + (isRollback ? "rollback" : "commit"));
             connection = null;
@@ -773,17 +1066,8 @@ public class Db implements AutoCloseable {
      * @param values values({0}, {1}...)
      * @return ResultSet stream
      */
-    @SuppressFBWarnings("OBL_UNSATISFIED_OBLIGATION")
     public Stream<ResultSet> query(String sql, Map<String, Object> map, Object... values) {
-        sql = sql(sql, map, values);
-        Log.info(sql + ";");
-        try {
-            return stream(connection.prepareStatement(sql));
-        } catch (SQLException e) {
-            Try.r(connection::rollback)
-                .run();
-            throw new UncheckedSQLException(e);
-        }
+        return stream(sql(sql, map, values));
     }
 
     /**
@@ -823,11 +1107,17 @@ public class Db implements AutoCloseable {
       */
     public int executeOne(String sql) {
         Integer hash = null;
+        long prepared = System.nanoTime();
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             hash = ps.hashCode();
             Log.config("PreparedStatement created #" + hash);
             Log.info(sql + ";");
-            return ps.executeUpdate();
+            long start = System.nanoTime();
+            int rows = ps.executeUpdate();
+            long end = System.nanoTime();
+            SqlTrace.record(this, sql, start - prepared, end - start, 0, rows);
+            QueryCache.written(this, sql);
+            return rows;
         } catch (SQLException e) {
             Try.r(connection::rollback)
                 .run();
@@ -837,6 +1127,38 @@ public class Db implements AutoCloseable {
         }
     }
 
+    /**
+     * execute in a batch(1 round trip)
+     *
+     * @param sqls SQL list
+     * @return affected rows of each SQL
+     */
+    public int[] executeBatch(List<String> sqls) {
+        if (sqls.isEmpty()) {
+            return new int[0];
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : sqls) {
+                Log.info(sql + ";");
+                statement.addBatch(sql);
+            }
+            long start = System.nanoTime();
+            int[] rows = statement.executeBatch();
+            long nanos = System.nanoTime() - start;
+            SqlTrace.round(nanos);
+            long each = nanos / sqls.size();
+            for (int i = 0; i < sqls.size(); i++) {
+                SqlTrace.aggregate(this, sqls.get(i), null, 0, each, 0, i < rows.length ? Math.max(rows[i], 0) : 0);
+            }
+            sqls.forEach(sql -> QueryCache.written(this, sql));
+            return rows;
+        } catch (SQLException e) {
+            Try.r(connection::rollback)
+                .run();
+            throw new UncheckedSQLException(e);
+        }
+    }
+
     /**
      * execute from file(multi sql support)
      *
@@ -896,25 +1218,117 @@ public class Db implements AutoCloseable {
      */
     public boolean save(Consumer<Map<String, Object>> update, Consumer<Map<String, Object>> insert, String table, String[] names, int primary,
             Object... values) {
-        Query q = from(table);
-        boolean empty = false;
+        if (hasNullKey(primary, values)) {
+            insert(insert, table, names, primary, values);
+            return true;
+        }
+        return upsert(table, primary, row(names, values, 0, insert), row(names, values, primary, update));
+    }
+
+    /**
+     * @param primary primary key columns
+     * @param values values(arrange primary key in left)
+     * @return True if any primary key is null(insert with generated id)
+     */
+    static boolean hasNullKey(int primary, Object[] values) {
         for (int i = 0; i < primary; i++) {
             if (values[i] == null) {
-                empty = true;
-                break;
+                return true;
             }
-            q.where(names[i], values[i]);
         }
-        if (!empty) {
-            empty = !q.forUpdate()
-                .exists();
+        return false;
+    }
+
+    /**
+     * @param names row names
+     * @param values values
+     * @param start start index
+     * @param prepare Prepare(add columns, nullable)
+     * @return name: value
+     */
+    static Map<String, Object> row(String[] names, Object[] values, int start, Consumer<Map<String, Object>> prepare) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = start; i < names.length; i++) {
+            row.put(names[i], values[i]);
         }
-        if (empty) {
-            insert(insert, table, names, primary, values);
-        } else {
-            update(update, table, names, primary, values);
+        if (prepare != null) {
+            prepare.accept(row);
         }
-        return empty;
+        return row;
+    }
+
+    /**
+     * update if exists row, else insert(native upsert, no row lock)
+     *
+     * @param table table name
+     * @param primary primary key columns
+     * @param insert insert row(arrange primary key in left)
+     * @param update update row(not include primary key)
+     * @return true: inserted、 false: updated
+     */
+    boolean upsert(String table, int primary, Map<String, Object> insert, Map<String, Object> update) {
+        String sql = upsertSql(table, primary, insert, update);
+        Optional<String> returning = builder.upsertReturning(sql);
+        if (returning.isPresent()) {
+            boolean[] inserted = { false };
+            preparedQuery(returning.get(), null, rs -> inserted[0] = rs.getBoolean(1));
+            QueryCache.written(this, sql);
+            return inserted[0];
+        }
+        /* update first(1 round trip if exists), then insert only if absent for race with other insert */
+        if (updateIfExists(table, primary, insert, update)) {
+            return false;
+        }
+        /* affected rows of upsert can not tell insert from update(found rows of MySQL, MERGE of H2) */
+        if (executeOne(builder.insertIfAbsent(table, new ArrayList<>(insert.keySet()), primary, insert.values()
+            .stream()
+            .map(builder::escape)
+            .collect(Collectors.toList()))) == 1) {
+            return true;
+        }
+        /* inserted by other transaction */
+        updateIfExists(table, primary, insert, update);
+        return false;
+    }
+
+    /**
+     * @param table table name
+     * @param primary primary key columns
+     * @param insert insert row(arrange primary key in left)
+     * @param update update row(not include primary key)
+     * @return True if exists(updated if update is not empty)
+     */
+    boolean updateIfExists(String table, int primary, Map<String, Object> insert, Map<String, Object> update) {
+        List<String> names = new ArrayList<>(insert.keySet()).subList(0, primary);
+        List<Object> keys = new ArrayList<>(insert.values()).subList(0, primary);
+        if (update.isEmpty()) {
+            Query q = from(table);
+            for (int i = 0; i < primary; i++) {
+                q.where(names.get(i), keys.get(i));
+            }
+            return q.exists();
+        }
+        List<String> updateNames = new ArrayList<>(names);
+        List<Object> updateValues = new ArrayList<>(keys);
+        updateNames.addAll(update.keySet());
+        updateValues.addAll(update.values());
+        return update(null, table, updateNames.toArray(new String[updateNames.size()]), primary, updateValues.toArray()) > 0;
+    }
+
+    /**
+     * @param table table name
+     * @param primary primary key columns
+     * @param insert insert row(arrange primary key in left)
+     * @param update update row(not include primary key)
+     * @return upsert SQL
+     */
+    String upsertSql(String table, int primary, Map<String, Object> insert, Map<String, Object> update) {
+        Map<String, String> updates = new LinkedHashMap<>();
+        update.forEach((name, value) -> updates.put(name, insert.containsKey(name) && Objects.equals(insert.get(name), value) ? null : builder.escape(value)));
+        return builder.upsert(table, new ArrayList<>(insert.keySet()), primary, insert.values()
+            .stream()
+            .map(builder::escape)
+            .collect(Collectors.toList()), updates);
     }
 
     /**
@@ -969,30 +1383,12 @@ public class Db implements AutoCloseable {
      * @return true: inserted、 false: updated
      */
     public boolean save(String table, TriConsumer<List<String>, List<Object>, Boolean> prepare, String[] names, int primary, Object... values) {
-        Query q = from(table);
-        boolean empty = false;
-        for (int i = 0; i < primary; i++) {
-            if (values[i] == null) {
-                empty = true;
-                break;
-            }
-            q.where(names[i], values[i]);
-        }
-        if (!empty) {
-            empty = !q.forUpdate()
-                .exists();
-        }
-        if(prepare != null) {
-        	Tuple<String[], Object[]> pair = prepare(prepare, names, values, empty);
-        	names = pair.l;
-        	values = pair.r;
-        }
-        if (empty) {
-            insert(table, names, primary, values);
-        } else {
-            update(table, names, primary, values);
+        if (hasNullKey(primary, values)) {
+            return insert(table, prepare, names, primary, values) >= 0;
         }
-        return empty;
+        Tuple<String[], Object[]> insert = prepare == null ? Tuple.of(names, values) : prepare(prepare, names, values, true);
+        Tuple<String[], Object[]> update = prepare == null ? insert : prepare(prepare, names, values, false);
+        return upsert(table, primary, row(insert.l, insert.r, 0, null), row(update.l, update.r, primary, null));
     }
     
     /**
@@ -1260,6 +1656,18 @@ public class Db implements AutoCloseable {
                 valueList.add(value);
             });
         }
+        return executeOne(insertSql(table, names, primary, nameList, valueList));
+    }
+
+    /**
+     * @param table table name
+     * @param names row names(arrange primary key in left)
+     * @param primary primary key columns
+     * @param nameList insert names
+     * @param valueList insert values
+     * @return insert SQL
+     */
+    String insertSql(String table, String[] names, int primary, List<String> nameList, List<Object> valueList) {
         StringBuilder sql = new StringBuilder("INSERT INTO ");
         sql.append(table)
             .append(join("(", nameList, ", "));
@@ -1274,7 +1682,7 @@ public class Db implements AutoCloseable {
             }
             first = false;
         }
-        return executeOne(sql.append(")").toString());
+        return sql.append(")").toString();
     }
 
     /**
@@ -1307,13 +1715,7 @@ public class Db implements AutoCloseable {
      * @return ResultSet stream
      */
     public Stream<ResultSet> stream(ResultSet rs) {
-        ResultSetSpliterator i = new ResultSetSpliterator(rs);
-        if (resources == null) {
-            resources = new ArrayList<>();
-        }
-        resources.add(i);
-        return StreamSupport.stream(i, false)
-            .onClose(i::close);
+        return stream(new ResultSetSpliterator(rs));
     }
 
     /**
@@ -1321,7 +1723,14 @@ public class Db implements AutoCloseable {
      * @return ResultSet stream
      */
     public Stream<ResultSet> stream(PreparedStatement ps) {
-        ResultSetSpliterator i = new ResultSetSpliterator(ps);
+        return stream(new ResultSetSpliterator(ps));
+    }
+
+    /**
+     * @param i ResultSetSpliterator(close with database)
+     * @return ResultSet stream
+     */
+    Stream<ResultSet> stream(ResultSetSpliterator i) {
         if (resources == null) {
             resources = new ArrayList<>();
         }
@@ -1337,13 +1746,9 @@ public class Db implements AutoCloseable {
     public Stream<ResultSet> stream(String sql) {
         try {
             Log.info(sql + ";");
-            ResultSetSpliterator i = new ResultSetSpliterator(connection.prepareStatement(sql));
-            if (resources == null) {
-                resources = new ArrayList<>();
-            }
-            resources.add(i);
-            return StreamSupport.stream(i, false)
-                .onClose(i::close);
+            long start = System.nanoTime();
+            PreparedStatement ps = connection.prepareStatement(sql);
+            return stream(new ResultSetSpliterator(ps).trace(this, sql, System.nanoTime() - start));
         } catch (SQLException e) {
             Try.r(connection::rollback)
                 .run();
@@ -1575,7 +1980,7 @@ public class Db implements AutoCloseable {
         String dataPrefix = "data.";
         String suffix = ".sql";
         List<String> all;
-        try (Stream<String> files = Tool.getResources(folder)) {
+        try (Stream<String> files = Index.resources(folder)) {
             all = files.filter(file -> file.endsWith(suffix) && (file.startsWith(tablePrefix) || file.startsWith(dataPrefix)))
                 .peek(Log::info)
                 .collect(Collectors.toList());
@@ -1601,7 +2006,7 @@ public class Db implements AutoCloseable {
 
             List<Tuple<String, Class<?>>> models = new ArrayList<>();
             List<Tuple<String, Persist>> modelDatas = new ArrayList<>();
-            try (Stream<Class<?>> classes = Tool.getClasses(Account.class.getPackage()
+            try (Stream<Class<?>> classes = Index.classes(Persist.class, Account.class.getPackage()
                 .getName())) {
                 classes.map(c -> Tuple.of(c, c.getAnnotation(Persist.class)))
                     .filter(t -> t.r != null)
@@ -1839,6 +2244,134 @@ public class Db implements AutoCloseable {
             return "VARCHAR(" + (column.length > 0 ? column.length : 255) + ")";
         }
 
+        /**
+         * build upsert(update if primary key exists, else insert)
+         *
+         * @param table Table name
+         * @param names Insert column names(arrange primary key in left)
+         * @param primary Primary key columns
+         * @param values Insert values(escaped or placeholder)
+         * @param updates Update column name: value(escaped, or null if same as insert value)
+         * @return SQL
+         */
+        public String upsert(String table, List<String> names, int primary, List<String> values, Map<String, String> updates) {
+            StringBuilder sql = new StringBuilder("INSERT INTO ");
+            sql.append(table)
+                .append(join("(", names, ", "))
+                .append(join(") VALUES(", values, ", "))
+                .append(") ON DUPLICATE KEY UPDATE ");
+            if (updates.isEmpty()) {
+                sql.append(names.get(0))
+                    .append(" = ")
+                    .append(names.get(0));
+            }
+            set(sql, updates, name -> "VALUES(" + name + ")");
+            return sql.toString();
+        }
+
+        /**
+         * build insert only if primary key not exists(affected rows: 1 if inserted, 0 if exists, MySQL: INSERT IGNORE)
+         *
+         * @param table Table name
+         * @param names Insert column names(arrange primary key in left)
+         * @param primary Primary key columns
+         * @param values Insert values(escaped or placeholder)
+         * @return SQL
+         */
+        public String insertIfAbsent(String table, List<String> names, int primary, List<String> values) {
+            return new StringBuilder("INSERT IGNORE INTO ").append(table)
+                .append(join("(", names, ", "))
+                .append(join(") VALUES(", values, ", "))
+                .append(")")
+                .toString();
+        }
+
+        /**
+         * @param upsert SQL by {@link #upsert(String, List, int, List, Map)}
+         * @return SQL that returns a row with inserted flag(empty if not supported)
+         */
+        public Optional<String> upsertReturning(String upsert) {
+            return Optional.empty();
+        }
+
+        /**
+         * @param sql Select SQL
+         * @return SQL list to show execution plan(result sets are the plan)
+         */
+        public List<String> explain(String sql) {
+            return Tool.list("EXPLAIN " + sql);
+        }
+
+        /**
+         * @return SQL list to restore the session after {@link #explain(String)}(always executed)
+         */
+        public List<String> explainReset() {
+            return Collections.emptyList();
+        }
+
+        /**
+         * @param sql SQL
+         * @param updates Update column name: value(null if same as insert value)
+         * @param source Insert value of column
+         * @return SQL
+         */
+        static StringBuilder set(StringBuilder sql, Map<String, String> updates, Function<String, String> source) {
+            String pad = "";
+            for (Map.Entry<String, String> update : updates.entrySet()) {
+                sql.append(pad)
+                    .append(update.getKey())
+                    .append(" = ")
+                    .append(update.getValue() == null ? source.apply(update.getKey()) : update.getValue());
+                pad = ", ";
+            }
+            return sql;
+        }
+
+        /**
+         * build MERGE statement
+         *
+         * @param table Table name
+         * @param hint Table hint
+         * @param names Insert column names(arrange primary key in left)
+         * @param primary Primary key columns
+         * @param values Insert values(escaped or placeholder)
+         * @param updates Update column name: value(escaped, or null if same as insert value)
+         * @param from FROM clause of single row SELECT
+         * @return SQL
+         */
+        static String merge(String table, String hint, List<String> names, int primary, List<String> values, Map<String, String> updates, String from) {
+            StringBuilder sql = new StringBuilder("MERGE INTO ");
+            sql.append(table)
+                .append(hint)
+                .append(" D__ USING (SELECT ");
+            for (int i = 0; i < names.size(); i++) {
+                sql.append(i == 0 ? "" : ", ")
+                    .append(values.get(i))
+                    .append(" AS ")
+                    .append(names.get(i));
+            }
+            sql.append(from)
+                .append(") S__ ON (");
+            for (int i = 0; i < primary; i++) {
+                sql.append(i == 0 ? "" : " AND ")
+                    .append("D__.")
+                    .append(names.get(i))
+                    .append(" = S__.")
+                    .append(names.get(i));
+            }
+            sql.append(")");
+            if (!updates.isEmpty()) {
+                set(sql.append(" WHEN MATCHED THEN UPDATE SET "), updates, name -> "S__." + name);
+            }
+            return sql.append(" WHEN NOT MATCHED THEN INSERT")
+                .append(join(" (", names, ", "))
+                .append(join(") VALUES (", names.stream()
+                    .map(name -> "S__." + name)
+                    .collect(Collectors.toList()), ", "))
+                .append(")")
+                .toString();
+        }
+
         /**
          * replace common SQL to native sql
          *
@@ -1852,6 +2385,32 @@ public class Db implements AutoCloseable {
         }
     }
 
+    /**
+     * sql builder for H2
+     */
+    public static class H2Builder extends Builder {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#upsert(java.lang.String, java.util.List, int, java.util.List, java.util.Map)
+         */
+        @Override
+        public String upsert(String table, List<String> names, int primary, List<String> values, Map<String, String> updates) {
+            return merge(table, "", names, primary, values, updates, "");
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#insertIfAbsent(java.lang.String, java.util.List, int, java.util.List)
+         */
+        @Override
+        public String insertIfAbsent(String table, List<String> names, int primary, List<String> values) {
+            return upsert(table, names, primary, values, Collections.emptyMap());
+        }
+    }
+
     /**
      * sql builder for PostgreSQL
      */
@@ -1903,6 +2462,46 @@ public class Db implements AutoCloseable {
             }
             return function + "(" + join("", Tool.list(args), ", ") + ")";
         }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#upsert(java.lang.String, java.util.List, int, java.util.List, java.util.Map)
+         */
+        @Override
+        public String upsert(String table, List<String> names, int primary, List<String> values, Map<String, String> updates) {
+            StringBuilder sql = new StringBuilder("INSERT INTO ");
+            sql.append(table)
+                .append(join("(", names, ", "))
+                .append(join(") VALUES(", values, ", "))
+                .append(join(") ON CONFLICT (", names.subList(0, primary), ", "))
+                .append(")");
+            if (updates.isEmpty()) {
+                return sql.append(" DO NOTHING")
+                    .toString();
+            }
+            return set(sql.append(" DO UPDATE SET "), updates, name -> "EXCLUDED." + name).toString();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#insertIfAbsent(java.lang.String, java.util.List, int, java.util.List)
+         */
+        @Override
+        public String insertIfAbsent(String table, List<String> names, int primary, List<String> values) {
+            return upsert(table, names, primary, values, Collections.emptyMap());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#upsertReturning(java.lang.String)
+         */
+        @Override
+        public Optional<String> upsertReturning(String upsert) {
+            return Optional.of(upsert + " RETURNING (xmax = 0)");
+        }
     }
 
     /**
@@ -2012,6 +2611,56 @@ public class Db implements AutoCloseable {
         	}
         	return super.fn(function, args);
         }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#upsert(java.lang.String, java.util.List, int, java.util.List, java.util.Map)
+         */
+        @Override
+        public String upsert(String table, List<String> names, int primary, List<String> values, Map<String, String> updates) {
+            return merge(table, " WITH (HOLDLOCK)", names, primary, values, updates, "") + ";";
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#insertIfAbsent(java.lang.String, java.util.List, int, java.util.List)
+         */
+        @Override
+        public String insertIfAbsent(String table, List<String> names, int primary, List<String> values) {
+            return upsert(table, names, primary, values, Collections.emptyMap());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#explain(java.lang.String)
+         */
+        @Override
+        public List<String> explain(String sql) {
+            return Tool.list("SET SHOWPLAN_TEXT ON", sql);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#explainReset()
+         */
+        @Override
+        public List<String> explainReset() {
+            return Tool.list("SET SHOWPLAN_TEXT OFF");
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#upsertReturning(java.lang.String)
+         */
+        @Override
+        public Optional<String> upsertReturning(String upsert) {
+            return Optional.of(upsert.substring(0, upsert.length() - 1) + " OUTPUT CASE WHEN $action = 'INSERT' THEN 1 ELSE 0 END;");
+        }
     }
 
     /**
@@ -2026,6 +2675,36 @@ public class Db implements AutoCloseable {
             supportNullString = false;
         }
 
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#upsert(java.lang.String, java.util.List, int, java.util.List, java.util.Map)
+         */
+        @Override
+        public String upsert(String table, List<String> names, int primary, List<String> values, Map<String, String> updates) {
+            return merge(table, "", names, primary, values, updates, " FROM DUAL");
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#insertIfAbsent(java.lang.String, java.util.List, int, java.util.List)
+         */
+        @Override
+        public String insertIfAbsent(String table, List<String> names, int primary, List<String> values) {
+            return upsert(table, names, primary, values, Collections.emptyMap());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.Db.Builder#explain(java.lang.String)
+         */
+        @Override
+        public List<String> explain(String sql) {
+            return Tool.list("EXPLAIN PLAN FOR " + sql, "SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY())");
+        }
+
         /*
          * (non-Javadoc)
          * 
@@ -2261,6 +2940,36 @@ public class Db implements AutoCloseable {
          */
         ResultSet rs;
 
+        /**
+         * database of trace(null if not traced)
+         */
+        Db db;
+
+        /**
+         * SQL of trace(null if not traced or recorded)
+         */
+        String sql;
+
+        /**
+         * prepare nano seconds
+         */
+        long prepareNanos;
+
+        /**
+         * execute nano seconds(-1 if not executed)
+         */
+        long executeNanos = -1;
+
+        /**
+         * fetch nano seconds
+         */
+        long fetchNanos;
+
+        /**
+         * fetched rows
+         */
+        long rows;
+
         /**
          * constructor
          *
@@ -2281,6 +2990,21 @@ public class Db implements AutoCloseable {
             Log.config("PreparedStatement created #" + ps.hashCode());
         }
 
+        /**
+         * trace execution(recorded at close)
+         *
+         * @param db database
+         * @param sql SQL
+         * @param prepareNanos prepare nano seconds
+         * @return self
+         */
+        ResultSetSpliterator trace(Db db, String sql, long prepareNanos) {
+            this.db = db;
+            this.sql = sql;
+            this.prepareNanos = prepareNanos;
+            return this;
+        }
+
         /*
          * (non-Javadoc)
          * 
@@ -2288,6 +3012,11 @@ public class Db implements AutoCloseable {
          */
         @Override
         public void close() {
+            if (sql != null && executeNanos >= 0) {
+                String traced = sql;
+                sql = null;
+                SqlTrace.record(db, traced, prepareNanos, executeNanos, fetchNanos, rows);
+            }
             try {
                 if (rs != null) {
                     rs.close();
@@ -2315,12 +3044,25 @@ public class Db implements AutoCloseable {
          */
         @Override
         public boolean tryAdvance(Consumer<? super ResultSet> action) {
+            if (ps == null) {
+                /* already closed */
+                return false;
+            }
             try {
                 if (rs == null) {
+                    long start = System.nanoTime();
                     rs = ps.executeQuery();
+                    executeNanos = System.nanoTime() - start;
+                    if (sql == null) {
+                        Metrics.db.record(executeNanos);
+                    }
                     Log.config("ResultSet created #" + rs.hashCode());
                 }
-                if (rs.next()) {
+                long start = System.nanoTime();
+                boolean next = rs.next();
+                fetchNanos += System.nanoTime() - start;
+                if (next) {
+                    rows++;
                     if (action != null) {
                         action.accept(rs);
                     }
@@ -2416,6 +3158,10 @@ public class Db implements AutoCloseable {
          * row lock
          */
         boolean forUpdate = false;
+        /**
+         * cache time to live milliseconds(not cache if 0)
+         */
+        long cacheMillis = 0;
 
         /**
          * constructor
@@ -2545,6 +3291,26 @@ public class Db implements AutoCloseable {
             return this;
         }
 
+        /**
+         * cache result(time to live is Sys.Db.cache_ttl_millis)
+         *
+         * @return Self
+         */
+        public Query cache() {
+            return cache(Sys.Db.cache_ttl_millis);
+        }
+
+        /**
+         * cache result until time to live elapsed or table modified
+         *
+         * @param ttlMillis Time to live milliseconds(not cache if 0)
+         * @return Self
+         */
+        public Query cache(long ttlMillis) {
+            cacheMillis = ttlMillis;
+            return this;
+        }
+
         /**
          * condition
          *
@@ -2854,7 +3620,19 @@ public class Db implements AutoCloseable {
          * @return stream
          */
         public Stream<ResultSet> stream() {
-            return db.stream(sql());
+            return stream(sql());
+        }
+
+        /**
+         * @param sql SQL
+         * @return stream(cached if enabled, from replica if not locked)
+         */
+        Stream<ResultSet> stream(String sql) {
+            if (forUpdate) {
+                return db.stream(sql);
+            }
+            Db reader = db.reader();
+            return cacheMillis > 0 ? QueryCache.stream(reader, sql, cacheMillis) : reader.stream(sql);
         }
 
         /**
@@ -2875,7 +3653,7 @@ public class Db implements AutoCloseable {
          * @return row count
          */
         public long count() {
-            try (Stream<ResultSet> stream = db.stream(db.builder.countSql(sql()))) {
+            try (Stream<ResultSet> stream = stream(db.builder.countSql(sql()))) {
                 return stream.findFirst()
                     .map(Try.f(rs -> rs.getLong(1)))
                     .orElse(0L);
@@ -2933,8 +3711,13 @@ public class Db implements AutoCloseable {
         public void delete() {
             String sql = db.builder.deleteSql(this);
             Log.info(sql + ";");
+            long prepared = System.nanoTime();
             try (PreparedStatement ps = db.connection.prepareStatement(sql)) {
+                long start = System.nanoTime();
                 ps.execute();
+                long end = System.nanoTime();
+                SqlTrace.record(db, sql, start - prepared, end - start, 0, Math.max(ps.getUpdateCount(), 0));
+                QueryCache.written(db, sql);
             } catch (SQLException e) {
                 Try.r(db.connection::rollback)
                     .run();
@@ -2979,12 +3762,17 @@ public class Db implements AutoCloseable {
      * @param prepare prepare parameters
      */
     public void prepare(String sql, TryFunction<PreparedStatement, Object[]> prepare) {
+        long prepared = System.nanoTime();
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            long start = System.nanoTime();
             Object[] values = Try.f(prepare)
                 .apply(ps);
+            long end = System.nanoTime();
             if (values != null) {
                 Log.info(() -> preparedSQL(sql, values));
             }
+            SqlTrace.record(this, sql, values == null ? null : () -> preparedSQL(sql, values), start - prepared, end - start, 0, 0);
+            QueryCache.written(this, sql);
         } catch (SQLException e) {
             Try.r(connection::rollback)
                 .run();
@@ -3002,6 +3790,7 @@ public class Db implements AutoCloseable {
      */
     public long preparedQuery(String sql, TryFunction<PreparedStatement, Object[]> prepare, TryConsumer<ResultSet> fetch) {
         long count = 0;
+        long prepared = System.nanoTime();
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             Object[] values = prepare == null ? Tool.array()
                     : Try.f(prepare)
@@ -3009,12 +3798,22 @@ public class Db implements AutoCloseable {
             if (values != null) {
                 Log.info(() -> preparedSQL(sql, values));
             }
+            long start = System.nanoTime();
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
+                long executed = System.nanoTime();
+                long fetched = 0;
+                for (;;) {
+                    long next = System.nanoTime();
+                    boolean exists = rs.next();
+                    fetched += System.nanoTime() - next;
+                    if (!exists) {
+                        break;
+                    }
                     count++;
                     Try.c(fetch)
                         .accept(rs);
                 }
+                SqlTrace.record(this, sql, values == null ? null : () -> preparedSQL(sql, values), start - prepared, executed - start, fetched, count);
             }
         } catch (SQLException e) {
             Try.r(connection::rollback)
@@ -3030,8 +3829,9 @@ public class Db implements AutoCloseable {
      * @return stream of target class instance
      */
     public <T> Stream<T> findAll(Class<T> clazz) {
-        return from(clazz).stream()
-            .map(Try.f(toObject(clazz)));
+        return eager(from(clazz).stream()
+            .map(Try.f(toObject(clazz))), Reflector.mappingFields(clazz)
+                .values());
     }
 
     /**
@@ -3066,20 +3866,225 @@ public class Db implements AutoCloseable {
             .collect(Collectors.toList());
         if (Reflector.constructor(clazz)
             .isPresent()) {
-            return select(targetColumns).from(clazz)
+            return eager(select(targetColumns).from(clazz)
                 .stream()
                 .map(rs -> instanceFields.stream()
                     .collect(() -> Reflector.instance(clazz), Try.biC((o, f) -> f.set(o, resultSetToObject(f, rs, Reflector.mappingFieldName(f)))), (a, b) -> {
-                    }));
+                    })), instanceFields);
         } else {
-            return select(targetColumns).from(clazz)
+            return eager(select(targetColumns).from(clazz)
                 .stream()
                 .map(rs -> {
                 	AbstractBuilder<T, ?, ?> builder = Factory.Constructor.instance(clazz);
                 	instanceFields.forEach(Try.c(field -> builder.accept(field.getType(), field.getName(), resultSetToObject(field, rs, Reflector.mappingFieldName(field)))));
                     return builder.get();
+                }), instanceFields);
+        }
+    }
+
+    /**
+     * Key column alias prefix of relation table
+     */
+    static final String JOIN_KEY = "J__";
+
+    /**
+     * load {@link Join} fields by window of Sys.Db.join_batch_size parents(1 query per window and field, not nested)
+     *
+     * @param <T> Model type
+     * @param parents Parent stream
+     * @param fields Target fields
+     * @return Parent stream
+     */
+    <T> Stream<T> eager(Stream<T> parents, Collection<Field> fields) {
+        List<Field> joins = fields.stream()
+            .filter(Reflector.hasAnnotation(Join.class))
+            .filter(f -> !Modifier.isStatic(f.getModifiers()))
+            .collect(Collectors.toList());
+        if (joins.isEmpty()) {
+            return parents;
+        }
+        int size = Math.max(1, Sys.Db.join_batch_size);
+        Iterator<T> source = parents.iterator();
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            Iterator<T> window = Collections.emptyIterator();
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (!window.hasNext()) {
+                    List<T> list = new ArrayList<>(size);
+                    while (list.size() < size && source.hasNext()) {
+                        list.add(source.next());
+                    }
+                    if (list.isEmpty()) {
+                        return false;
+                    }
+                    joins.forEach(field -> join(list, field, size));
+                    window = list.iterator();
+                }
+                action.accept(window.next());
+                return true;
+            }
+        }, false)
+            .onClose(parents::close);
+    }
+
+    /**
+     * @param columns column(:relation column)
+     * @return [column, relation column]
+     */
+    static List<String[]> pairs(String... columns) {
+        return Stream.of(columns)
+            .map(i -> {
+                String[] pair = i.split("\\s*:\\s*", 2);
+                return new String[] { pair[0].trim(), pair[pair.length - 1].trim() };
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * load a {@link Join} field of parents(from: parent column:child or relation column, to: target column:relation column)
+     *
+     * @param parents Parents
+     * @param field Join field(List, Set, Optional or model)
+     * @param size Keys per query
+     */
+    void join(List<?> parents, Field field, int size) {
+        Join join = field.getAnnotation(Join.class);
+        Class<?> type = field.getType();
+        boolean many = Collection.class.isAssignableFrom(type);
+        Class<?> target = many || type == Optional.class ? Reflector.getGenericParameter(field, 0) : type;
+        List<String[]> from = pairs(join.from());
+        if (from.isEmpty()) {
+            /* primary keys of parent to same name columns */
+            Reflector.mappingFields(field.getDeclaringClass())
+                .forEach((name, f) -> {
+                    if (f.getAnnotation(Id.class) != null) {
+                        from.add(new String[] { name, name });
+                    }
                 });
         }
+        List<Field> keyFields = from.stream()
+            .map(pair -> Reflector.mappingField(field.getDeclaringClass(), pair[0])
+                .orElseThrow(() -> new IllegalArgumentException("join column not found: " + pair[0] + " of " + field)))
+            .collect(Collectors.toList());
+        Set<List<Object>> keySet = new LinkedHashSet<>();
+        Map<Object, List<Object>> parentKeys = new IdentityHashMap<>();
+        for (Object parent : parents) {
+            List<Object> values = keyFields.stream()
+                .map(Try.f(f -> unwrap(f.get(parent))))
+                .collect(Collectors.toList());
+            if (!values.contains(null)) {
+                keySet.add(values);
+                parentKeys.put(parent, values);
+            }
+        }
+        Map<List<Object>, List<Object>> children = new HashMap<>();
+        List<List<Object>> keys = new ArrayList<>(keySet);
+        TryFunction<ResultSet, ?> toObject = toObject(target, IntStream.range(0, from.size())
+            .mapToObj(i -> JOIN_KEY + i)
+            .toArray(String[]::new));
+        boolean relation = join.to().length > 0;
+        for (int i = 0; i < keys.size(); i += size) {
+            String sql = joinSql(builder, join, target, from, keys.subList(i, Math.min(i + size, keys.size())));
+            try (Stream<ResultSet> rows = reader().stream(sql)) {
+                rows.forEach(Try.c(rs -> {
+                    /* same conversion as parent fields */
+                    List<Object> key = new ArrayList<>(from.size());
+                    for (int j = 0; j < from.size(); j++) {
+                        key.add(unwrap(resultSetToObject(keyFields.get(j), rs, relation ? JOIN_KEY + j : from.get(j)[1])));
+                    }
+                    children.computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(toObject.apply(rs));
+                }));
+            }
+        }
+        for (Object parent : parents) {
+            List<Object> list = Tool.of(parentKeys.get(parent))
+                .map(children::get)
+                .orElse(Collections.emptyList());
+            Object value;
+            if (many) {
+                value = Set.class.isAssignableFrom(type) ? new LinkedHashSet<>(list) : new ArrayList<>(list);
+            } else {
+                Object first = list.isEmpty() ? null : list.get(0);
+                value = type == Optional.class ? Tool.of(first) : first;
+            }
+            Try.r(() -> field.set(parent, value))
+                .run();
+        }
+    }
+
+    /**
+     * @param value Value
+     * @return Value(content if Optional, null if empty)
+     */
+    static Object unwrap(Object value) {
+        return value instanceof Optional ? ((Optional<?>) value).orElse(null) : value;
+    }
+
+    /**
+     * @param builder SQL builder
+     * @param join Join
+     * @param target Target model class
+     * @param from [parent column, child or relation column]
+     * @param keys Parent key values
+     * @return SQL
+     */
+    static String joinSql(Builder builder, Join join, Class<?> target, List<String[]> from, List<List<Object>> keys) {
+        List<String[]> to = pairs(join.to());
+        String table = Tool.string(join.table())
+            .orElseGet(() -> Reflector.mappingClassName(target));
+        StringBuilder sql = new StringBuilder("SELECT ");
+        String prefix = "";
+        if (to.isEmpty()) {
+            sql.append("* FROM ")
+                .append(table);
+        } else {
+            /* many to many: target INNER JOIN relation */
+            prefix = "R__.";
+            sql.append("T__.*");
+            for (int i = 0; i < from.size(); i++) {
+                sql.append(", R__.")
+                    .append(from.get(i)[1])
+                    .append(" AS ")
+                    .append(JOIN_KEY)
+                    .append(i);
+            }
+            sql.append(" FROM ")
+                .append(Reflector.mappingClassName(target))
+                .append(" T__ INNER JOIN ")
+                .append(table)
+                .append(" R__ ON ");
+            for (int i = 0; i < to.size(); i++) {
+                sql.append(i == 0 ? "" : " AND ")
+                    .append("T__.")
+                    .append(to.get(i)[0])
+                    .append(" = R__.")
+                    .append(to.get(i)[1]);
+            }
+        }
+        sql.append(" WHERE ");
+        if (from.size() == 1) {
+            sql.append(prefix)
+                .append(from.get(0)[1])
+                .append(join(" IN (", keys.stream()
+                    .map(key -> builder.escape(key.get(0)))
+                    .collect(Collectors.toList()), ", "))
+                .append(")");
+        } else {
+            String p = prefix;
+            sql.append(keys.stream()
+                .map(key -> IntStream.range(0, from.size())
+                    .mapToObj(i -> p + from.get(i)[1] + " = " + builder.escape(key.get(i)))
+                    .collect(Collectors.joining(" AND ", "(", ")")))
+                .collect(Collectors.joining(" OR ", "(", ")")));
+        }
+        for (String where : join.value()) {
+            sql.append(" AND (")
+                .append(where)
+                .append(")");
+        }
+        return sql.toString();
     }
 
     /**
@@ -3189,6 +4194,7 @@ public class Db implements AutoCloseable {
     public static <T extends Enum<T>> Object resultSetToObject(Field field, ResultSet rs, String name) throws SQLException {
         Join join = field.getAnnotation(Join.class);
         if (join != null) {
+            /* loaded by find after window read */
             return null;
         }
         Stringer stringer = field.getAnnotation(Stringer.class);
@@ -3243,6 +4249,29 @@ public class Db implements AutoCloseable {
         return modelAction(this::save, model, targetColumns);
     }
 
+    /**
+     * save models in a batch(native upsert, 1 round trip)
+     *
+     * @param models save targets
+     * @param targetColumns save column names(primary key is automatic inclusion)
+     * @return affected rows
+     */
+    public int saveAll(Iterable<?> models, String... targetColumns) {
+        List<String> sqls = new ArrayList<>();
+        for (Object model : models) {
+            sqls.add(modelAction(null, (table, prepare, names, primary, values) -> {
+                if (hasNullKey(primary, values)) {
+                    Map<String, Object> row = row(names, values, 0, null);
+                    return insertSql(table, names, primary, new ArrayList<>(row.keySet()), new ArrayList<>(row.values()));
+                }
+                return upsertSql(table, primary, row(names, values, 0, null), row(names, values, primary, null));
+            }, model, targetColumns));
+        }
+        return IntStream.of(executeBatch(sqls))
+            .map(i -> i == Statement.SUCCESS_NO_INFO ? 1 : Math.max(i, 0))
+            .sum();
+    }
+
     /**
      * @param model delete target
      * @param targetColumns save column names(primary key is automatic inclusion)
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import javax.el.ELClass;
@@ -51,9 +52,19 @@ public class Formatter extends AbstractParser implements AutoCloseable {
     public static final Map<String, Class<?>> elClassMap = Tool.map("Sys", Sys.class, "Tool", Tool.class, "JapaneseDate", JapaneseDate.class);
 
     /**
-     * index of {
+     * index of { in output
      */
-    final Deque<Integer> braces = new LinkedList<>();
+    Deque<Integer> braces = new LinkedList<>();
+
+    /**
+     * formatted text(source before index is already copied or replaced)
+     */
+    StringBuilder output = new StringBuilder();
+
+    /**
+     * source index copied to output
+     */
+    int copied;
 
     /**
      * result action
@@ -197,6 +208,16 @@ public class Formatter extends AbstractParser implements AutoCloseable {
         return Result.NEXT;
     }
 
+    /**
+     * Separator of config key and parameters
+     */
+    static final Pattern colon = Pattern.compile("\\s*:\\s*");
+
+    /**
+     * javascript escape table(\n : \\n)
+     */
+    static final String[] newlineEscapes = Tool.escapes('\n', "\\n");
+
     /**
      * javascript escape(\n : \\n)
      *
@@ -204,7 +225,11 @@ public class Formatter extends AbstractParser implements AutoCloseable {
      * @return escaped text
      */
     public static String scriptEscape(Object text) {
-        return Tool.string(text).map(i -> i.replace("\n", "\\n")).orElse(null);
+        if (text == null) {
+            return null;
+        }
+        String string = text.toString();
+        return string.isEmpty() ? null : Tool.escape(string, newlineEscapes);
     }
 
     /**
@@ -267,9 +292,56 @@ public class Formatter extends AbstractParser implements AutoCloseable {
     @Override
     void set(String text) {
         braces.clear();
+        output.setLength(0);
+        output.ensureCapacity(text.length());
+        copied = 0;
         super.set(text);
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see framework.AbstractParser#prev(java.lang.String)
+     */
+    @Override
+    boolean prev(String word) {
+        int length = word.length();
+        int outputLength = output.length();
+        int size = outputLength + index - copied;
+        if (length > size) {
+            return false;
+        }
+        for (int i = 0, p = size - length; i < length; i++, p++) {
+            if ((p < outputLength ? output.charAt(p) : source.charAt(copied + p - outputLength)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * copy source to output
+     *
+     * @param end end index of source
+     */
+    void copy(int end) {
+        if (copied < end) {
+            output.append(source, copied, end);
+            copied = end;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see framework.AbstractParser#toString()
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder(output).append(source, copied, lastIndex)
+            .toString();
+    }
+
     /**
      * @param text target
      * @return formatted text
@@ -284,6 +356,18 @@ public class Formatter extends AbstractParser implements AutoCloseable {
      * @return formatted text
      */
     public String format(String text, TriFunction<String, Integer, Integer, String> convert) {
+        return format(text, convert, 0);
+    }
+
+    /**
+     * format in a single pass(source is not changed, converted text is formatted again until depth)
+     *
+     * @param text target
+     * @param convert convert expression
+     * @param depth max depth of formatting converted text(0: not format)
+     * @return formatted text
+     */
+    String format(String text, TriFunction<String, Integer, Integer, String> convert, int depth) {
         if (text == null) {
             return null;
         }
@@ -310,12 +394,14 @@ public class Formatter extends AbstractParser implements AutoCloseable {
                 } else if (prev("${") || prev("#{")) {
                     prefix = "${".length();
                 }
-                braces.push(index - prefix);
+                copy(index);
+                braces.push(output.length() - prefix);
                 continue;
             }
             if (eat("}") && !braces.isEmpty()) {
+                copy(index);
                 int start = braces.pop();
-                int first = charAt(start);
+                int first = output.charAt(start);
                 int prefix = first == '$' || first == '#' ? 2 : 1;
                 int suffix = 1;
                 switch (first) {
@@ -335,24 +421,62 @@ public class Formatter extends AbstractParser implements AutoCloseable {
                     suffix = "}*/".length();
                     break;
                 default:
-                    if (charAt(start + 1) == '/') {
+                    if (output.charAt(start + 1) == '/') {
                         prefix = "{/*".length();
                         suffix = "*/}".length();
                     }
                     break;
                 }
-                int end = index;
+                copy(index);
+                int end = output.length();
                 if (start + prefix < end - suffix) {
-                    String before = subSequence(start, end).toString();
+                    String before = output.substring(start);
                     String after = convert.apply(before, prefix, suffix);
-                    replace(start, end, after);
-                    index = end + after.length() - before.length();
+                    if (after.indexOf('{') >= 0 && !after.equals(before)) {
+                        after = nest(after, convert, depth);
+                    }
+                    output.setLength(start);
+                    output.append(after);
                 }
                 continue;
             }
             index++;
         }
-        return toString();
+        copy(lastIndex);
+        return output.toString();
+    }
+
+    /**
+     * format converted text with new state
+     *
+     * @param text converted text
+     * @param convert convert expression
+     * @param depth max depth of formatting converted text
+     * @return formatted text
+     */
+    String nest(String text, TriFunction<String, Integer, Integer, String> convert, int depth) {
+        if (depth <= 0) {
+            return text;
+        }
+        StringBuilder source0 = source;
+        StringBuilder output0 = output;
+        Deque<Integer> braces0 = braces;
+        int index0 = index;
+        int lastIndex0 = lastIndex;
+        int copied0 = copied;
+        source = new StringBuilder();
+        output = new StringBuilder();
+        braces = new LinkedList<>();
+        try {
+            return format(text, convert, depth - 1);
+        } finally {
+            source = source0;
+            output = output0;
+            braces = braces0;
+            index = index0;
+            lastIndex = lastIndex0;
+            copied = copied0;
+        }
     }
 
     /**
@@ -374,14 +498,7 @@ public class Formatter extends AbstractParser implements AutoCloseable {
     public static String format(TriFunction<String, Integer, Integer, String> converter, String text, Function<Formatter, Result> exclude, Function<Object, String> escape, Locale locale, Map<String, ?> map,
             Object... values) {
         try (Formatter formatter = new Formatter(exclude, escape, locale, map, values)) {
-            for(;;) {
-                String text0 = text;
-                text = formatter.format(text, converter);
-                if(text0.equals(text)) {
-                    break;
-                }
-            }
-            return text;
+            return formatter.format(text, converter, Sys.format_max_depth);
         }
     }
 
@@ -399,14 +516,8 @@ public class Formatter extends AbstractParser implements AutoCloseable {
     public static String format(String text, Function<Formatter, Result> exclude, Function<Object, String> escape, Locale locale, Map<String, ?> map,
             Object... values) {
         try (Formatter formatter = new Formatter(exclude, escape, locale, map, values)) {
-            for(;;) {
-                String text0 = text;
-                text = formatter.format(text);
-                if(text0.equals(text)) {
-                    break;
-                }
-            }
-            return text;
+            return formatter.format(text, (before, prefix, suffix) -> Tool.string(formatter.eval(before, prefix, suffix))
+                .orElse(""), Sys.format_max_depth);
         }
     }
     
@@ -533,9 +644,14 @@ public class Formatter extends AbstractParser implements AutoCloseable {
 
         /* bind config {key:parameter1:...} */
         if (key.indexOf('\n') < 0 && key.indexOf(' ') < 0) {
-            String[] keys = key.split("\\s*:\\s*");
-            boolean hasParameter = keys.length > 1;
+            String[] keys = key.indexOf(':') < 0 ? null : colon.split(key);
+            boolean hasParameter = keys != null && keys.length > 1;
             String realKey = hasParameter ? keys[0] : key;
+            Optional<Config.Text> text = Config.Injector.getMessage(realKey, locale);
+            if (text.isPresent()) {
+                return getResult.apply(hasParameter ? text.get()
+                    .format((Object[]) Arrays.copyOfRange(keys, 1, keys.length)) : text.get().text, "config");
+            }
             Optional<String> message = Config.Injector.getValue(realKey, locale);
             if (message.isPresent()) {
                 return getResult.apply(hasParameter ? new MessageFormat(message.get()).format(Arrays.copyOfRange(keys, 1, keys.length)) : message.get(),
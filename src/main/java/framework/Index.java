@@ -0,0 +1,338 @@
+package framework;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import framework.annotation.Config;
+import framework.annotation.Job;
+import framework.annotation.Persist;
+import framework.annotation.Route;
+
+/**
+ * Build-time index of annotated classes and resources(fallback to class path scan for not indexed entries)
+ */
+public class Index {
+
+    /**
+     * Index file path(in each class path root)
+     */
+    public static final String PATH = "META-INF/framework.index";
+
+    /**
+     * Kind of compiled package
+     */
+    static final String PACKAGE = "package";
+
+    /**
+     * Kind of indexed resource folder
+     */
+    static final String FOLDER = "folder";
+
+    /**
+     * Kind of resource file
+     */
+    static final String RESOURCE = "resource";
+
+    /**
+     * Indexed annotations(kind is simple name)
+     */
+    static final List<Class<? extends Annotation>> annotations = Arrays.asList(Route.class, Job.class, Config.class, Persist.class);
+
+    /**
+     * Class path root to kind to names
+     */
+    static final Lazy<Map<String, Map<String, Set<String>>>> indexes = new Lazy<>(Index::load);
+
+    /**
+     * @return Class path root to kind to names
+     */
+    static Map<String, Map<String, Set<String>>> load() {
+        Map<String, Map<String, Set<String>>> map = new HashMap<>();
+        Tool.toURLs(PATH)
+            .forEach(url -> {
+                String u = url.toString();
+                try (Reader reader = new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)) {
+                    read(reader, map.computeIfAbsent(u.substring(0, u.length() - PATH.length()), k -> new TreeMap<>()));
+                    Log.config(() -> "index loaded: " + url);
+                } catch (IOException e) {
+                    Log.warning(e, () -> "index read error: " + url);
+                }
+            });
+        return map;
+    }
+
+    /**
+     * @param reader Index(a line is kind TAB name)
+     * @param index Kind to names
+     * @throws IOException IO error
+     */
+    static void read(Reader reader, Map<String, Set<String>> index) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        for (String line; (line = in.readLine()) != null;) {
+            int tab = line.indexOf('\t');
+            if (tab > 0 && !line.startsWith("#")) {
+                index.computeIfAbsent(line.substring(0, tab), k -> new TreeSet<>())
+                    .add(line.substring(tab + 1));
+            }
+        }
+    }
+
+    /**
+     * @param writer Output
+     * @param index Kind to names
+     * @throws IOException IO error
+     */
+    static void write(Writer writer, Map<String, Set<String>> index) throws IOException {
+        writer.write("# generated by " + Processor.class.getName() + "\n");
+        for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+            for (String name : entry.getValue()) {
+                writer.write(entry.getKey() + '\t' + name + '\n');
+            }
+        }
+    }
+
+    /**
+     * @param url URL of location
+     * @param location Location(no slash at both ends)
+     * @return Kind to names(null if not indexed)
+     */
+    static Map<String, Set<String>> index(URL url, String location) {
+        String u = Tool.trim(null, url.toString(), "/");
+        return u.endsWith(location) ? indexes.get()
+            .get(u.substring(0, u.length() - location.length())) : null;
+    }
+
+    /**
+     * @param index Kind to names
+     * @param kind Kind
+     * @param name Package or folder
+     * @param separator Separator
+     * @return True if name is under indexed entry
+     */
+    static boolean covers(Map<String, Set<String>> index, String kind, String name, char separator) {
+        return index != null && index.getOrDefault(kind, Collections.emptySet())
+            .stream()
+            .anyMatch(i -> i.equals(name) || i.startsWith(name + separator) || name.startsWith(i + separator));
+    }
+
+    /**
+     * list annotated classes(all classes in package if not indexed)
+     *
+     * @param annotation Annotation
+     * @param packageName Package name
+     * @return Class stream(must to close)
+     */
+    public static Stream<Class<?>> classes(Class<? extends Annotation> annotation, String packageName) {
+        if (packageName.isEmpty()) {
+            return Tool.getClasses(packageName);
+        }
+        String location = packageName.replace('.', '/');
+        String prefix = packageName + '.';
+        return Tool.toURLs(location)
+            .flatMap(Try.f(url -> {
+                Map<String, Set<String>> index = index(url, location);
+                if (!covers(index, PACKAGE, packageName, '.')) {
+                    return Tool.toClasses(packageName, Tool.getResources(location, url));
+                }
+                return index.getOrDefault(annotation.getSimpleName(), Collections.emptySet())
+                    .stream()
+                    .filter(name -> name.startsWith(prefix))
+                    .<Class<?>>map(Try.f(Class::forName));
+            }));
+    }
+
+    /**
+     * list files(same as {@link Tool#getResources(String)} if not indexed)
+     *
+     * @param location Location
+     * @return File name stream(must to close)
+     */
+    public static Stream<String> resources(String location) {
+        String folder = Tool.trim("/", location, "/");
+        if (folder.isEmpty()) {
+            return Tool.getResources(location);
+        }
+        String prefix = folder + '/';
+        return Tool.toURLs(folder)
+            .flatMap(Try.f(url -> {
+                Map<String, Set<String>> index = index(url, folder);
+                if (!covers(index, FOLDER, folder, '/')) {
+                    return Tool.getResources(location, url);
+                }
+                return index.getOrDefault(RESOURCE, Collections.emptySet())
+                    .stream()
+                    .filter(name -> name.startsWith(prefix))
+                    .map(name -> name.substring(prefix.length())
+                        .replace('/', '.'));
+            }));
+    }
+
+    /**
+     * Annotation processor to write index(option: -Aframework.index.resources=sql,... resource folders to index, default sql)
+     */
+    @SupportedAnnotationTypes("*")
+    @SupportedOptions(Processor.RESOURCES)
+    public static class Processor extends AbstractProcessor {
+
+        /**
+         * Option name of resource folders
+         */
+        static final String RESOURCES = "framework.index.resources";
+
+        /**
+         * Kind to names
+         */
+        final Map<String, Set<String>> index = new TreeMap<>();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+         */
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see javax.annotation.processing.AbstractProcessor#init(javax.annotation.processing.ProcessingEnvironment)
+         */
+        @Override
+        public synchronized void init(ProcessingEnvironment processingEnv) {
+            super.init(processingEnv);
+            /* merge previous index for incremental build */
+            try (Reader reader = processingEnv.getFiler()
+                .getResource(StandardLocation.CLASS_OUTPUT, "", PATH)
+                .openReader(true)) {
+                read(reader, index);
+            } catch (IOException | IllegalArgumentException e) {
+                return;
+            }
+            Elements elements = processingEnv.getElementUtils();
+            annotations.forEach(a -> index.getOrDefault(a.getSimpleName(), Collections.emptySet())
+                .removeIf(name -> elements.getTypeElement(name.replace('$', '.')) == null));
+            index.remove(FOLDER);
+            index.remove(RESOURCE);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set, javax.annotation.processing.RoundEnvironment)
+         */
+        @Override
+        public boolean process(Set<? extends TypeElement> types, RoundEnvironment round) {
+            Elements elements = processingEnv.getElementUtils();
+            if (round.processingOver()) {
+                write();
+                return false;
+            }
+            round.getRootElements()
+                .stream()
+                .filter(e -> e instanceof TypeElement)
+                .forEach(e -> add(PACKAGE, elements.getPackageOf(e)
+                    .getQualifiedName()
+                    .toString()));
+            for (Class<? extends Annotation> a : annotations) {
+                TypeElement type = elements.getTypeElement(a.getCanonicalName());
+                if (type != null) {
+                    round.getElementsAnnotatedWith(type)
+                        .forEach(e -> add(a.getSimpleName(), binaryName(elements, e)));
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param kind Kind
+         * @param name Name
+         */
+        void add(String kind, String name) {
+            index.computeIfAbsent(kind, k -> new TreeSet<>())
+                .add(name);
+        }
+
+        /**
+         * @param elements Element utilities
+         * @param element Annotated element
+         * @return Binary name of declaring class
+         */
+        static String binaryName(Elements elements, Element element) {
+            Element e = element;
+            while (!(e instanceof TypeElement)) {
+                e = e.getEnclosingElement();
+            }
+            return elements.getBinaryName((TypeElement) e)
+                .toString();
+        }
+
+        /**
+         * list resources and write index
+         */
+        void write() {
+            try {
+                FileObject file = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", PATH);
+                Path root = Paths.get(file.toUri())
+                    .getParent()
+                    .getParent();
+                for (String folder : processingEnv.getOptions()
+                    .getOrDefault(RESOURCES, "sql")
+                    .split("\\s*,\\s*")) {
+                    String name = folder.replaceAll("^/+|/+$", "");
+                    Path dir = root.resolve(name);
+                    if (name.isEmpty() || !Files.isDirectory(dir)) {
+                        continue;
+                    }
+                    add(FOLDER, name);
+                    try (Stream<Path> files = Files.walk(dir)) {
+                        files.filter(Files::isRegularFile)
+                            .forEach(p -> add(RESOURCE, name + '/' + dir.relativize(p)
+                                .toString()
+                                .replace(File.separatorChar, '/')));
+                    }
+                }
+                try (Writer writer = file.openWriter()) {
+                    Index.write(writer, index);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                processingEnv.getMessager()
+                    .printMessage(Diagnostic.Kind.WARNING, "index not written: " + e);
+            }
+        }
+    }
+}
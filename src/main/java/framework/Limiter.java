@@ -0,0 +1,335 @@
+package framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.config.Sys;
+import framework.Response.Status;
+
+/**
+ * Admission control of requests(global and per-route concurrency limits adapted by latency, excess requests are rejected with 503)
+ */
+public class Limiter {
+
+    /**
+     * Limit algorithm
+     */
+    public enum Algorithm {
+        /**
+         * Additive increase(+1 if half used) and multiplicative decrease(if latency over Sys.Limit.aimd_timeout_millis)
+         */
+        AIMD,
+        /**
+         * Gradient of long-term average latency to current latency(grows by square root of limit while latency is stable)
+         */
+        GRADIENT,
+        /**
+         * Fixed to initial limit
+         */
+        FIXED,
+    }
+
+    /**
+     * Name of global limit
+     */
+    public static final String GLOBAL = "(global)";
+
+    /**
+     * Name of static file limit
+     */
+    public static final String STATIC = Metrics.STATIC;
+
+    /**
+     * Concurrency limit
+     */
+    public static class Limit {
+
+        /**
+         * Name
+         */
+        final String name;
+
+        /**
+         * Current limit
+         */
+        volatile double limit;
+
+        /**
+         * In-flight count
+         */
+        final AtomicInteger inflight = new AtomicInteger();
+
+        /**
+         * Long-term average latency nanos(0 if not measured)
+         */
+        double average;
+
+        /**
+         * Accepted count
+         */
+        final LongAdder accepted = new LongAdder();
+
+        /**
+         * Rejected count
+         */
+        final LongAdder rejected = new LongAdder();
+
+        /**
+         * @param name Name
+         * @param initial Initial limit
+         */
+        Limit(String name, int initial) {
+            this.name = name;
+            this.limit = initial;
+        }
+
+        /**
+         * @param ratio Usable ratio of limit
+         * @return Permit(null if over limit)
+         */
+        Permit acquire(double ratio) {
+            int max = Math.max(1, (int) (limit * ratio));
+            for (;;) {
+                int n = inflight.get();
+                if (n >= max) {
+                    rejected.increment();
+                    return null;
+                }
+                if (inflight.compareAndSet(n, n + 1)) {
+                    accepted.increment();
+                    return new Permit(this);
+                }
+            }
+        }
+
+        /**
+         * @param nanos Latency
+         * @param inflight In-flight count on completion(including itself)
+         * @param dropped True if failed
+         */
+        synchronized void update(long nanos, int inflight, boolean dropped) {
+            double l = limit;
+            double next = l;
+            switch (Sys.Limit.algorithm) {
+            case AIMD:
+                if (dropped || nanos > Sys.Limit.aimd_timeout_millis * 1000000L) {
+                    next = l * Sys.Limit.aimd_backoff;
+                } else if (inflight * 2 >= l) {
+                    next = l + 1;
+                }
+                break;
+            case GRADIENT:
+                average = average == 0 ? nanos : average * 0.95 + nanos * 0.05;
+                double gradient = Math.max(0.5, Math.min(1.0, Sys.Limit.gradient_tolerance * average / Math.max(1, nanos)));
+                next = l * gradient + Math.sqrt(l);
+                if (inflight * 2 < l) {
+                    /* not saturated: no evidence to grow */
+                    next = Math.min(l, next);
+                }
+                next = l * 0.8 + next * 0.2;
+                break;
+            default:
+                return;
+            }
+            limit = Math.max(Sys.Limit.min, Math.min(Sys.Limit.max, next));
+        }
+
+        /**
+         * @return Current limit
+         */
+        public int limit() {
+            return (int) limit;
+        }
+
+        /**
+         * @return In-flight count
+         */
+        public int inflight() {
+            return inflight.get();
+        }
+    }
+
+    /**
+     * Admitted request
+     */
+    public static class Permit implements AutoCloseable {
+
+        /**
+         * Permit if disabled
+         */
+        static final Permit NONE = new Permit(null);
+
+        /**
+         * Limit(null if none)
+         */
+        final Limit limit;
+
+        /**
+         * Start nanos
+         */
+        final long start = System.nanoTime();
+
+        /**
+         * True if failed(treated as overload)
+         */
+        volatile boolean dropped;
+
+        /**
+         * True if released on completion of asynchronous result or stream(not on handler return)
+         */
+        volatile boolean deferred;
+
+        /**
+         * True if released
+         */
+        final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * @param limit Limit
+         */
+        Permit(Limit limit) {
+            this.limit = limit;
+            if (limit != null) {
+                holdings.get()
+                    .add(this);
+            }
+        }
+
+        /**
+         * mark as failed
+         */
+        public void drop() {
+            dropped = true;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            if (limit == null) {
+                return;
+            }
+            holdings.get()
+                .remove(this);
+            if (!deferred) {
+                release();
+            }
+        }
+
+        /**
+         * give back to limit(once)
+         */
+        void release() {
+            if (limit != null && released.compareAndSet(false, true)) {
+                limit.update(System.nanoTime() - start, limit.inflight.getAndDecrement(), dropped);
+            }
+        }
+    }
+
+    /**
+     * Permits held by current request thread
+     */
+    static final ThreadLocal<List<Permit>> holdings = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * keep permits of current request thread after handler returned(for asynchronous result or detached stream)
+     *
+     * @return Releaser of the permits(call on completion, only first call is effective)
+     */
+    public static Runnable defer() {
+        List<Permit> permits = new ArrayList<>(holdings.get());
+        permits.forEach(permit -> permit.deferred = true);
+        return () -> permits.forEach(Permit::release);
+    }
+
+    /**
+     * cancel {@link #defer()}(permits of current request thread are released on handler return)
+     */
+    public static void resume() {
+        holdings.get()
+            .forEach(permit -> permit.deferred = false);
+    }
+
+    /**
+     * Global limit
+     */
+    static final Limit global = new Limit(GLOBAL, Sys.Limit.initial);
+
+    /**
+     * Route pattern to limit
+     */
+    static final Map<String, Limit> routes = new ConcurrentHashMap<>();
+
+    /**
+     * @param request Request
+     * @return True if priority request(Sys.Limit.priority_paths or metrics path)
+     */
+    static boolean isPriority(Request request) {
+        String path = request.getPath();
+        return path != null && (Sys.Limit.priority_paths.matcher(path)
+            .find()
+                || Sys.metrics_path.filter(path::equals)
+                    .isPresent());
+    }
+
+    /**
+     * @param request Request
+     * @return Permit of global limit(null if rejected)
+     */
+    public static Permit global(Request request) {
+        if (!Sys.Limit.enabled) {
+            return Permit.NONE;
+        }
+        return global.acquire(isPriority(request) ? 1.0 : Sys.Limit.normal_ratio);
+    }
+
+    /**
+     * @param route Route pattern(null if static file)
+     * @return Permit of route limit(null if rejected)
+     */
+    public static Permit route(String route) {
+        if (!Sys.Limit.enabled) {
+            return Permit.NONE;
+        }
+        return routes.computeIfAbsent(route == null ? STATIC : route, name -> new Limit(name, Sys.Limit.route_initial))
+            .acquire(1.0);
+    }
+
+    /**
+     * respond 503 with Retry-After
+     */
+    public static void reject() {
+        Response.error(Status.Service_Unavailable)
+            .setHeader("Retry-After", String.valueOf(Sys.Limit.retry_after_seconds))
+            .flush();
+    }
+
+    /**
+     * @param s Prometheus text output
+     */
+    static void prometheus(StringBuilder s) {
+        if (!Sys.Limit.enabled) {
+            return;
+        }
+        Map<String, Limit> limits = new TreeMap<>(routes);
+        limits.put(GLOBAL, global);
+        String[] names = { "concurrency_limit", "concurrency_inflight", "concurrency_accepted_total", "concurrency_rejected_total" };
+        String[] types = { "gauge", "gauge", "counter", "counter" };
+        for (int i = 0; i < names.length; i++) {
+            s.append("# TYPE ").append(names[i]).append(' ').append(types[i]).append('\n');
+            for (Limit limit : limits.values()) {
+                long value = i == 0 ? limit.limit() : i == 1 ? limit.inflight() : i == 2 ? limit.accepted.sum() : limit.rejected.sum();
+                Metrics.escape(s.append(names[i]).append("{route=\""), limit.name).append("\"} ").append(value).append('\n');
+            }
+        }
+    }
+}
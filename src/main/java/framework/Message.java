@@ -2,6 +2,7 @@ package framework;
 
 import java.text.MessageFormat;
 import java.util.Locale;
+import java.util.Optional;
 
 import framework.annotation.Config;
 
@@ -28,6 +29,15 @@ public interface Message {
      * @return message
      */
     default String message(Locale locale) {
+        return text(locale).map(i -> i.text)
+            .orElse("");
+    }
+
+    /**
+     * @param locale locale
+     * @return Message text(empty if not configured)
+     */
+    default Optional<Config.Text> text(Locale locale) {
         Class<?> clazz = getClass();
         String name = getClass().getSimpleName();
         do {
@@ -38,7 +48,7 @@ public interface Message {
             clazz = c;
             name = clazz.getSimpleName() + "." + name;
         } while (clazz.getAnnotation(Config.class) == null);
-        return Config.Injector.getSource(clazz, locale).getProperty(name + "." + ((Enum<?>) this).name(), "");
+        return Config.Injector.getMessage(name + "." + ((Enum<?>) this).name(), locale);
     }
 
     /**
@@ -47,6 +57,7 @@ public interface Message {
      * @return Message
      */
     default String format(Locale locale, Object... values) {
-        return MessageFormat.format(message(locale), values);
+        return text(locale).map(i -> i.format(values))
+            .orElseGet(() -> MessageFormat.format("", values));
     }
 }
@@ -0,0 +1,384 @@
+package framework;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.config.Sys;
+import framework.annotation.Route;
+
+/**
+ * Request and resource metrics(lock-free, no allocation on record)
+ */
+public class Metrics {
+
+    /**
+     * Log-linear histogram of microseconds(16 sub buckets per power of 2, about 6% precision)
+     */
+    public static class Histogram {
+
+        /**
+         * Sub bucket bits
+         */
+        static final int SUB_BITS = 4;
+
+        /**
+         * Sub bucket count
+         */
+        static final int SUB = 1 << SUB_BITS;
+
+        /**
+         * Max exponent(2^40 micro seconds = about 12 days)
+         */
+        static final int MAX_EXPONENT = 40;
+
+        /**
+         * Bucket counts
+         */
+        final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BITS + 2) * SUB);
+
+        /**
+         * Total count
+         */
+        final LongAdder count = new LongAdder();
+
+        /**
+         * Total micro seconds
+         */
+        final LongAdder sum = new LongAdder();
+
+        /**
+         * Max micro seconds
+         */
+        final AtomicLong max = new AtomicLong();
+
+        /**
+         * @param micros Micro seconds
+         * @return Bucket index
+         */
+        static int index(long micros) {
+            if (micros < SUB) {
+                return micros < 0 ? 0 : (int) micros;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB - 1);
+            return (exponent - SUB_BITS + 1) * SUB + sub;
+        }
+
+        /**
+         * @param index Bucket index
+         * @return Upper bound micro seconds
+         */
+        static long upper(int index) {
+            if (index < SUB) {
+                return index;
+            }
+            int exponent = index / SUB + SUB_BITS - 1;
+            long width = 1L << (exponent - SUB_BITS);
+            return ((SUB + index % SUB) * width) + width - 1;
+        }
+
+        /**
+         * @param nanos Elapsed nano seconds
+         */
+        public void record(long nanos) {
+            long micros = nanos / 1000;
+            counts.incrementAndGet(index(micros));
+            count.increment();
+            sum.add(micros);
+            long current;
+            while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+                /* retry */
+            }
+        }
+
+        /**
+         * @return Count
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * @return Total micro seconds
+         */
+        public long sum() {
+            return sum.sum();
+        }
+
+        /**
+         * @return Max micro seconds
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * @param ratio Ratio(0.0 - 1.0)
+         * @return Micro seconds(upper bound of bucket)
+         */
+        public long percentile(double ratio) {
+            long total = 0;
+            int length = counts.length();
+            for (int i = 0; i < length; i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(total * ratio));
+            long current = 0;
+            for (int i = 0; i < length; i++) {
+                current += counts.get(i);
+                if (current >= target) {
+                    return Math.min(upper(i), max());
+                }
+            }
+            return max();
+        }
+    }
+
+    /**
+     * Route timer
+     */
+    public static class Timer {
+
+        /**
+         * Latency
+         */
+        public final Histogram latency = new Histogram();
+
+        /**
+         * Status class counts(1xx - 5xx)
+         */
+        final LongAdder[] statuses = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+
+        /**
+         * @param status Status code
+         * @param nanos Elapsed nano seconds
+         */
+        public void record(int status, long nanos) {
+            latency.record(nanos);
+            int i = status / 100 - 1;
+            statuses[i < 0 || i >= statuses.length ? statuses.length - 1 : i].increment();
+        }
+
+        /**
+         * @param statusClass 1 - 5
+         * @return Count
+         */
+        public long status(int statusClass) {
+            return statuses[statusClass - 1].sum();
+        }
+    }
+
+    /**
+     * Route label of static files
+     */
+    public static final String STATIC = "(static)";
+
+    /**
+     * Route pattern to timers by method(last is unknown method)
+     */
+    static final Map<String, Timer[]> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Database execute time
+     */
+    public static final Histogram db = new Histogram();
+
+    /**
+     * Template render time
+     */
+    public static final Histogram template = new Histogram();
+
+    /**
+     * Session load time
+     */
+    public static final Histogram sessionLoad = new Histogram();
+
+    /**
+     * Session save time
+     */
+    public static final Histogram sessionSave = new Histogram();
+
+    /**
+     * Mail send time
+     */
+    public static final Histogram mail = new Histogram();
+
+    /**
+     * @param route Route pattern
+     * @param method Method(null if unknown)
+     * @return Timer
+     */
+    public static Timer timer(String route, Route.Method method) {
+        Timer[] timers = routes.computeIfAbsent(route, k -> new Timer[Route.Method.values().length + 1]);
+        int i = method == null ? timers.length - 1 : method.ordinal();
+        Timer timer = timers[i];
+        if (timer == null) {
+            synchronized (timers) {
+                timer = timers[i];
+                if (timer == null) {
+                    timers[i] = timer = new Timer();
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * record completed request(once per request)
+     *
+     * @param request Request
+     * @param status Status code
+     * @return True if recorded(false if already recorded)
+     */
+    static boolean request(Request request, int status) {
+        if (request == null || request.recorded) {
+            return false;
+        }
+        request.recorded = true;
+        timer(request.route == null ? STATIC : request.route, request.getMethod()).record(status, System.nanoTime() - request.startNanos);
+        return true;
+    }
+
+    /**
+     * @return Prometheus text format
+     */
+    public static String prometheus() {
+        StringBuilder s = new StringBuilder(4096);
+        String[] names = { "http_requests_total", "http_request_duration_seconds" };
+        s.append("# TYPE ").append(names[0]).append(" counter\n");
+        Map<String, Timer[]> sorted = new TreeMap<>(routes);
+        Route.Method[] methods = Route.Method.values();
+        sorted.forEach((route, timers) -> {
+            for (int i = 0; i < timers.length; i++) {
+                Timer timer = timers[i];
+                if (timer != null) {
+                    for (int c = 1; c <= 5; c++) {
+                        long count = timer.status(c);
+                        if (count > 0) {
+                            labels(s.append(names[0]), route, i < methods.length ? methods[i].name() : "OTHER").append(",status=\"")
+                                .append(c)
+                                .append("xx\"} ")
+                                .append(count)
+                                .append('\n');
+                        }
+                    }
+                }
+            }
+        });
+        s.append("# TYPE ").append(names[1]).append(" summary\n");
+        sorted.forEach((route, timers) -> {
+            for (int i = 0; i < timers.length; i++) {
+                if (timers[i] != null) {
+                    summary(s, names[1], timers[i].latency, route, i < methods.length ? methods[i].name() : "OTHER");
+                }
+            }
+        });
+        Tool.map("db_execute_seconds", db, "template_render_seconds", template, "session_load_seconds", sessionLoad, "session_save_seconds", sessionSave, "mail_send_seconds", mail)
+            .forEach((name, histogram) -> {
+                s.append("# TYPE ").append(name).append(" summary\n");
+                summary(s, name, (Histogram) histogram, null, null);
+            });
+        if (Sys.timing_sample_ratio > 0) {
+            for (Timing.Phase phase : Timing.phases) {
+                String name = "request_" + phase.label + "_seconds";
+                summary(s.append("# TYPE ").append(name).append(" summary\n"), name, phase.histogram, null, null);
+            }
+            summary(s.append("# TYPE request_total_seconds summary\n"), "request_total_seconds", Timing.total, null, null);
+        }
+        s.append("# TYPE mail_outbox_depth gauge\nmail_outbox_depth ").append(Outbox.depth()).append('\n');
+        Tool.map("mail_enqueued_total", Outbox.enqueued, "mail_sent_total", Outbox.sent, "mail_retried_total", Outbox.retried, "mail_failed_total", Outbox.failed)
+            .forEach((name, count) -> s.append("# TYPE ").append(name).append(" counter\n").append(name).append(' ').append(((LongAdder) count).sum()).append('\n'));
+        s.append("# TYPE response_cache_entries gauge\nresponse_cache_entries ").append(ResponseCache.size()).append('\n');
+        Tool.map("response_cache_hits_total", ResponseCache.hits, "response_cache_misses_total", ResponseCache.misses, "response_cache_collapsed_total",
+                ResponseCache.collapsed, "response_cache_evictions_total", ResponseCache.evictions)
+            .forEach((name, count) -> s.append("# TYPE ").append(name).append(" counter\n").append(name).append(' ').append(((LongAdder) count).sum()).append('\n'));
+        s.append("# TYPE rate_limited_total counter\nrate_limited_total ").append(RateLimiter.limited.sum()).append('\n');
+        s.append("# TYPE rate_evicted_total counter\nrate_evicted_total ").append(RateLimiter.evicted.sum()).append('\n');
+        Limiter.prometheus(s);
+        return s.toString();
+    }
+
+    /**
+     * @param s Output
+     * @param name Metric name
+     * @param h Histogram
+     * @param route Route(null if none)
+     * @param method Method(null if none)
+     */
+    static void summary(StringBuilder s, String name, Histogram h, String route, String method) {
+        for (double q : new double[] { 0.5, 0.9, 0.99 }) {
+            s.append(name);
+            if (route == null) {
+                s.append('{');
+            } else {
+                labels(s, route, method).append(',');
+            }
+            s.append("quantile=\"").append(q).append("\"} ");
+            seconds(s, h.percentile(q)).append('\n');
+        }
+        s.append(name).append("_sum");
+        if (route != null) {
+            labels(s, route, method).append('}');
+        }
+        seconds(s.append(' '), h.sum()).append('\n');
+        s.append(name).append("_count");
+        if (route != null) {
+            labels(s, route, method).append('}');
+        }
+        s.append(' ').append(h.count()).append('\n');
+    }
+
+    /**
+     * @param s Output
+     * @param route Route
+     * @param method Method
+     * @return Output(label not closed)
+     */
+    static StringBuilder labels(StringBuilder s, String route, String method) {
+        return escape(s.append("{route=\""), route).append("\",method=\"").append(method).append('"');
+    }
+
+    /**
+     * @param s Output
+     * @param value Label value
+     * @return Output
+     */
+    static StringBuilder escape(StringBuilder s, String value) {
+        for (int i = 0, end = value.length(); i < end; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+            case '"':
+                s.append('\\').append(c);
+                break;
+            case '\n':
+                s.append("\\n");
+                break;
+            default:
+                s.append(c);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * @param s Output
+     * @param micros Micro seconds
+     * @return Output
+     */
+    static StringBuilder seconds(StringBuilder s, long micros) {
+        s.append(micros / 1000000).append('.');
+        String fraction = String.valueOf(micros % 1000000);
+        for (int i = fraction.length(); i < 6; i++) {
+            s.append('0');
+        }
+        return s.append(fraction);
+    }
+}
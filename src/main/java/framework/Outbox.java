@@ -0,0 +1,428 @@
+package framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import app.config.Sys;
+
+/**
+ * Asynchronous mail outbox(background senders keep SMTP connections open, retry with backoff, optional t_mail table)
+ */
+public class Outbox {
+
+    /**
+     * Mail connection
+     */
+    public interface Sender extends AutoCloseable {
+
+        /**
+         * @param message Message
+         * @throws MessagingException Send error
+         */
+        void send(MimeMessage message) throws MessagingException;
+
+        /**
+         * @return True if connected
+         */
+        boolean isConnected();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        void close() throws MessagingException;
+    }
+
+    /**
+     * Queued message
+     */
+    static class Item implements Delayed {
+
+        /**
+         * Id(t_mail.id)
+         */
+        final String id;
+
+        /**
+         * Message
+         */
+        final MimeMessage message;
+
+        /**
+         * Completed when sent or given up
+         */
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        /**
+         * Failed count
+         */
+        int attempts;
+
+        /**
+         * Send after this millis
+         */
+        long dueMillis;
+
+        /**
+         * @param id Id
+         * @param message Message
+         * @param attempts Failed count
+         */
+        Item(String id, MimeMessage message, int attempts) {
+            this.id = id;
+            this.message = message;
+            this.attempts = attempts;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.Delayed#getDelay(java.util.concurrent.TimeUnit)
+         */
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(dueMillis, ((Item) o).dueMillis);
+        }
+    }
+
+    /**
+     * Sender factory
+     */
+    public static Supplier<Sender> factory = Outbox::smtp;
+
+    /**
+     * Queue(retry items become due after backoff)
+     */
+    static final DelayQueue<Item> queue = new DelayQueue<>();
+
+    /**
+     * Queued and sending count
+     */
+    static final AtomicInteger depth = new AtomicInteger();
+
+    /**
+     * Sender threads(null if not started)
+     */
+    static volatile ExecutorService senders;
+
+    /**
+     * Enqueued count
+     */
+    public static final LongAdder enqueued = new LongAdder();
+
+    /**
+     * Sent count
+     */
+    public static final LongAdder sent = new LongAdder();
+
+    /**
+     * Retry count
+     */
+    public static final LongAdder retried = new LongAdder();
+
+    /**
+     * Given up count
+     */
+    public static final LongAdder failed = new LongAdder();
+
+    /**
+     * @return SMTP connection by Sys.Mail
+     */
+    static Sender smtp() {
+        Tool.Mail mail = new Tool.Mail();
+        Transport transport = Try.s(() -> javax.mail.Session.getInstance(mail.properties, mail.authenticator)
+            .getTransport("smtp"))
+            .get();
+        Try.r(transport::connect)
+            .run();
+        return new Sender() {
+            @Override
+            public void send(MimeMessage message) throws MessagingException {
+                message.saveChanges();
+                transport.sendMessage(message, message.getAllRecipients());
+            }
+
+            @Override
+            public boolean isConnected() {
+                return transport.isConnected();
+            }
+
+            @Override
+            public void close() throws MessagingException {
+                transport.close();
+            }
+        };
+    }
+
+    /**
+     * send in background
+     *
+     * @param message Message
+     * @return Completed when sent or given up
+     */
+    public static CompletableFuture<Void> enqueue(MimeMessage message) {
+        int capacity = Sys.Mail.outbox_capacity;
+        if (capacity > 0 && depth.get() >= capacity) {
+            throw new IllegalStateException("mail outbox full: " + capacity);
+        }
+        Item item = new Item(UUID.randomUUID()
+            .toString(), message, 0);
+        if (Sys.Mail.outbox_persist) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Try.r(() -> message.writeTo(out))
+                .run();
+            try (Db db = Db.connect()) {
+                db.prepare("INSERT INTO t_mail(id, message, attempts, created_at) VALUES(?, ?, 0, ?)", ps -> {
+                    ps.setString(1, item.id);
+                    ps.setBytes(2, out.toByteArray());
+                    ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                    ps.executeUpdate();
+                    return Tool.array(item.id);
+                });
+            }
+        }
+        enqueued.increment();
+        offer(item);
+        return item.future;
+    }
+
+    /**
+     * enqueue unsent messages of t_mail(if Sys.Mail.outbox_persist)
+     *
+     * @return Restored count
+     */
+    public static int restore() {
+        if (!Sys.Mail.outbox_persist) {
+            return 0;
+        }
+        javax.mail.Session session = Tool.val(new Tool.Mail(), mail -> javax.mail.Session.getInstance(mail.properties, mail.authenticator));
+        int[] count = { 0 };
+        try (Db db = Db.connect()) {
+            db.preparedQuery("SELECT id, message, attempts FROM t_mail WHERE error IS NULL ORDER BY created_at", null, rs -> {
+                offer(new Item(rs.getString(1), new MimeMessage(session, new ByteArrayInputStream(rs.getBytes(2))), rs.getInt(3)));
+                count[0]++;
+            });
+        }
+        Log.info("mail outbox restored: " + count[0]);
+        return count[0];
+    }
+
+    /**
+     * @param item Item
+     */
+    static void offer(Item item) {
+        depth.incrementAndGet();
+        queue.offer(item);
+        if (senders == null) {
+            start();
+        }
+    }
+
+    /**
+     * start Sys.Mail.outbox_threads senders
+     */
+    static synchronized void start() {
+        if (senders != null) {
+            return;
+        }
+        int threads = Math.max(1, Sys.Mail.outbox_threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> Tool.peek(new Thread(r, "mail-sender"), t -> t.setDaemon(true)));
+        senders = pool;
+        for (int i = 0; i < threads; i++) {
+            pool.execute(() -> run(pool));
+        }
+    }
+
+    /**
+     * sender loop(keeps a connection while busy, reconnects after Sys.Mail.outbox_batch messages)
+     *
+     * @param pool Sender threads(loop ends when stopped)
+     */
+    static void run(ExecutorService pool) {
+        Sender sender = null;
+        int count = 0;
+        try {
+            while (senders == pool && !Thread.currentThread()
+                .isInterrupted()) {
+                Item item = queue.poll(Math.max(1, Sys.Mail.outbox_idle_seconds), TimeUnit.SECONDS);
+                if (item == null) {
+                    /* idle */
+                    sender = close(sender);
+                    continue;
+                }
+                if (item.message == null) {
+                    /* wake up to stop */
+                    continue;
+                }
+                try {
+                    if (sender == null || !sender.isConnected() || count >= Sys.Mail.outbox_batch) {
+                        close(sender);
+                        sender = null;
+                        sender = factory.get();
+                        count = 0;
+                    }
+                    long start = System.nanoTime();
+                    sender.send(item.message);
+                    Metrics.mail.record(System.nanoTime() - start);
+                    count++;
+                    sent(item);
+                } catch (Exception e) {
+                    sender = close(sender);
+                    failed(item, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        } finally {
+            close(sender);
+        }
+    }
+
+    /**
+     * @param sender Sender
+     * @return null
+     */
+    static Sender close(Sender sender) {
+        if (sender != null) {
+            Try.r(sender::close, e -> Log.config("mail connection close error: " + e))
+                .run();
+        }
+        return null;
+    }
+
+    /**
+     * @param item Sent item
+     */
+    static void sent(Item item) {
+        depth.decrementAndGet();
+        sent.increment();
+        if (Sys.Mail.outbox_persist) {
+            Try.r(() -> {
+                try (Db db = Db.connect()) {
+                    db.from("t_mail")
+                        .where("id", item.id)
+                        .delete();
+                }
+            }, e -> Log.warning(e, () -> "mail outbox delete error: " + item.id))
+                .run();
+        }
+        item.future.complete(null);
+    }
+
+    /**
+     * @param item Failed item
+     * @param e Error
+     */
+    static void failed(Item item, Exception e) {
+        item.attempts++;
+        boolean retry = item.attempts <= Sys.Mail.outbox_retries;
+        if (Sys.Mail.outbox_persist) {
+            Try.r(() -> {
+                try (Db db = Db.connect()) {
+                    db.prepare("UPDATE t_mail SET attempts = ?, error = ? WHERE id = ?", ps -> {
+                        ps.setInt(1, item.attempts);
+                        ps.setString(2, retry ? null : Tool.cut(String.valueOf(e), 1000, "..."));
+                        ps.setString(3, item.id);
+                        ps.executeUpdate();
+                        return Tool.array(item.attempts, item.id);
+                    });
+                }
+            }, ex -> Log.warning(ex, () -> "mail outbox update error: " + item.id))
+                .run();
+        }
+        if (!retry) {
+            depth.decrementAndGet();
+            failed.increment();
+            Log.warning(e, () -> "mail given up after " + item.attempts + " attempts: " + item.id);
+            item.future.completeExceptionally(e);
+            return;
+        }
+        retried.increment();
+        long delay = backoff(item.attempts);
+        Log.info(() -> "mail retry in " + delay + "ms(" + item.attempts + "): " + item.id + " " + e);
+        item.dueMillis = System.currentTimeMillis() + delay;
+        queue.offer(item);
+    }
+
+    /**
+     * @param attempts Failed count(1-)
+     * @return Delay millis(doubled each attempt up to Sys.Mail.outbox_retry_max_millis, plus jitter up to 10%)
+     */
+    static long backoff(int attempts) {
+        long delay = Math.min(Sys.Mail.outbox_retry_max_millis, Sys.Mail.outbox_retry_millis << Math.min(attempts - 1, 30));
+        return delay + ThreadLocalRandom.current()
+            .nextLong(delay / 10 + 1);
+    }
+
+    /**
+     * @return Queued and sending count
+     */
+    public static int depth() {
+        return depth.get();
+    }
+
+    /**
+     * @return Statistics
+     */
+    public static String stats() {
+        return String.format(Locale.ROOT, "Outbox depth=%d enqueued=%d sent=%d retried=%d failed=%d", depth(), enqueued.sum(), sent.sum(), retried.sum(), failed.sum());
+    }
+
+    /**
+     * wait for queued and sending messages up to Sys.Mail.outbox_drain_seconds and stop senders(a message being sent is not interrupted)
+     */
+    public static synchronized void shutdown() {
+        ExecutorService pool = senders;
+        if (pool == null) {
+            return;
+        }
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Sys.Mail.outbox_drain_seconds);
+        while (depth.get() > 0 && System.currentTimeMillis() < end) {
+            Try.r(() -> Thread.sleep(50))
+                .run();
+        }
+        senders = null;
+        pool.shutdown();
+        for (int i = Math.max(1, Sys.Mail.outbox_threads); i > 0; i--) {
+            queue.offer(new Item(null, null, 0));
+        }
+        boolean stopped = Try.s(() -> pool.awaitTermination(Math.max(1, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS))
+            .get();
+        queue.removeIf(item -> item.message == null);
+        if (!stopped) {
+            Log.warning("mail sender still sending at shutdown");
+        }
+        Log.info(Outbox::stats);
+    }
+}
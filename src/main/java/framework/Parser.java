@@ -1,11 +1,15 @@
 package framework;
 
-import java.net.URLDecoder;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import app.config.Sys;
 
 /**
  * Request parse
@@ -30,13 +34,237 @@ public interface Parser {
     }
 
     /**
-     * application/x-www-form-urlencoded
+     * application/x-www-form-urlencoded(single pass, decode percent-escapes and + as UTF-8)
      */
     class Url implements Parser {
 
         @Override
         public Map<String, List<String>> parseImpl(String text) {
-            return Stream.of(text.split("&")).map(s -> s.split("=", 2)).collect(Collectors.groupingBy(pair -> pair[0], Collectors.mapping(Try.f(pair -> URLDecoder.decode(pair[1], StandardCharsets.UTF_8.name())), Collectors.toList())));
+            Map<String, List<String>> parameters = new LinkedHashMap<>();
+            parse(text, parameters);
+            return parameters;
+        }
+
+        /**
+         * @param text Query string or form text
+         * @param parameters Parameters to add
+         */
+        public static void parse(String text, Map<String, List<String>> parameters) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            Decoder decoder = new Decoder(parameters);
+            if (decoder.write(bytes, 0, bytes.length)) {
+                decoder.close();
+            }
+        }
+
+        /**
+         * @param in Form body
+         * @param parameters Parameters to add
+         * @return Read bytes(0 if the body is empty or already consumed)
+         * @throws IOException IO error
+         */
+        public static long parse(InputStream in, Map<String, List<String>> parameters) throws IOException {
+            Decoder decoder = new Decoder(parameters);
+            byte[] bytes = new byte[8192];
+            long read = 0;
+            for (int n; (n = in.read(bytes)) > 0;) {
+                read += n;
+                if (!decoder.write(bytes, 0, n)) {
+                    return read;
+                }
+            }
+            decoder.close();
+            return read;
+        }
+
+        /**
+         * Incremental decoder(limited by Sys.request_max_parameters and Sys.request_max_form_bytes)
+         */
+        static class Decoder {
+
+            /**
+             * Parameters to add
+             */
+            final Map<String, List<String>> parameters;
+
+            /**
+             * Decoded bytes of current name or value
+             */
+            byte[] buffer = new byte[64];
+
+            /**
+             * Decoded length
+             */
+            int length;
+
+            /**
+             * Current name(null if reading name)
+             */
+            String name;
+
+            /**
+             * 0: normal, 1: after %, 2: after % and a hex digit
+             */
+            int state;
+
+            /**
+             * First hex digit(raw byte)
+             */
+            int high;
+
+            /**
+             * Parameter count
+             */
+            int count;
+
+            /**
+             * Read bytes
+             */
+            long total;
+
+            /**
+             * @param parameters Parameters to add
+             */
+            Decoder(Map<String, List<String>> parameters) {
+                this.parameters = parameters;
+            }
+
+            /**
+             * @param bytes Encoded bytes
+             * @param offset Start index
+             * @param end End index(exclusive)
+             * @return False if limit exceeded(input up to the limit is decoded, the rest is ignored)
+             */
+            boolean write(byte[] bytes, int offset, int end) {
+                long rest = Sys.request_max_form_bytes - total;
+                boolean over = end - offset > rest;
+                if (over) {
+                    end = offset + (int) Math.max(rest, 0);
+                }
+                total += end - offset;
+                if (!decode(bytes, offset, end)) {
+                    return false;
+                }
+                if (over) {
+                    Log.info("413 payload too large: over " + Sys.request_max_form_bytes + " bytes");
+                    return false;
+                }
+                return true;
+            }
+
+            /**
+             * @param bytes Encoded bytes
+             * @param offset Start index
+             * @param end End index(exclusive)
+             * @return False if limit exceeded
+             */
+            boolean decode(byte[] bytes, int offset, int end) {
+                for (int i = offset; i < end; i++) {
+                    int c = bytes[i] & 0xff;
+                    if (state > 0) {
+                        int digit = Character.digit(c, 16);
+                        if (digit >= 0 && state == 1) {
+                            high = c;
+                            state = 2;
+                            continue;
+                        }
+                        if (digit >= 0) {
+                            append((Character.digit(high, 16) << 4) | digit);
+                            state = 0;
+                            continue;
+                        }
+                        flush();
+                    }
+                    switch (c) {
+                    case '&':
+                        if (!pair()) {
+                            return false;
+                        }
+                        break;
+                    case '=':
+                        if (name == null) {
+                            name = string();
+                        } else {
+                            append(c);
+                        }
+                        break;
+                    case '+':
+                        append(' ');
+                        break;
+                    case '%':
+                        state = 1;
+                        break;
+                    default:
+                        append(c);
+                        break;
+                    }
+                }
+                return true;
+            }
+
+            /**
+             * end of input
+             */
+            void close() {
+                flush();
+                pair();
+            }
+
+            /**
+             * output incomplete percent-escape as is
+             */
+            void flush() {
+                if (state > 0) {
+                    append('%');
+                    if (state == 2) {
+                        append(high);
+                    }
+                    state = 0;
+                }
+            }
+
+            /**
+             * @param b Decoded byte
+             */
+            void append(int b) {
+                if (length >= buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                buffer[length++] = (byte) b;
+            }
+
+            /**
+             * @return Decoded text(buffer is reset)
+             */
+            String string() {
+                String text = new String(buffer, 0, length, StandardCharsets.UTF_8);
+                length = 0;
+                return text;
+            }
+
+            /**
+             * add current pair
+             *
+             * @return False if limit exceeded
+             */
+            boolean pair() {
+                flush();
+                if (name == null && length <= 0) {
+                    return true;
+                }
+                if (++count > Sys.request_max_parameters) {
+                    Log.info("413 too many parameters: over " + Sys.request_max_parameters);
+                    return false;
+                }
+                String value = string();
+                if (name == null) {
+                    Tool.addValue(parameters, value, "", ArrayList::new);
+                } else {
+                    Tool.addValue(parameters, name, value, ArrayList::new);
+                    name = null;
+                }
+                return true;
+            }
         }
     }
 
@@ -0,0 +1,529 @@
+package framework;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
+
+import app.config.Sys;
+import framework.Db.ResultSetSpliterator;
+
+/**
+ * Query result cache(opt-in by {@link Db.Query#cache()}, invalidated by table)
+ */
+public class QueryCache {
+
+    /**
+     * Eviction policy
+     */
+    public enum Eviction {
+        /**
+         * Least recently used
+         */
+        LRU,
+        /**
+         * Least frequently used
+         */
+        LFU,
+    }
+
+    /**
+     * Cache store interface
+     */
+    public interface Store extends AutoCloseable {
+
+        /**
+         * @param key Key
+         * @return Entry(empty if not exists or expired)
+         */
+        Optional<Entry> get(String key);
+
+        /**
+         * @param key Key
+         * @param entry Entry
+         */
+        void put(String key, Entry entry);
+
+        /**
+         * @param table Table name(lower case)
+         * @return Removed entries
+         */
+        int invalidate(String table);
+
+        /**
+         * remove all entries
+         */
+        void clear();
+
+        /**
+         * @return Entry count
+         */
+        int size();
+    }
+
+    /**
+     * Cache entry
+     */
+    public static class Entry {
+
+        /**
+         * Cached rows
+         */
+        final CachedRowSet rows;
+
+        /**
+         * Tables(lower case)
+         */
+        final Set<String> tables;
+
+        /**
+         * Expire time millis
+         */
+        final long expireAt;
+
+        /**
+         * Hit count
+         */
+        final AtomicLong hits = new AtomicLong();
+
+        /**
+         * Last access millis
+         */
+        volatile long lastAccess = System.currentTimeMillis();
+
+        /**
+         * @param rows Cached rows
+         * @param tables Tables(lower case)
+         * @param ttlMillis Time to live milliseconds
+         */
+        Entry(CachedRowSet rows, Set<String> tables, long ttlMillis) {
+            this.rows = rows;
+            this.tables = tables;
+            this.expireAt = lastAccess + ttlMillis;
+        }
+
+        /**
+         * @param now Current millis
+         * @return True if expired
+         */
+        boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+
+    /**
+     * In-memory store(LRU or LFU bounded by Sys.Db.cache_max_entries)
+     */
+    public static class Memory implements Store {
+
+        /**
+         * Entries(access ordered)
+         */
+        final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Table to keys
+         */
+        final Map<String, Set<String>> tableKeys = new HashMap<>();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.QueryCache.Store#get(java.lang.String)
+         */
+        @Override
+        public synchronized Optional<Entry> get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            long now = System.currentTimeMillis();
+            if (entry.isExpired(now)) {
+                remove(key);
+                expirations.increment();
+                return Optional.empty();
+            }
+            entry.hits.incrementAndGet();
+            entry.lastAccess = now;
+            return Optional.of(entry);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.QueryCache.Store#put(java.lang.String, framework.QueryCache.Entry)
+         */
+        @Override
+        public synchronized void put(String key, Entry entry) {
+            remove(key);
+            int max = Sys.Db.cache_max_entries;
+            while (max > 0 && entries.size() >= max) {
+                remove(victim());
+                evictions.increment();
+            }
+            entries.put(key, entry);
+            entry.tables.forEach(table -> tableKeys.computeIfAbsent(table, k -> new HashSet<>())
+                .add(key));
+        }
+
+        /**
+         * @return Key to evict
+         */
+        String victim() {
+            Iterator<Map.Entry<String, Entry>> i = entries.entrySet()
+                .iterator();
+            Map.Entry<String, Entry> victim = i.next();
+            if (Sys.Db.cache_eviction == Eviction.LFU) {
+                while (i.hasNext()) {
+                    Map.Entry<String, Entry> e = i.next();
+                    if (e.getValue().hits.get() < victim.getValue().hits.get()) {
+                        victim = e;
+                    }
+                }
+            }
+            return victim.getKey();
+        }
+
+        /**
+         * @param key Key
+         */
+        void remove(String key) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                entry.tables.forEach(table -> Tool.of(tableKeys.get(table))
+                    .ifPresent(keys -> {
+                        keys.remove(key);
+                        if (keys.isEmpty()) {
+                            tableKeys.remove(table);
+                        }
+                    }));
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.QueryCache.Store#invalidate(java.lang.String)
+         */
+        @Override
+        public synchronized int invalidate(String table) {
+            Set<String> keys = tableKeys.remove(table);
+            if (keys == null) {
+                return 0;
+            }
+            for (String key : keys.toArray(new String[keys.size()])) {
+                remove(key);
+            }
+            return keys.size();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.QueryCache.Store#clear()
+         */
+        @Override
+        public synchronized void clear() {
+            entries.clear();
+            tableKeys.clear();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.QueryCache.Store#size()
+         */
+        @Override
+        public synchronized int size() {
+            return entries.size();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            clear();
+        }
+    }
+
+    /**
+     * Store factory
+     */
+    public static Supplier<Store> factory = () -> (Store) Reflector.instance(Sys.Db.cache_store);
+
+    /**
+     * Store
+     */
+    static final Lazy<Store> store = new Lazy<>(() -> factory.get());
+
+    /**
+     * RowSet factory
+     */
+    static final Lazy<RowSetFactory> rowSetFactory = new Lazy<>(Try.s(RowSetProvider::newFactory));
+
+    /**
+     * Hit count
+     */
+    public static final LongAdder hits = new LongAdder();
+
+    /**
+     * Miss count
+     */
+    public static final LongAdder misses = new LongAdder();
+
+    /**
+     * Eviction count
+     */
+    public static final LongAdder evictions = new LongAdder();
+
+    /**
+     * Expiration count
+     */
+    public static final LongAdder expirations = new LongAdder();
+
+    /**
+     * Invalidated entry count
+     */
+    public static final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Invalidation count by table(lower case)
+     */
+    static final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Clear count
+     */
+    static final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Table names in select statement
+     */
+    static final Pattern readTables = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+([\\w.$\"`\\[\\]]+(?:\\s+(?:AS\\s+)?\\w+)?(?:\\s*,\\s*[\\w.$\"`\\[\\]]+(?:\\s+(?:AS\\s+)?\\w+)?)*)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Table name of write statement
+     */
+    static final Pattern writeTable = Pattern.compile("^\\s*(?:INSERT\\s+(?:IGNORE\\s+)?INTO|UPDATE|DELETE\\s+FROM|DELETE|TRUNCATE\\s+TABLE|MERGE\\s+INTO|REPLACE\\s+INTO)\\s+([\\w.$\"`\\[\\]]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Select statement
+     */
+    static final Pattern select = Pattern.compile("^\\s*(?:SELECT|WITH)\\b", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * @return Hit ratio(0.0 - 1.0)
+     */
+    public static double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * @return Statistics
+     */
+    public static String stats() {
+        return String.format(Locale.ROOT, "QueryCache entries=%d hits=%d misses=%d ratio=%.3f evictions=%d expirations=%d invalidations=%d", store.instance.map(Store::size)
+            .orElse(0), hits.sum(), misses.sum(), hitRatio(), evictions.sum(), expirations.sum(), invalidations.sum());
+    }
+
+    /**
+     * @param name Table name(schema, quote, alias allowed)
+     * @return Normalized table name
+     */
+    static String normalize(String name) {
+        String table = name.trim()
+            .split("\\s+")[0].replaceAll("[\"`\\[\\]]", "")
+            .toLowerCase(Locale.ROOT);
+        int dot = table.lastIndexOf('.');
+        return dot < 0 ? table : table.substring(dot + 1);
+    }
+
+    /**
+     * @param sql Select SQL
+     * @return Referenced tables(lower case)
+     */
+    static Set<String> tables(String sql) {
+        Set<String> tables = new HashSet<>();
+        Matcher m = readTables.matcher(sql);
+        while (m.find()) {
+            for (String table : m.group(1)
+                .split(",")) {
+                tables.add(normalize(table));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @param sql Write SQL
+     * @return Table(lower case, empty if unknown)
+     */
+    static Optional<String> writeTable(String sql) {
+        Matcher m = writeTable.matcher(sql);
+        return m.find() ? Optional.of(normalize(m.group(1))) : Optional.empty();
+    }
+
+    /**
+     * @param tables Tables(lower case)
+     * @return Version of tables(changed if any table invalidated or cache cleared)
+     */
+    static long version(Set<String> tables) {
+        long version = generation.get();
+        for (String table : tables) {
+            version += versions.computeIfAbsent(table, k -> new AtomicLong())
+                .get();
+        }
+        return version;
+    }
+
+    /**
+     * query with cache
+     *
+     * @param db Database
+     * @param sql Select SQL
+     * @param ttlMillis Time to live milliseconds
+     * @return ResultSet stream
+     */
+    static Stream<ResultSet> stream(Db db, String sql, long ttlMillis) {
+        Set<String> tables = tables(sql);
+        if (ttlMillis <= 0 || tables.isEmpty() || !Collections.disjoint(tables, db.writtenTables)) {
+            /* not cache uncommitted data */
+            return db.stream(sql);
+        }
+        String key = db.url() + '\n' + sql;
+        Optional<Entry> cached = store.get()
+            .get(key);
+        if (cached.isPresent()) {
+            hits.increment();
+            Log.info(sql + "; -- cached");
+            return stream(Try.s(() -> (CachedRowSet) cached.get().rows.createShared())
+                .get());
+        }
+        misses.increment();
+        long version = version(tables);
+        CachedRowSet rows;
+        Log.info(sql + ";");
+        try (PreparedStatement ps = db.getConnection()
+            .prepareStatement(sql)) {
+            long start = System.nanoTime();
+            try (ResultSet rs = ps.executeQuery()) {
+                long executed = System.nanoTime();
+                rows = rowSetFactory.get()
+                    .createCachedRowSet();
+                rows.populate(rs);
+                SqlTrace.record(db, sql, 0, executed - start, System.nanoTime() - executed, rows.size());
+            }
+        } catch (SQLException e) {
+            Try.r(db.getConnection()::rollback)
+                .run();
+            throw new UncheckedSQLException(e);
+        }
+        if (version == version(tables)) {
+            store.get()
+                .put(key, new Entry(rows, tables, ttlMillis));
+        } else {
+            /* written while querying: rows may be stale */
+            Log.config(() -> "query cache skipped: " + tables);
+        }
+        return stream(Try.s(() -> (CachedRowSet) rows.createShared())
+            .get());
+    }
+
+    /**
+     * @param rows Shared rows
+     * @return ResultSet stream(not close shared rows)
+     */
+    static Stream<ResultSet> stream(CachedRowSet rows) {
+        Try.r(rows::beforeFirst)
+            .run();
+        return StreamSupport.stream(new ResultSetSpliterator(rows) {
+            @Override
+            public void close() {
+                /* close clears the rows shared with the cache */
+                rs = null;
+            }
+        }, false);
+    }
+
+    /**
+     * called after write statement
+     *
+     * @param db Database
+     * @param sql Executed SQL
+     */
+    static void written(Db db, String sql) {
+        if (select.matcher(sql)
+            .find()) {
+            return;
+        }
+        Optional<String> table = writeTable(sql);
+        if (table.isPresent()) {
+            db.writtenTables.add(table.get());
+            invalidate(table.get());
+        } else {
+            /* DDL or unknown statement */
+            clear();
+        }
+    }
+
+    /**
+     * called after commit or rollback
+     *
+     * @param db Database
+     */
+    static void release(Db db) {
+        if (!db.writtenTables.isEmpty()) {
+            db.writtenTables.forEach(QueryCache::invalidate);
+            db.writtenTables.clear();
+        }
+    }
+
+    /**
+     * @param table Table name
+     */
+    public static void invalidate(String table) {
+        String name = normalize(table);
+        versions.computeIfAbsent(name, k -> new AtomicLong())
+            .incrementAndGet();
+        store.ifGot(s -> invalidations.add(s.invalidate(name)));
+    }
+
+    /**
+     * remove all entries
+     */
+    public static void clear() {
+        generation.incrementAndGet();
+        store.ifGot(s -> {
+            invalidations.add(s.size());
+            s.clear();
+        });
+    }
+}
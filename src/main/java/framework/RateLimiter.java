@@ -0,0 +1,324 @@
+package framework;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.config.Sys;
+import framework.Response.Status;
+import framework.annotation.RateLimit;
+
+/**
+ * Request rate limit per client by {@link RateLimit}(in-process token buckets or shared counters in Redis)
+ */
+public class RateLimiter {
+
+    /**
+     * Result of a request
+     */
+    public static class Decision {
+
+        /**
+         * True if allowed
+         */
+        public final boolean allowed;
+
+        /**
+         * Max requests at once
+         */
+        public final long limit;
+
+        /**
+         * Remaining requests
+         */
+        public final long remaining;
+
+        /**
+         * Seconds until full(allowed) or next request allowed(not allowed)
+         */
+        public final long reset;
+
+        /**
+         * @param allowed True if allowed
+         * @param limit Max requests at once
+         * @param remaining Remaining requests
+         * @param reset Seconds until full(allowed) or next request allowed(not allowed)
+         */
+        Decision(boolean allowed, long limit, long remaining, long reset) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.reset = reset;
+        }
+    }
+
+    /**
+     * Rate limit state store
+     */
+    public interface Store {
+
+        /**
+         * @param key Client key
+         * @param limit Requests per period
+         * @param seconds Period seconds
+         * @param burst Max requests at once
+         * @return Result
+         */
+        Decision acquire(String key, int limit, int seconds, int burst);
+    }
+
+    /**
+     * Token bucket(theoretical arrival time of GCRA: a token is added every period / limit, full if not after now)
+     */
+    static class Bucket {
+
+        /**
+         * Nano time when bucket becomes full
+         */
+        final AtomicLong full;
+
+        /**
+         * @param now Current nano time
+         */
+        Bucket(long now) {
+            full = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * In-process store(lock-free buckets, idle buckets are removed, oldest bucket is evicted if over
+     * Sys.Limit.rate_max_keys)
+     */
+    public static class Memory implements Store {
+
+        /**
+         * Key to bucket
+         */
+        final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+        /**
+         * Keys in created order
+         */
+        final Queue<String> order = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Last sweep nano time
+         */
+        final AtomicLong swept = new AtomicLong(System.nanoTime());
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.RateLimiter.Store#acquire(java.lang.String, int, int, int)
+         */
+        @Override
+        public Decision acquire(String key, int limit, int seconds, int burst) {
+            return acquire(key, limit, seconds, burst, System.nanoTime());
+        }
+
+        /**
+         * @param key Client key
+         * @param limit Requests per period
+         * @param seconds Period seconds
+         * @param burst Max requests at once
+         * @param now Current nano time
+         * @return Result
+         */
+        Decision acquire(String key, int limit, int seconds, int burst, long now) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                sweep(now);
+                for (String oldest; buckets.size() >= Sys.Limit.rate_max_keys && (oldest = order.poll()) != null;) {
+                    /* too many clients: evict oldest(not stop limiting) */
+                    buckets.remove(oldest);
+                    evicted.increment();
+                }
+                boolean[] created = { false };
+                bucket = buckets.computeIfAbsent(key, k -> {
+                    created[0] = true;
+                    return new Bucket(now);
+                });
+                if (created[0]) {
+                    order.add(key);
+                }
+            }
+            long interval = TimeUnit.SECONDS.toNanos(seconds) / limit;
+            long tolerance = interval * burst;
+            for (;;) {
+                long full = bucket.full.get();
+                long next = Math.max(full, now) + interval;
+                long used = next - now;
+                if (used > tolerance) {
+                    return new Decision(false, burst, 0, seconds(used - tolerance));
+                }
+                if (bucket.full.compareAndSet(full, next)) {
+                    return new Decision(true, burst, (tolerance - used) / interval, seconds(used));
+                }
+            }
+        }
+
+        /**
+         * remove full buckets(if over Sys.Limit.rate_max_keys or every Sys.Limit.rate_idle_seconds)
+         *
+         * @param now Current nano time
+         */
+        void sweep(long now) {
+            long last = swept.get();
+            if ((buckets.size() >= Sys.Limit.rate_max_keys || now - last > TimeUnit.SECONDS.toNanos(Sys.Limit.rate_idle_seconds)) && swept.compareAndSet(last, now)) {
+                buckets.values()
+                    .removeIf(bucket -> bucket.full.get() < now);
+                order.removeIf(key -> !buckets.containsKey(key));
+            }
+        }
+    }
+
+    /**
+     * Shared store(fixed window counter in Redis by INCR with TTL, burst is not supported)
+     */
+    public static class RedisStore implements Store {
+
+        /**
+         * INCR and set TTL on first request of window(returns count and remaining TTL millis)
+         */
+        static final String SCRIPT = "local c = redis.call('INCR', KEYS[1]) if c == 1 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end return {c, redis.call('PTTL', KEYS[1])}";
+
+        /**
+         * SHA-1 of SCRIPT(for EVALSHA)
+         */
+        static final String SHA = Tool.hex(Tool.digest(SCRIPT.getBytes(StandardCharsets.UTF_8), "SHA-1"));
+
+        /**
+         * Idle connections
+         */
+        final Queue<Redis> idles = new ConcurrentLinkedQueue<>();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see framework.RateLimiter.Store#acquire(java.lang.String, int, int, int)
+         */
+        @Override
+        public Decision acquire(String key, int limit, int seconds, int burst) {
+            Redis redis = idles.poll();
+            try {
+                if (redis == null) {
+                    redis = new Redis(Sys.Limit.rate_redis_host, Sys.Limit.rate_redis_port, Sys.Limit.rate_redis_timeout_millis);
+                }
+                String k = "rate:" + key;
+                String millis = String.valueOf(TimeUnit.SECONDS.toMillis(seconds));
+                redis.command("EVALSHA", SHA, "1", k, millis);
+                Map.Entry<Character, Object> response = redis.response();
+                if (response.getKey() == '-' && String.valueOf(response.getValue())
+                    .startsWith("NOSCRIPT")) {
+                    /* load script on first use */
+                    redis.command("EVAL", SCRIPT, "1", k, millis);
+                    response = redis.response();
+                }
+                if (response.getKey() != '*') {
+                    throw new IOException("unexpected response: " + response.getValue());
+                }
+                Object[] values = (Object[]) response.getValue();
+                long count = (Long) ((Map.Entry<?, ?>) values[0]).getValue();
+                long ttl = (Long) ((Map.Entry<?, ?>) values[1]).getValue();
+                idles.offer(redis);
+                return new Decision(count <= limit, limit, Math.max(0, limit - count), seconds(TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl))));
+            } catch (IOException | RuntimeException e) {
+                /* fail open */
+                Log.warning(e, () -> "rate limit redis error");
+                if (redis != null) {
+                    Try.r(redis::close, ee -> Log.config("redis close error: " + ee))
+                        .run();
+                }
+                return new Decision(true, limit, limit, 0);
+            }
+        }
+    }
+
+    /**
+     * Store by Sys.Limit.rate_store(null if not created)
+     */
+    static volatile Store store;
+
+    /**
+     * Rejected count
+     */
+    public static final LongAdder limited = new LongAdder();
+
+    /**
+     * Evicted bucket count(over Sys.Limit.rate_max_keys)
+     */
+    public static final LongAdder evicted = new LongAdder();
+
+    /**
+     * @return Store by Sys.Limit.rate_store
+     */
+    static Store store() {
+        Store s = store;
+        if (s == null) {
+            synchronized (RateLimiter.class) {
+                if (store == null) {
+                    store = (Store) Reflector.instance(Sys.Limit.rate_store);
+                }
+                s = store;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * @param nanos Nano seconds
+     * @return Seconds(rounded up)
+     */
+    static long seconds(long nanos) {
+        return (nanos + 999999999L) / 1000000000L;
+    }
+
+    /**
+     * @param request Request
+     * @return Client IP(client IP headers only if Sys.Limit.rate_trust_forwarded, else peer address)
+     */
+    static String ip(Request request) {
+        return Sys.Limit.rate_trust_forwarded ? request.getRemoteIp() : Tool.string(request.getRemoteAddr())
+            .orElse("unknown");
+    }
+
+    /**
+     * check rate limit of route and respond 429 if exceeded
+     *
+     * @param method Route method
+     * @param request Request
+     * @param session Session
+     * @return True if allowed
+     */
+    public static boolean check(Method method, Request request, Session session) {
+        RateLimit rate = Tool.or(method.getAnnotation(RateLimit.class), () -> method.getDeclaringClass()
+            .getAnnotation(RateLimit.class))
+            .orElse(null);
+        if (rate == null || rate.value() <= 0) {
+            return true;
+        }
+        String client = rate.by() == RateLimit.By.ACCOUNT && session.isLoggedIn() ? "a:" + session.getAccount().id : "i:" + ip(request);
+        Decision decision = store()
+            .acquire(method.getDeclaringClass()
+                .getName() + "." + method.getName() + ":" + client, rate.value(), Math.max(1, rate.seconds()), rate.burst() > 0 ? rate.burst() : rate.value());
+        if (decision.allowed) {
+            return true;
+        }
+        limited.increment();
+        Log.info(() -> "rate limited: " + client);
+        Response.error(Status.Too_Many_Requests)
+            .setHeader("RateLimit-Limit", String.valueOf(decision.limit))
+            .setHeader("RateLimit-Remaining", String.valueOf(decision.remaining))
+            .setHeader("RateLimit-Reset", String.valueOf(decision.reset))
+            .setHeader("Retry-After", String.valueOf(decision.reset))
+            .flush();
+        return false;
+    }
+}
@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
@@ -52,7 +53,19 @@ public class Redis implements AutoCloseable {
      * @throws IOException I/O error
      */
     public Redis(String host, int port) throws IOException {
-        socket = new Socket(host, port);
+        this(host, port, 0);
+    }
+
+    /**
+     * @param host Redis Host
+     * @param port Redis port
+     * @param timeoutMillis Connect and read timeout milliseconds(infinite if 0)
+     * @throws IOException I/O error(also timed out)
+     */
+    public Redis(String host, int port, int timeoutMillis) throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+        socket.setSoTimeout(timeoutMillis);
         in = new BufferedInputStream(socket.getInputStream());
         out = new BufferedOutputStream(socket.getOutputStream());
     }
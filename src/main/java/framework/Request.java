@@ -18,6 +18,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,6 +47,31 @@ public abstract class Request implements Attributes<Object> {
         return Tool.of(CURRENT.get());
     }
 
+    /**
+     * request counter
+     */
+    transient static final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * request number(unique in this process, for access log)
+     */
+    transient final long number = sequence.incrementAndGet();
+
+    /**
+     * start time(nano seconds)
+     */
+    transient final long startNanos = System.nanoTime();
+
+    /**
+     * matched route pattern(null if static file)
+     */
+    transient String route;
+
+    /**
+     * true if metrics recorded
+     */
+    transient boolean recorded;
+
     /**
      * @return path
      */
@@ -163,7 +189,9 @@ public abstract class Request implements Attributes<Object> {
     protected abstract String getRemoteAddr();
 
     /**
-     * @return Remote IP address
+     * client IP headers are sent by clients as they like: trust only behind a proxy that overwrites them
+     *
+     * @return Remote IP address(client IP headers if exists)
      */
     public String getRemoteIp() {
         return Tool.val(getHeaders(), map -> Tool.or(Tool.getFirst(map, "X-FORWARDED-FOR")
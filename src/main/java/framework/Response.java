@@ -1,5 +1,6 @@
 package framework;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -21,11 +22,24 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -85,6 +99,7 @@ public abstract class Response {
         Range_Not_Satisfiable(416),
         Expectation_Failed(417),
         Misdirected_Request(421),
+        Too_Many_Requests(429),
         Internal_Server_Error(500),
         Not_Implemented(501),
         Bad_Gateway(502),
@@ -182,6 +197,11 @@ public abstract class Response {
      */
     Object content;
 
+    /**
+     * response cache(null if not cached route)
+     */
+    ResponseCache.Call cache;
+
     /**
      * @param content content
      * @return response
@@ -243,6 +263,22 @@ public abstract class Response {
         return of(writer).charset(StandardCharsets.UTF_8);
     }
 
+    /**
+     * @param onOpen Called on open(write and flush from any thread until close)
+     * @return response
+     */
+    public static Response stream(TryConsumer<Chunked> onOpen) {
+        return of(new Chunked(onOpen));
+    }
+
+    /**
+     * @param onOpen Called on open(send from any thread until close)
+     * @return response
+     */
+    public static Response events(TryConsumer<Events> onOpen) {
+        return of(new Events(onOpen));
+    }
+
     /**
      * @param file file
      * @return response
@@ -449,21 +485,54 @@ public abstract class Response {
         return unset[0] ? result + "; charset=" + charset.name() : result;
     }
 
+    /**
+     * keep connection after request handler returned
+     *
+     * @param onAbort Called if connection aborted
+     * @return Closer of connection(null if not supported)
+     */
+    Runnable detach(Runnable onAbort) {
+        return null;
+    }
+
     /**
      * write response
      */
     void flush() {
         boolean[] cancel = { false }; // process next writer if true
+        ResponseCache.Call call = content instanceof Chunked ? null : cache;
+        Timing.header(this);
+        long start = System.nanoTime();
+        long[] bytes = { 0 };
         writeResponse(Try.c(out -> {
+            Supplier<OutputStream> sent = AccessLog.count(out, bytes);
+            /* capture encoded body if cached route */
+            ByteArrayOutputStream buffer = call == null ? null : new ByteArrayOutputStream();
+            Supplier<OutputStream> o = buffer == null ? sent : () -> buffer;
             for (Tuple<Class<?>, TryTriConsumer<Response, Supplier<OutputStream>, boolean[]>> pair : writers) {
                 if (pair.l.isAssignableFrom(content.getClass())) {
-                    pair.r.accept(this, out, cancel);
+                    pair.r.accept(this, o, cancel);
                     if (!cancel[0]) {
                         break;
                     }
                 }
             }
+            if (buffer != null) {
+                byte[] body = buffer.toByteArray();
+                boolean send = call.store(this, body);
+                OutputStream stream = sent.get();
+                if (send) {
+                    stream.write(body);
+                }
+            }
         }));
+        Timing.add(Timing.Phase.RENDER, start);
+        Request request = Request.CURRENT.get();
+        boolean completed = Metrics.request(request, status.code);
+        String timing = Timing.end();
+        if (completed) {
+            AccessLog.write(request, Session.CURRENT.get(), status.code, bytes[0], timing);
+        }
         Log.info(this::toString);
     }
 
@@ -538,6 +607,394 @@ public abstract class Response {
         }
     }
 
+    /**
+     * Chunked stream(written by shared pusher threads, not hold a request thread while open)
+     */
+    public static class Chunked implements AutoCloseable {
+
+        /**
+         * Heartbeat and watchdog thread(not blocked by writes)
+         */
+        static final Lazy<ScheduledExecutorService> watcher = new Lazy<>(() -> {
+            ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(r -> Tool.peek(new Thread(r, "stream-watcher"), t -> t
+                .setDaemon(true)));
+            int seconds = Sys.stream_heartbeat_seconds;
+            if (seconds > 0) {
+                service.scheduleWithFixedDelay(Events::heartbeat, seconds, seconds, TimeUnit.SECONDS);
+            }
+            service.scheduleWithFixedDelay(Chunked::watch, 1, 1, TimeUnit.SECONDS);
+            return service;
+        });
+
+        /**
+         * Pusher threads
+         */
+        static final Lazy<ExecutorService> pusher = new Lazy<>(() -> {
+            watcher.get();
+            return Executors.newFixedThreadPool(Sys.stream_threads, r -> Tool.peek(new Thread(r, "stream-pusher"), t -> t.setDaemon(true)));
+        });
+
+        /**
+         * Open streams
+         */
+        static final Set<Chunked> opens = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Called on open
+         */
+        final TryConsumer<? super Chunked> onOpen;
+
+        /**
+         * Called on close
+         */
+        final List<Runnable> onCloses = new CopyOnWriteArrayList<>();
+
+        /**
+         * Not flushed bytes
+         */
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        /**
+         * Flushed but not sent chunks
+         */
+        final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Pending bytes
+         */
+        final AtomicLong pendingBytes = new AtomicLong();
+
+        /**
+         * True if a pusher is writing
+         */
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        /**
+         * True if released
+         */
+        final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * True while a write is blocked on the connection
+         */
+        volatile boolean writing;
+
+        /**
+         * Nano time of write started
+         */
+        volatile long writeStart;
+
+        /**
+         * Released signal(for synchronous stream)
+         */
+        final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * Charset
+         */
+        volatile Charset charset = StandardCharsets.UTF_8;
+
+        /**
+         * Output(null if not open)
+         */
+        volatile OutputStream out;
+
+        /**
+         * Closer of connection
+         */
+        volatile Runnable closer;
+
+        /**
+         * True if close requested
+         */
+        volatile boolean closing;
+
+        /**
+         * @param onOpen Called on open
+         */
+        Chunked(TryConsumer<? super Chunked> onOpen) {
+            this.onOpen = onOpen;
+        }
+
+        /**
+         * @param out Output
+         * @param charset Charset
+         * @param closer Closer of connection(null: block until close)
+         */
+        void open(OutputStream out, Charset charset, Runnable closer) {
+            this.charset = charset;
+            this.closer = closer;
+            this.out = out;
+            opens.add(this);
+            try {
+                onOpen.accept(this);
+            } catch (Exception e) {
+                Log.warning(e, () -> "stream open error");
+                close();
+            }
+            schedule();
+            if (closer == null) {
+                Try.r(done::await)
+                    .run();
+            }
+        }
+
+        /**
+         * @param action Called on close(also client disconnected)
+         * @return Self
+         */
+        public Chunked onClose(Runnable action) {
+            onCloses.add(action);
+            return this;
+        }
+
+        /**
+         * @return True if not closed
+         */
+        public boolean isOpen() {
+            return !closing && !released.get();
+        }
+
+        /**
+         * @param bytes Bytes(sent on flush)
+         * @return Self
+         */
+        public Chunked write(byte[] bytes) {
+            if (isOpen()) {
+                synchronized (buffer) {
+                    buffer.write(bytes, 0, bytes.length);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @param text Text(sent on flush)
+         * @return Self
+         */
+        public Chunked write(CharSequence text) {
+            return write(text.toString()
+                .getBytes(charset));
+        }
+
+        /**
+         * send written bytes
+         *
+         * @return Self
+         */
+        public Chunked flush() {
+            byte[] bytes;
+            synchronized (buffer) {
+                bytes = buffer.toByteArray();
+                buffer.reset();
+            }
+            if (bytes.length > 0 && !released.get()) {
+                if (pendingBytes.addAndGet(bytes.length) > Sys.stream_max_pending_bytes) {
+                    Log.info("stream disconnected(too slow client): " + pendingBytes.get() + " bytes pending");
+                    release();
+                    return this;
+                }
+                pending.add(bytes);
+            }
+            schedule();
+            return this;
+        }
+
+        /**
+         * start pusher if not running
+         */
+        void schedule() {
+            if (out != null && draining.compareAndSet(false, true)) {
+                if (closer == null) {
+                    drain();
+                } else {
+                    pusher.get()
+                        .execute(this::drain);
+                }
+            }
+        }
+
+        /**
+         * write pending chunks(one pusher at a time)
+         */
+        void drain() {
+            try {
+                do {
+                    boolean written = false;
+                    for (byte[] bytes; (bytes = pending.poll()) != null;) {
+                        send(bytes);
+                        pendingBytes.addAndGet(-bytes.length);
+                        written = true;
+                    }
+                    if (written) {
+                        send(null);
+                    }
+                    if (closing && pending.isEmpty()) {
+                        release();
+                    }
+                    draining.set(false);
+                } while ((closing || !pending.isEmpty()) && !released.get() && draining.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                Log.config("stream disconnected: " + e);
+                draining.set(false);
+                release();
+            }
+        }
+
+        /**
+         * @param bytes Bytes(flush if null)
+         * @throws IOException I/O error(also connection closed by write timeout)
+         */
+        void send(byte[] bytes) throws IOException {
+            writeStart = System.nanoTime();
+            writing = true;
+            try {
+                if (bytes == null) {
+                    out.flush();
+                } else {
+                    out.write(bytes);
+                }
+            } finally {
+                writing = false;
+            }
+        }
+
+        /**
+         * disconnect streams of slow clients(blocked write over Sys.stream_write_timeout_seconds or unsent bytes over
+         * Sys.stream_max_pending_bytes)
+         */
+        static void watch() {
+            long timeout = TimeUnit.SECONDS.toNanos(Sys.stream_write_timeout_seconds);
+            long now = System.nanoTime();
+            opens.forEach(stream -> {
+                if (stream.writing && timeout > 0 && now - stream.writeStart > timeout) {
+                    Log.info("stream disconnected(write timeout): " + stream.pendingBytes.get() + " bytes pending");
+                    /* closing its own connection fails the blocked write, the pusher thread is not touched */
+                    stream.release();
+                } else if (stream.pendingBytes.get() > Sys.stream_max_pending_bytes) {
+                    Log.info("stream disconnected(too slow client): " + stream.pendingBytes.get() + " bytes pending");
+                    stream.release();
+                }
+            });
+        }
+
+        /**
+         * close connection and call onClose actions(once)
+         */
+        void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            opens.remove(this);
+            pending.clear();
+            Tool.of(closer)
+                .ifPresent(c -> Try.r(c::run, e -> Log.config("stream close error: " + e))
+                    .run());
+            onCloses.forEach(Try.c(Runnable::run, (e, action) -> Log.warning(e, () -> "stream onClose error")));
+            done.countDown();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            flush();
+            closing = true;
+            schedule();
+        }
+
+        /**
+         * close all streams and stop pushers
+         */
+        public static void shutdown() {
+            opens.forEach(Chunked::release);
+            watcher.ifGot(ExecutorService::shutdownNow);
+            pusher.ifGot(ExecutorService::shutdownNow);
+        }
+    }
+
+    /**
+     * Server-sent events stream
+     */
+    public static class Events extends Chunked {
+
+        /**
+         * Line separator of data
+         */
+        static final Pattern newline = Pattern.compile("\r\n|\r|\n");
+
+        /**
+         * @param onOpen Called on open
+         */
+        Events(TryConsumer<? super Events> onOpen) {
+            super(stream -> onOpen.accept((Events) stream));
+        }
+
+        /**
+         * @param event Event name(null if message)
+         * @param id Event id(null if none)
+         * @param data Data(each line is a data field)
+         * @return Self
+         */
+        public Events send(String event, String id, Object data) {
+            StringBuilder s = new StringBuilder();
+            if (event != null) {
+                s.append("event: ").append(event).append('\n');
+            }
+            if (id != null) {
+                s.append("id: ").append(id).append('\n');
+            }
+            for (String line : newline.split(String.valueOf(data), -1)) {
+                s.append("data: ").append(line).append('\n');
+            }
+            write(s.append('\n'));
+            flush();
+            return this;
+        }
+
+        /**
+         * @param data Data
+         * @return Self
+         */
+        public Events send(Object data) {
+            return send(null, null, data);
+        }
+
+        /**
+         * @param millis Reconnection time
+         * @return Self
+         */
+        public Events retry(long millis) {
+            write("retry: " + millis + "\n\n");
+            flush();
+            return this;
+        }
+
+        /**
+         * @param text Comment(ignored by client)
+         * @return Self
+         */
+        public Events comment(String text) {
+            write(":" + text + "\n\n");
+            flush();
+            return this;
+        }
+
+        /**
+         * send heartbeat to all open events streams(keep proxies from closing idle connection)
+         */
+        static void heartbeat() {
+            opens.forEach(stream -> {
+                if (stream instanceof Events) {
+                    ((Events) stream).comment("");
+                }
+            });
+        }
+    }
+
     /**
      * writer
      */
@@ -588,6 +1045,18 @@ public abstract class Response {
      * body writer
      */
     public static final List<Tuple<Class<?>, TryTriConsumer<Response, Supplier<OutputStream>, boolean[]>>> writers = Tool.list(//
+        Tuple.of(Chunked.class, (response, out, cancel) -> {
+            Chunked stream = (Chunked) response.content;
+            response.contentTypeIfEmpty(stream instanceof Events ? Content.EVENT_STREAM : Content.TEXT, response.charset());
+            response.headers.putIfAbsent("Cache-Control", Tool.list("no-cache"));
+            response.setHeader("X-Accel-Buffering", "no");
+            Runnable closer = response.detach(stream::release);
+            if (closer != null) {
+                /* concurrency permits are released on stream close */
+                stream.onClose(Limiter.defer());
+            }
+            stream.open(out.get(), response.charset(), closer);
+        }), //
         Tuple.of(Writer.class, (response, out, cancel) -> {
             response.contentTypeIfEmpty(Content.TEXT, response.charset());
             try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(out.get(), response.charset()))) {
@@ -697,6 +1166,7 @@ public abstract class Response {
             Template template = (Template) response.content;
             response.contentTypeIfEmpty(Tool.getContentType(template.name), response.charset());
             URL url = (template.name.startsWith("/") ? Tool.toURL(template.name) : Tool.toURL(Sys.template_folder, template.name)).get();
+            long start = System.nanoTime();
             try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(out.get(), response.charset()));
                  Stream<String> lines = Tool.lines(url.openStream());
                  Formatter formatter = new Formatter(Formatter::excludeForHtml, Tool::htmlEscape, response.locale(), response.map)) {
@@ -705,18 +1175,26 @@ public abstract class Response {
                         Tool.printReplace(writer, line, template.replacer, "#{", "}", "${", "}", "<!--{", "}-->", "/*{", "}*/", "{/*", "*/}");
                         writer.println();
                     });
+            } finally {
+                Metrics.template.record(System.nanoTime() - start);
             }
         }), //
         Tuple.of(Render.class, (response, out, cancel) -> {
             Render render = (Render) response.content;
             response.contentTypeIfEmpty(Tool.getContentType(render.file), response.charset());
             URL url = (render.file.startsWith("/") ? Tool.toURL(render.file) : Tool.toURL(Sys.template_folder, render.file)).get();
+            long start = System.nanoTime();
             try (InputStream in = url.openStream();
                  Formatter formatter = new Formatter(Formatter::excludeForHtml, Tool::htmlEscape, response.locale(), response.map)) {
-                out.get()
-                    .write(Xml.parseMap(formatter.format(Tool.loadText(in)), render.renders)
-                        .toString()
-                        .getBytes(response.charset()));
+                String source = formatter.format(Tool.loadText(in));
+                if (Sys.render_streaming) {
+                    Xml.rewrite(source, render.renders, out.get(), response.charset());
+                } else {
+                    Xml.parseMap(source, render.renders)
+                        .write(out.get(), response.charset());
+                }
+            } finally {
+                Metrics.template.record(System.nanoTime() - start);
             }
         }), //
         Tuple.of(Object.class, (response, out, cancel) -> {
@@ -0,0 +1,433 @@
+package framework;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import app.config.Sys;
+import framework.Response.Status;
+import framework.annotation.Cached;
+import framework.annotation.Only;
+import framework.annotation.Route;
+
+/**
+ * Whole response cache of {@link Cached} route(encoded body and headers, concurrent misses wait for one computation)
+ */
+public class ResponseCache {
+
+    /**
+     * Cached response
+     */
+    public static class Entry {
+
+        /**
+         * Headers
+         */
+        final Map<String, List<String>> headers;
+
+        /**
+         * Encoding
+         */
+        final Optional<Charset> charset;
+
+        /**
+         * Encoded body
+         */
+        final byte[] body;
+
+        /**
+         * Entity tag(quoted)
+         */
+        final String etag;
+
+        /**
+         * Expire time millis
+         */
+        final long expireAt;
+
+        /**
+         * @param headers Headers
+         * @param charset Encoding
+         * @param body Encoded body
+         * @param ttlMillis Time to live milliseconds
+         */
+        Entry(Map<String, List<String>> headers, Optional<Charset> charset, byte[] body, long ttlMillis) {
+            this.headers = headers;
+            this.charset = charset;
+            this.body = body;
+            this.etag = '"' + Tool.hex(Tool.digest(body, "SHA-1")) + '"';
+            this.expireAt = System.currentTimeMillis() + ttlMillis;
+        }
+
+        /**
+         * @param now Current millis
+         * @return Remaining seconds(rounded up, 0 if expired)
+         */
+        long maxAge(long now) {
+            return Math.max(0, (expireAt - now + 999) / 1000);
+        }
+    }
+
+    /**
+     * Entries of a route(least recently used is evicted)
+     */
+    @SuppressWarnings("serial")
+    static class Store extends LinkedHashMap<String, Entry> {
+
+        /**
+         * Max entries
+         */
+        final int max;
+
+        /**
+         * @param max Max entries
+         */
+        Store(int max) {
+            super(16, 0.75f, true);
+            this.max = max;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > max) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Route method to entries
+     */
+    static final Map<Method, Store> stores = new ConcurrentHashMap<>();
+
+    /**
+     * Key to computing response
+     */
+    static final Map<String, CompletableFuture<Entry>> computing = new ConcurrentHashMap<>();
+
+    /**
+     * Headers not to cache(Server-Timing is of the computing request, hits get their own)
+     */
+    static final List<String> excludeHeaders = Tool.list("Set-Cookie", "Pragma", "Expires", "Content-Length", "Server-Timing");
+
+    /**
+     * Hit count
+     */
+    public static final LongAdder hits = new LongAdder();
+
+    /**
+     * Miss count
+     */
+    public static final LongAdder misses = new LongAdder();
+
+    /**
+     * Count of requests waited for other computation
+     */
+    public static final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Eviction count
+     */
+    public static final LongAdder evictions = new LongAdder();
+
+    /**
+     * Cache access of a request
+     */
+    public static class Call {
+
+        /**
+         * Setting
+         */
+        final Cached cached;
+
+        /**
+         * Entries
+         */
+        final Store store;
+
+        /**
+         * Key
+         */
+        final String key;
+
+        /**
+         * If-None-Match header
+         */
+        final String ifNoneMatch;
+
+        /**
+         * True if not to store in shared caches(Cache-Control: private)
+         */
+        final boolean isPrivate;
+
+        /**
+         * Computing response(null if not computed by this request)
+         */
+        CompletableFuture<Entry> future;
+
+        /**
+         * @param cached Setting
+         * @param store Entries
+         * @param key Key
+         * @param ifNoneMatch If-None-Match header
+         * @param isPrivate True if not to store in shared caches
+         */
+        Call(Cached cached, Store store, String key, String ifNoneMatch, boolean isPrivate) {
+            this.cached = cached;
+            this.store = store;
+            this.key = key;
+            this.ifNoneMatch = ifNoneMatch;
+            this.isPrivate = isPrivate;
+        }
+
+        /**
+         * @return Fresh entry(null if not exists)
+         */
+        Entry get() {
+            synchronized (store) {
+                Entry entry = store.get(key);
+                if (entry != null && System.currentTimeMillis() >= entry.expireAt) {
+                    store.remove(key);
+                    return null;
+                }
+                return entry;
+            }
+        }
+
+        /**
+         * respond from cache or become the computing request
+         *
+         * @return True if responded from cache
+         */
+        public boolean replay() {
+            Entry entry = get();
+            if (entry == null) {
+                CompletableFuture<Entry> mine = new CompletableFuture<>();
+                CompletableFuture<Entry> other = computing.putIfAbsent(key, mine);
+                if (other == null) {
+                    entry = get();
+                    if (entry == null) {
+                        misses.increment();
+                        future = mine;
+                        return false;
+                    }
+                    /* completed just before */
+                    computing.remove(key, mine);
+                    mine.complete(entry);
+                } else {
+                    collapsed.increment();
+                    try {
+                        entry = other.get(Sys.response_cache_wait_seconds, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        Log.config(() -> "response cache wait failed: " + key + " " + e);
+                    }
+                    if (entry == null) {
+                        misses.increment();
+                        return false;
+                    }
+                }
+            }
+            hits.increment();
+            Response response = Response.of(entry.body);
+            response.charset = entry.charset;
+            response.headers.clear();
+            entry.headers.forEach((name, values) -> response.headers.put(name, new ArrayList<>(values)));
+            respond(response, entry);
+            response.flush();
+            return true;
+        }
+
+        /**
+         * @param response Response
+         * @param entry Entry
+         * @return True if body to send(false if not modified)
+         */
+        boolean respond(Response response, Entry entry) {
+            long now = System.currentTimeMillis();
+            response.setHeader("Cache-Control", (isPrivate ? "private" : "public") + ", max-age=" + entry.maxAge(now))
+                .setHeader("ETag", entry.etag);
+            if (cached.headers().length > 0) {
+                response.setHeader("Vary", String.join(", ", cached.headers()));
+            }
+            if (ifNoneMatch != null && Stream.of(ifNoneMatch.split("\\s*,\\s*"))
+                .anyMatch(tag -> tag.equals(entry.etag) || tag.equals("W/" + entry.etag) || tag.equals("*"))) {
+                response.status(Status.Not_Modified);
+                response.content = new byte[0];
+                return false;
+            }
+            response.setHeader("Content-Length", String.valueOf(entry.body.length));
+            return true;
+        }
+
+        /**
+         * store captured response(called on flush of computing request)
+         *
+         * @param response Response
+         * @param body Encoded body
+         * @return True if body to send(false if not modified)
+         */
+        boolean store(Response response, byte[] body) {
+            if (future == null || response.status != Status.OK) {
+                release();
+                response.setHeader("Content-Length", String.valueOf(body.length));
+                return true;
+            }
+            Map<String, List<String>> headers = new HashMap<>();
+            response.headers.forEach((name, values) -> {
+                if (excludeHeaders.stream()
+                    .noneMatch(name::equalsIgnoreCase)) {
+                    headers.put(name, new ArrayList<>(values));
+                }
+            });
+            Entry entry = new Entry(headers, response.charset, body, TimeUnit.SECONDS.toMillis(cached.value()));
+            synchronized (store) {
+                store.put(key, entry);
+            }
+            release(entry);
+            response.headers.remove("Pragma");
+            response.headers.remove("Expires");
+            return respond(response, entry);
+        }
+
+        /**
+         * wake waiting requests(they compute by themselves if not stored)
+         *
+         * @param entry Entry(null if not stored)
+         */
+        void release(Entry entry) {
+            CompletableFuture<Entry> f = future;
+            if (f != null) {
+                future = null;
+                computing.remove(key, f);
+                f.complete(entry);
+            }
+        }
+
+        /**
+         * release if not stored
+         */
+        public void release() {
+            release(null);
+        }
+    }
+
+    /**
+     * @param method Route method
+     * @param request Request
+     * @param session Session
+     * @param parameters Parameters
+     * @return Cache access(null if not cacheable)
+     */
+    public static Call call(Method method, Request request, Session session, Map<String, List<String>> parameters) {
+        Cached cached = method.getAnnotation(Cached.class);
+        Route.Method m = request.getMethod();
+        if (cached == null || cached.value() <= 0 || (m != Route.Method.GET && m != Route.Method.HEAD)) {
+            return null;
+        }
+        Map<String, List<String>> headers = request.getHeaders();
+        String key = key(method, request.getPath(), cached, parameters, name -> Tool.getFirst(headers, name)
+            .orElse(null), cached.role() && session.isLoggedIn() ? Stream.of(session.getAccount().roles)
+                .map(Class::getName)
+                .sorted()
+                .collect(Collectors.joining(",")) : "");
+        return new Call(cached, stores.computeIfAbsent(method, k -> new Store(Math.max(1, cached.max()))), key, Tool.getFirst(headers, "If-None-Match")
+            .orElse(null), isPrivate(method, cached, session));
+    }
+
+    /**
+     * @param method Route method
+     * @param cached Setting
+     * @param session Session
+     * @return True if response is for authenticated users(role, {@link Only} or logged in)
+     */
+    static boolean isPrivate(Method method, Cached cached, Session session) {
+        return cached.role() || method.isAnnotationPresent(Only.class) || method.getDeclaringClass()
+            .isAnnotationPresent(Only.class) || (session != null && session.isLoggedIn());
+    }
+
+    /**
+     * @param method Route method
+     * @param path Path
+     * @param cached Setting
+     * @param parameters Parameters
+     * @param header Request header getter
+     * @param roles Roles
+     * @return Key
+     */
+    static String key(Method method, String path, Cached cached, Map<String, List<String>> parameters, Function<String, String> header, String roles) {
+        StringBuilder s = new StringBuilder(method.getDeclaringClass()
+            .getName()).append('.')
+                .append(method.getName())
+                .append(' ')
+                .append(path);
+        Map<String, List<String>> sorted = new TreeMap<>();
+        if (cached.params().length > 0) {
+            for (String name : cached.params()) {
+                sorted.put(name, parameters.get(name));
+            }
+        } else {
+            sorted.putAll(parameters);
+        }
+        sorted.forEach((name, values) -> s.append('\n')
+            .append(name)
+            .append('=')
+            .append(values));
+        for (String name : cached.headers()) {
+            s.append("\n:")
+                .append(name.toLowerCase(Locale.ENGLISH))
+                .append('=')
+                .append(Objects.toString(header.apply(name), ""));
+        }
+        return s.append("\n@")
+            .append(roles)
+            .toString();
+    }
+
+    /**
+     * @return Entry count
+     */
+    public static int size() {
+        return stores.values()
+            .stream()
+            .mapToInt(store -> {
+                synchronized (store) {
+                    return store.size();
+                }
+            })
+            .sum();
+    }
+
+    /**
+     * remove all entries
+     */
+    public static void clear() {
+        stores.values()
+            .forEach(store -> {
+                synchronized (store) {
+                    store.clear();
+                }
+            });
+    }
+}
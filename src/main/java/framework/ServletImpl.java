@@ -2,11 +2,12 @@ package framework;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +18,9 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -37,7 +41,7 @@ import framework.annotation.Route.Method;
 /**
  * Servlet implementation
  */
-@WebServlet("/")
+@WebServlet(value = "/", asyncSupported = true)
 @MultipartConfig
 public class ServletImpl implements javax.servlet.Servlet {
 
@@ -331,12 +335,41 @@ public class ServletImpl implements javax.servlet.Servlet {
             String uri = request.getRequestURI();
             int rootLength = request.getContextPath().length() + 1;
             path = rootLength > uri.length() ? null : Tool.prefix(Tool.string(uri.substring(rootLength)).orElse("/"), "/");
+            parameters = new LinkedHashMap<>();
+            Tool.string(request.getQueryString()).ifPresent(query -> Parser.Url.parse(query, parameters));
+            if (Tool.of(request.getContentType()).filter(i -> i.startsWith("application/x-www-form-urlencoded")).isPresent()) {
+                long read;
+                try (InputStream in = request.getInputStream()) {
+                    read = Parser.Url.parse(in, parameters);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (read <= 0 && request.getContentLengthLong() > 0) {
+                    /* body already read by container(e.g. filter called getParameter) */
+                    parameters.clear();
+                    int count = 0;
+                    for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+                        List<String> values = new ArrayList<>();
+                        for (String value : entry.getValue()) {
+                            if (++count > Sys.request_max_parameters) {
+                                break;
+                            }
+                            values.add(value);
+                        }
+                        if (values.isEmpty()) {
+                            break;
+                        }
+                        parameters.put(entry.getKey(), values);
+                    }
+                    if (count > Sys.request_max_parameters) {
+                        Log.info("413 too many parameters: over " + Sys.request_max_parameters);
+                    }
+                }
+            }
             method = Try.<String, Method> f(m -> Method.valueOf(m.toUpperCase()), (e, m) -> {
                 Log.info(e, () -> "Invalid method: " + m);
                 return null;
-            }).apply(Tool.of(request.getParameter(Sys.request_method_key)).orElseGet(request::getMethod));
-            parameters = request.getParameterMap().entrySet().stream().collect(LinkedHashMap::new,
-                    (m, e) -> m.put(e.getKey(), new ArrayList<>(Arrays.asList(e.getValue()))), Map::putAll);
+            }).apply(Tool.getFirst(parameters, Sys.request_method_key).orElseGet(request::getMethod));
             files = new LinkedHashMap<>();
             if (Tool.of(request.getHeader("Content-Type")).filter(i -> i.startsWith("multipart/")).isPresent()) {
                 Try.s(request::getParts).get().forEach(part -> {
@@ -477,6 +510,41 @@ public class ServletImpl implements javax.servlet.Servlet {
             }
         }
 
+        @Override
+        Runnable detach(Runnable onAbort) {
+            HttpServletRequest request = ((RequestImpl) Request.current().get()).request;
+            if (!request.isAsyncSupported()) {
+                return null;
+            }
+            if (request.isAsyncStarted()) { // asynchronous route result
+                return request.getAsyncContext()::complete;
+            }
+            AsyncContext async = request.startAsync();
+            async.setTimeout(0);
+            async.addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    onAbort.run();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    onAbort.run();
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    onAbort.run();
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                    /* none */
+                }
+            });
+            return async::complete;
+        }
+
         @Override
         public String toString() {
             return Request.current().map(i -> (RequestImpl) i)
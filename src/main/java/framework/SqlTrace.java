@@ -0,0 +1,334 @@
+package framework;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import app.config.Sys;
+
+/**
+ * SQL execution trace(timing, slow query log, plan capture and aggregates by fingerprint)
+ */
+public class SqlTrace {
+
+    /**
+     * Aggregate of a fingerprint
+     */
+    public static class Stats {
+
+        /**
+         * Normalized SQL
+         */
+        public final String fingerprint;
+
+        /**
+         * Total time(prepare + execute + fetch)
+         */
+        public final Metrics.Histogram latency = new Metrics.Histogram();
+
+        /**
+         * Total rows(fetched or affected)
+         */
+        final LongAdder rows = new LongAdder();
+
+        /**
+         * Slow count
+         */
+        final LongAdder slows = new LongAdder();
+
+        /**
+         * Last slow SQL
+         */
+        volatile String sample;
+
+        /**
+         * Execution plan of first slow SQL(null if not captured)
+         */
+        volatile String plan;
+
+        /**
+         * @param fingerprint Normalized SQL
+         */
+        Stats(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * @return Count
+         */
+        public long count() {
+            return latency.count();
+        }
+
+        /**
+         * @return Total rows
+         */
+        public long rows() {
+            return rows.sum();
+        }
+
+        /**
+         * @return Slow count
+         */
+        public long slows() {
+            return slows.sum();
+        }
+
+        /**
+         * @return Last slow SQL(null if none)
+         */
+        public String sample() {
+            return sample;
+        }
+
+        /**
+         * @return Execution plan(null if not captured)
+         */
+        public String plan() {
+            return plan;
+        }
+    }
+
+    /**
+     * Fingerprint of overflowed statements
+     */
+    public static final String OTHER = "(other)";
+
+    /**
+     * Fingerprint to aggregate
+     */
+    static final Map<String, Stats> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * List of parameters
+     */
+    static final Pattern list = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    /**
+     * @param sql SQL
+     * @return Normalized SQL(literals to ?, lists of ? to one, spaces to one)
+     */
+    public static String fingerprint(String sql) {
+        StringBuilder s = new StringBuilder(sql.length());
+        for (int i = 0, end = sql.length(); i < end; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                /* string literal('' is escaped quote) */
+                for (i++; i < end; i++) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < end && sql.charAt(i + 1) == '\'') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+                int last = s.length() - 1;
+                if (last >= 0 && (s.charAt(last) == 'N' || s.charAt(last) == 'n') && (last == 0 || !isWord(s.charAt(last - 1)))) {
+                    s.setLength(last);
+                }
+                s.append('?');
+            } else if (Character.isDigit(c) && (s.length() == 0 || !isWord(s.charAt(s.length() - 1)))) {
+                /* number literal */
+                while (i + 1 < end && (isWord(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+                    i++;
+                }
+                s.append('?');
+            } else if (Character.isWhitespace(c)) {
+                if (s.length() > 0 && s.charAt(s.length() - 1) != ' ') {
+                    s.append(' ');
+                }
+            } else {
+                s.append(c);
+            }
+        }
+        int last = s.length() - 1;
+        if (last >= 0 && s.charAt(last) == ' ') {
+            s.setLength(last);
+        }
+        return list.matcher(s)
+            .replaceAll("(?)");
+    }
+
+    /**
+     * @param c Character
+     * @return True if part of identifier
+     */
+    static boolean isWord(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * @param fingerprint Normalized SQL
+     * @return Aggregate(shared OTHER if over Sys.Db.trace_max_fingerprints)
+     */
+    static Stats stats(String fingerprint) {
+        Stats stats = fingerprints.get(fingerprint);
+        if (stats != null) {
+            return stats;
+        }
+        int max = Sys.Db.trace_max_fingerprints;
+        return fingerprints.computeIfAbsent(max > 0 && fingerprints.size() >= max ? OTHER : fingerprint, Stats::new);
+    }
+
+    /**
+     * record an execution
+     *
+     * @param db Database(for plan capture, nullable)
+     * @param sql SQL
+     * @param prepareNanos Prepare nano seconds
+     * @param executeNanos Execute nano seconds
+     * @param fetchNanos Fetch nano seconds
+     * @param rows Fetched or affected rows
+     */
+    public static void record(Db db, String sql, long prepareNanos, long executeNanos, long fetchNanos, long rows) {
+        record(db, sql, null, prepareNanos, executeNanos, fetchNanos, rows);
+    }
+
+    /**
+     * record an execution
+     *
+     * @param db Database(for plan capture, nullable)
+     * @param sql SQL
+     * @param inline SQL with parameters(called only if slow, null if same as sql)
+     * @param prepareNanos Prepare nano seconds
+     * @param executeNanos Execute nano seconds
+     * @param fetchNanos Fetch nano seconds
+     * @param rows Fetched or affected rows
+     */
+    public static void record(Db db, String sql, Supplier<String> inline, long prepareNanos, long executeNanos, long fetchNanos, long rows) {
+        Metrics.db.record(executeNanos);
+        Timing.record(Timing.Phase.DB, prepareNanos + executeNanos + fetchNanos);
+        aggregate(db, sql, inline, prepareNanos, executeNanos, fetchNanos, rows);
+    }
+
+    /**
+     * record a batch round trip(once, not per SQL)
+     *
+     * @param executeNanos Execute nano seconds of the whole batch
+     */
+    static void round(long executeNanos) {
+        Metrics.db.record(executeNanos);
+        Timing.record(Timing.Phase.DB, executeNanos);
+    }
+
+    /**
+     * add to the fingerprint aggregate(and log if slow)
+     *
+     * @param db Database(for plan capture, nullable)
+     * @param sql SQL
+     * @param inline SQL with parameters(called only if slow, null if same as sql)
+     * @param prepareNanos Prepare nano seconds
+     * @param executeNanos Execute nano seconds(share of the batch if batched)
+     * @param fetchNanos Fetch nano seconds
+     * @param rows Fetched or affected rows
+     */
+    static void aggregate(Db db, String sql, Supplier<String> inline, long prepareNanos, long executeNanos, long fetchNanos, long rows) {
+        long total = prepareNanos + executeNanos + fetchNanos;
+        Stats stats = stats(fingerprint(sql));
+        stats.latency.record(total);
+        stats.rows.add(rows);
+        long threshold = Sys.Db.slow_query_millis;
+        if (threshold < 0 || total < threshold * 1000000L) {
+            return;
+        }
+        String sample = inline == null ? sql : inline.get();
+        stats.slows.increment();
+        stats.sample = sample;
+        if (db != null && Sys.Db.slow_query_explain && stats.plan == null && QueryCache.select.matcher(sample)
+            .find()) {
+            stats.plan = explain(db, sample);
+        }
+        Log.warning(() -> String.format(Locale.ROOT, "slow sql: total=%.3fms prepare=%.3fms execute=%.3fms fetch=%.3fms rows=%d count=%d fingerprint=%s sql=%s%s",
+                total / 1e6, prepareNanos / 1e6, executeNanos / 1e6, fetchNanos / 1e6, rows, stats.count(), stats.fingerprint, sample,
+                stats.plan == null ? "" : "\nplan:\n" + stats.plan));
+    }
+
+    /**
+     * @param db Database
+     * @param sql Select SQL
+     * @return Execution plan(empty if failed)
+     */
+    static String explain(Db db, String sql) {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = db.getConnection()
+            .createStatement()) {
+            for (String s : db.getBuilder()
+                .explain(sql)) {
+                if (!statement.execute(s)) {
+                    continue;
+                }
+                for (boolean more = true; more; more = statement.getMoreResults()) {
+                    try (ResultSet rs = statement.getResultSet()) {
+                        if (rs == null) {
+                            break;
+                        }
+                        ResultSetMetaData meta = rs.getMetaData();
+                        while (rs.next()) {
+                            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                                plan.append(i == 1 ? "" : " | ")
+                                    .append(rs.getString(i));
+                            }
+                            plan.append('\n');
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            Log.config(() -> "explain failed: " + e);
+        } finally {
+            try (Statement statement = db.getConnection()
+                .createStatement()) {
+                for (String s : db.getBuilder()
+                    .explainReset()) {
+                    statement.execute(s);
+                }
+            } catch (SQLException e) {
+                Log.warning(() -> "explain reset failed: " + e);
+            }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * @param limit Max entries
+     * @return Aggregates by total time descending
+     */
+    public static List<Stats> top(int limit) {
+        return fingerprints.values()
+            .stream()
+            .sorted(Comparator.comparingLong((Stats stats) -> stats.latency.sum())
+                .reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @param limit Max entries
+     * @return Text report(a line is total, count, p50, p99, max, rows, slows, fingerprint)
+     */
+    public static String report(int limit) {
+        return top(limit).stream()
+            .map(stats -> String.format(Locale.ROOT, "total=%.3fms count=%d p50=%.3fms p99=%.3fms max=%.3fms rows=%d slows=%d %s", stats.latency.sum() / 1e3,
+                    stats.count(), stats.latency.percentile(0.5) / 1e3, stats.latency.percentile(0.99) / 1e3, stats.latency.max() / 1e3, stats.rows(),
+                    stats.slows(), stats.fingerprint))
+            .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * remove all aggregates
+     */
+    public static void clear() {
+        fingerprints.clear();
+    }
+}
@@ -12,7 +12,6 @@ import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.net.InetSocketAddress;
-import java.net.URLDecoder;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
@@ -45,7 +44,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -100,7 +98,9 @@ public class Standalone {
                 Log.warning(e, () -> "500");
                 exchange.sendResponseHeaders(500, -1);
             } finally {
-            	exchange.close();
+                if (exchange.getAttribute(ResponseImpl.DETACHED) == null) {
+                    exchange.close();
+                }
             }
         };
 
@@ -111,6 +111,7 @@ public class Standalone {
                 http.setExecutor(executor);
                 http.createContext(Tool.prefix(Tool.trim(null, application.getContextPath(), "/"), "/"), handler);
                 http.start();
+                application.shutdowns.add(() -> http.stop(0));
                 Log.info("http server started on port " + port);
             } catch (IOException e) {
                 Log.warning(e, () -> "http sever setup error");
@@ -127,6 +128,7 @@ public class Standalone {
                 https.setExecutor(executor);
                 https.createContext(Tool.prefix(Tool.trim(null, application.getContextPath(), "/"), "/"), handler);
                 https.start();
+                application.shutdowns.add(() -> https.stop(0));
                 Log.info("https server started on port " + port);
             } catch (IOException | KeyManagementException | KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException | CertificateException
                     | InvalidKeySpecException e) {
@@ -134,6 +136,8 @@ public class Standalone {
             }
         });
 
+        /* first of reversed shutdowns */
+        application.shutdowns.add(ResponseImpl::abort);
         Runtime.getRuntime()
             .addShutdownHook(new Thread(application::shutdown));
     }
@@ -334,7 +338,8 @@ public class Standalone {
         /**
          * Database
          */
-        final Db db = Db.connect(Sys.Db.session_suffix);
+        final Db db = Db.connect(Sys.Db.session_suffix)
+            .primary();
 
         /*
          * (non-Javadoc)
@@ -344,29 +349,16 @@ public class Standalone {
         @Override
         public void save(String id, Map<String, Serializable> keyValues, Set<String> removeKeys) {
             if (!keyValues.isEmpty()) {
-                db.prepare("UPDATE t_session SET value = ? WHERE id = ? AND name = ?", update -> {
-                    db.prepare("INSERT INTO t_session(id, name, value, last_access) VALUES(?, ?, ?, ?)", insert -> {
-                        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
-                        if (db.preparedQuery("SELECT * FROM t_session WHERE id = ? AND name = ? FOR UPDATE", select -> {
-                            select.setString(1, id);
-                            select.setString(2, "*");
-                            return Tool.array(id, "*");
-                        }, rs -> {
-                            update.setBytes(1, Tool.serialize((Serializable)keyValues));
-                            update.setString(2, id);
-                            update.setString(3, "*");
-                            update.executeUpdate();
-                        }) <= 0) {
-                            insert.setString(1, id);
-                            insert.setString(2, "*");
-                            insert.setBytes(3, Tool.serialize((Serializable)keyValues));
-                            insert.setTimestamp(4, now);
-                            insert.executeUpdate();
-                        }
+                /* native upsert(1 round trip, no row lock) */
+                db.prepare(db.getBuilder()
+                    .upsert("t_session", Tool.list("id", "name", "value", "last_access"), 2, Tool.list("?", "?", "?", "?"), Tool.map("value", null)), upsert -> {
+                        upsert.setString(1, id);
+                        upsert.setString(2, "*");
+                        upsert.setBytes(3, Tool.serialize((Serializable) keyValues));
+                        upsert.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                        upsert.executeUpdate();
                         return null;
                     });
-                    return null;
-                });
             }
         }
 
@@ -518,10 +510,14 @@ public class Standalone {
          */
         Map<String, Serializable> oldAttributes() {
             if (oldAttributes == null) {
+                long start = System.nanoTime();
                 try (Session.Store store = factory.get()) {
                     oldAttributes = store.load(id);
                 } catch (Exception e) {
                     Log.warning(e, () -> "close error");
+                } finally {
+                    Metrics.sessionLoad.record(System.nanoTime() - start);
+                    Timing.add(Timing.Phase.SESSION, start);
                 }
             }
             return oldAttributes;
@@ -647,6 +643,7 @@ public class Standalone {
         public void save() {
             boolean hasNew = newAttributes != null && !newAttributes.isEmpty();
             boolean hasRemove = removeAttributes != null && !removeAttributes.isEmpty();
+            long start = System.nanoTime();
             try (Session.Store store = factory.get()) {
                 oldAttributes();
                 if (hasNew) {
@@ -661,6 +658,8 @@ public class Standalone {
                 Log.severe(e, () -> "session save error");
             } catch (Exception e) {
                 Log.warning(e, () -> "close error");
+            } finally {
+                Metrics.sessionSave.record(System.nanoTime() - start);
             }
         }
     }
@@ -728,7 +727,7 @@ public class Standalone {
             query = exchange.getRequestURI()
                 .getRawQuery();
             if (query != null) {
-                parse(parameters, new Scanner(query));
+                Parser.Url.parse(query, parameters);
             }
 
             // request body
@@ -746,7 +745,7 @@ public class Standalone {
             }
             if (contentType.startsWith("application/x-www-form-urlencoded")) {
                 try (InputStream in = exchange.getRequestBody()) {
-                    parse(parameters, new Scanner(in, StandardCharsets.ISO_8859_1.name()));
+                    Parser.Url.parse(in, parameters);
                 }
             } else if (contentType.startsWith("multipart/form-data")) {
                 final String boundary = "--" + new KeyValueAttr("Content-Type:" + contentType).attr.get("boundary");
@@ -1013,21 +1012,6 @@ public class Standalone {
             }
         }
 
-        /**
-         * @param parameters parameters
-         * @param scanner scanner
-         */
-        public static void parse(Map<String, List<String>> parameters, Scanner scanner) {
-            scanner.useDelimiter("[&]");
-            scanner.forEachRemaining(Try.c(part -> {
-                String[] pair = part.split("[=]");
-                if (pair.length > 0) {
-                    Tool.addValue(parameters, URLDecoder
-                        .decode(pair[0], StandardCharsets.UTF_8.name()), pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8.name()) : "", ArrayList::new);
-                }
-            }));
-        }
-
         /**
          * @param in in
          * @return bytes
@@ -1100,6 +1084,16 @@ public class Standalone {
      */
     static class ResponseImpl extends Response {
 
+        /**
+         * Exchange attribute name of detached(not close on handler returned)
+         */
+        static final String DETACHED = ResponseImpl.class.getName() + ".detached";
+
+        /**
+         * Abort actions of detached exchanges
+         */
+        static final Map<HttpExchange, Runnable> aborts = new ConcurrentHashMap<>();
+
         @Override
         void flush() {
             Optional<SessionImpl> session = Session.current()
@@ -1130,7 +1124,29 @@ public class Standalone {
                     return exchange.getResponseBody();
                 }));
             }
-            exchange.close();
+            if (exchange.getAttribute(DETACHED) == null) {
+                exchange.close();
+            }
+        }
+
+        @Override
+        Runnable detach(Runnable onAbort) {
+            HttpExchange exchange = ((RequestImpl) Request.current()
+                .get()).exchange;
+            exchange.setAttribute(DETACHED, true);
+            aborts.put(exchange, onAbort);
+            return () -> {
+                aborts.remove(exchange);
+                exchange.close();
+            };
+        }
+
+        /**
+         * abort detached exchanges(server stopping)
+         */
+        static void abort() {
+            new ArrayList<>(aborts.values()).forEach(Try.c(Runnable::run, (e, action) -> Log.warning(e, () -> "abort error")));
+            aborts.clear();
         }
 
         @Override
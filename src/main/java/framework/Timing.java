@@ -0,0 +1,225 @@
+package framework;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import app.config.Sys;
+
+/**
+ * Per-request phase timeline(preallocated per thread, emitted as Server-Timing header and sampled into log and metrics)
+ */
+public class Timing {
+
+    /**
+     * Request phase
+     */
+    public enum Phase {
+        /**
+         * Routing
+         */
+        ROUTE("route"),
+        /**
+         * Binding and validation of parameters
+         */
+        BIND("bind"),
+        /**
+         * Session load
+         */
+        SESSION("session"),
+        /**
+         * Database(prepare, execute and fetch)
+         */
+        DB("db"),
+        /**
+         * Route method(including db)
+         */
+        ACTION("app"),
+        /**
+         * Response writers(not in Server-Timing header because headers are sent before the body)
+         */
+        RENDER("render");
+
+        /**
+         * Metric name
+         */
+        public final String label;
+
+        /**
+         * Histogram of sampled requests
+         */
+        public final Metrics.Histogram histogram = new Metrics.Histogram();
+
+        /**
+         * @param label Metric name
+         */
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Phases
+     */
+    static final Phase[] phases = Phase.values();
+
+    /**
+     * Histogram of sampled total
+     */
+    public static final Metrics.Histogram total = new Metrics.Histogram();
+
+    /**
+     * Timeline of current thread
+     */
+    static final ThreadLocal<Timing> CURRENT = ThreadLocal.withInitial(Timing::new);
+
+    /**
+     * Nano seconds by phase
+     */
+    final long[] nanos = new long[phases.length];
+
+    /**
+     * Count by phase
+     */
+    final int[] counts = new int[phases.length];
+
+    /**
+     * Text buffer
+     */
+    final StringBuilder text = new StringBuilder(128);
+
+    /**
+     * Recording request(null if not recording)
+     */
+    Request request;
+
+    /**
+     * True if sampled into log and metrics
+     */
+    boolean sampled;
+
+    /**
+     * start recording of request(if Sys.server_timing or sampled by Sys.timing_sample_ratio)
+     *
+     * @param request Request
+     */
+    public static void begin(Request request) {
+        Timing timing = CURRENT.get();
+        double ratio = Sys.timing_sample_ratio;
+        timing.sampled = ratio >= 1 || (ratio > 0 && ThreadLocalRandom.current()
+            .nextDouble() < ratio);
+        timing.request = Sys.server_timing || timing.sampled ? request : null;
+        Arrays.fill(timing.nanos, 0);
+        Arrays.fill(timing.counts, 0);
+    }
+
+    /**
+     * @return Timeline of current request(null if not recording)
+     */
+    static Timing current() {
+        Timing timing = CURRENT.get();
+        return timing.request != null && timing.request == Request.CURRENT.get() ? timing : null;
+    }
+
+    /**
+     * @param phase Phase
+     * @param start Start nano time
+     */
+    public static void add(Phase phase, long start) {
+        record(phase, System.nanoTime() - start);
+    }
+
+    /**
+     * @param phase Phase
+     * @param nanos Nano seconds
+     */
+    public static void record(Phase phase, long nanos) {
+        Timing timing = current();
+        if (timing != null) {
+            timing.nanos[phase.ordinal()] += nanos;
+            timing.counts[phase.ordinal()]++;
+        }
+    }
+
+    /**
+     * add Server-Timing header(if Sys.server_timing)
+     *
+     * @param response Response
+     */
+    static void header(Response response) {
+        Timing timing;
+        if (Sys.server_timing && (timing = current()) != null) {
+            response.setHeader("Server-Timing", timing.format(Phase.RENDER).toString());
+        }
+    }
+
+    /**
+     * finish recording(log and metrics if sampled)
+     *
+     * @return Timeline(null if not sampled)
+     */
+    static String end() {
+        Timing timing = current();
+        if (timing == null) {
+            return null;
+        }
+        try {
+            if (!timing.sampled) {
+                return null;
+            }
+            for (Phase phase : phases) {
+                if (timing.counts[phase.ordinal()] > 0) {
+                    phase.histogram.record(timing.nanos[phase.ordinal()]);
+                }
+            }
+            total.record(System.nanoTime() - timing.request.startNanos);
+            String text = timing.format(null)
+                .toString();
+            Log.info(() -> "[timing] " + text);
+            return text;
+        } finally {
+            timing.request = null;
+        }
+    }
+
+    /**
+     * @param exclude Phase to exclude(nullable)
+     * @return Server-Timing format(in buffer)
+     */
+    StringBuilder format(Phase exclude) {
+        StringBuilder s = text;
+        s.setLength(0);
+        for (Phase phase : phases) {
+            int count = counts[phase.ordinal()];
+            if (count > 0 && phase != exclude) {
+                millis(s.append(phase.label)
+                    .append(";dur="), nanos[phase.ordinal()]);
+                if (count > 1) {
+                    s.append(";desc=\"")
+                        .append(count)
+                        .append('"');
+                }
+                s.append(", ");
+            }
+        }
+        return millis(s.append("total;dur="), System.nanoTime() - request.startNanos);
+    }
+
+    /**
+     * @param s Output
+     * @param nanos Nano seconds
+     * @return Output(milli seconds with 3 decimal places)
+     */
+    static StringBuilder millis(StringBuilder s, long nanos) {
+        long micros = nanos / 1000;
+        s.append(micros / 1000)
+            .append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            s.append('0');
+        }
+        if (fraction < 10) {
+            s.append('0');
+        }
+        return s.append(fraction);
+    }
+}
@@ -68,6 +68,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
@@ -1464,10 +1465,19 @@ public class Tool {
      * @return class stream(must to close)
      */
     public static Stream<Class<?>> getClasses(String packageName) {
+        return toClasses(packageName, getResources(packageName.replace('.', '/')));
+    }
+
+    /**
+     * @param packageName package name
+     * @param files file names in package
+     * @return class stream(must to close)
+     */
+    static Stream<Class<?>> toClasses(String packageName, Stream<String> files) {
         String prefix = string(packageName)
             .map(i -> i + '.')
             .orElse("");
-        return getResources(packageName.replace('.', '/')).filter(s -> s.endsWith(".class"))
+        return files.filter(s -> s.endsWith(".class"))
             .map(f -> prefix + f.substring(0, f.length() - ".class".length()))
             .<Class<?>>map(Try.f(Class::forName));
     }
@@ -1495,21 +1505,31 @@ public class Tool {
                                 .get()).getParentFile()))));
         }
         return toURLs(location)
-            .flatMap(Try.f(i -> {
-                boolean isDirectory = Try.<URL>p(j -> new File(Try.s(j::toURI)
-                    .get()).isDirectory(), (e, j) -> false)
-                    .test(i);
-                if ("jar".equals(i.getProtocol())) {
-                    return getResourcesFromJar(location, ((JarURLConnection) i.openConnection()).getJarFile());
-                } else if (isDirectory) {
-                    return getResourcesFromFolder(new File(Try.s(i::toURI)
-                        .get()));
-                } else {
-                    return getResourcesFromJar("", new JarFile(Try.s(i::toURI)
-                        .get()
-                        .getPath()));
-                }
-            }));
+            .flatMap(Try.f(i -> getResources(location, i)));
+    }
+
+    /**
+     * list files in one class path entry
+     *
+     * @param location location
+     * @param url URL of location
+     * @return file name stream(must to close)
+     * @throws IOException IO error
+     */
+    static Stream<String> getResources(String location, URL url) throws IOException {
+        boolean isDirectory = Try.<URL>p(j -> new File(Try.s(j::toURI)
+            .get()).isDirectory(), (e, j) -> false)
+            .test(url);
+        if ("jar".equals(url.getProtocol())) {
+            return getResourcesFromJar(location, ((JarURLConnection) url.openConnection()).getJarFile());
+        } else if (isDirectory) {
+            return getResourcesFromFolder(new File(Try.s(url::toURI)
+                .get()));
+        } else {
+            return getResourcesFromJar("", new JarFile(Try.s(url::toURI)
+                .get()
+                .getPath()));
+        }
     }
 
     /**
@@ -2537,11 +2557,98 @@ public class Tool {
         return path.substring(index);
     }
 
+    /**
+     * HTML escape table(index: character, null: not escape)
+     */
+    static final String[] htmlEscapes = escapes('&', "&amp;", '"', "&quot;", '<', "&lt;", '>', "&gt;", '\'', "&#39;");
+
+    /**
+     * String escape table(index: character, null: not escape)
+     */
+    static final String[] scriptEscapes = escapes('\\', "\\\\", '"', "\\\"", '\r', "\\r", '\n', "\\n", '\t', "\\t");
+
+    /**
+     * @param pairs character, escaped text, ...(character must be ASCII)
+     * @return Escape table
+     */
+    static String[] escapes(Object... pairs) {
+        String[] table = new String[128];
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            table[(Character) pairs[i]] = (String) pairs[i + 1];
+        }
+        return table;
+    }
+
+    /**
+     * @param text target
+     * @param table Escape table
+     * @param start Start index
+     * @return Index of first character to escape(-1 if not found)
+     */
+    static int indexOfEscape(CharSequence text, String[] table, int start) {
+        for (int i = start, end = text.length(); i < end; i++) {
+            char c = text.charAt(i);
+            if (c < table.length && table[c] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param text target
+     * @param table Escape table
+     * @return Escaped text(same instance if no character to escape)
+     */
+    static String escape(String text, String[] table) {
+        int i = indexOfEscape(text, table, 0);
+        if (i < 0) {
+            return text;
+        }
+        StringBuilder s = new StringBuilder(text.length() + 16);
+        Try.r(() -> escape(text, table, s, i))
+            .run();
+        return s.toString();
+    }
+
+    /**
+     * @param text target
+     * @param table Escape table
+     * @param out output
+     * @param first Index of first character to escape
+     * @throws IOException IO error
+     */
+    static void escape(CharSequence text, String[] table, Appendable out, int first) throws IOException {
+        int start = 0;
+        int end = text.length();
+        for (int i = first; i >= 0; i = indexOfEscape(text, table, start)) {
+            out.append(text, start, i)
+                .append(table[text.charAt(i)]);
+            start = i + 1;
+        }
+        out.append(text, start, end);
+    }
+
+    /**
+     * @param text target
+     * @param table Escape table
+     * @param out output(StringBuilder is faster than other)
+     * @throws IOException IO error
+     */
+    static void escape(CharSequence text, String[] table, Appendable out) throws IOException {
+        int first = indexOfEscape(text, table, 0);
+        if (first < 0) {
+            out.append(text);
+        } else {
+            escape(text, table, out, first);
+        }
+    }
+
     /**
      * HTML escape(&amp;, &quot;, &lt;, &gt;, &#39;)
      *
      * @param text target
-     * @return escaped text
+     * @return escaped text(same instance if text is String and no character to escape)
      */
     public static String htmlEscape(Object text) {
         if (text == null) {
@@ -2551,69 +2658,48 @@ public class Tool {
         if (string == null || string.isEmpty()) {
             return null;
         }
-        StringBuilder s = new StringBuilder();
-        string.chars()
-            .forEach(c -> {
-                switch (c) {
-                case '&':
-                    s.append("&amp;");
-                    break;
-                case '"':
-                    s.append("&quot;");
-                    break;
-                case '<':
-                    s.append("&lt;");
-                    break;
-                case '>':
-                    s.append("&gt;");
-                    break;
-                case '\'':
-                    s.append("&#39;");
-                    break;
-                default:
-                    s.append((char) c);
-                    break;
-                }
-            });
-        return s.toString();
+        return escape(string, htmlEscapes);
+    }
+
+    /**
+     * HTML escape(&amp;, &quot;, &lt;, &gt;, &#39;) to output
+     *
+     * @param <T> Output type
+     * @param text target
+     * @param out output
+     * @return output
+     * @throws IOException IO error
+     */
+    public static <T extends Appendable> T htmlEscape(CharSequence text, T out) throws IOException {
+        escape(text, htmlEscapes, out);
+        return out;
     }
 
     /**
      * String escape(", \r, \n, \t)
      *
      * @param text target
-     * @return escaped text
+     * @return escaped text(same instance if text is String and no character to escape)
      */
     public static String scriptEscape(Object text) {
         if (text == null) {
             return null;
         }
-        StringBuilder s = new StringBuilder();
-        text.toString()
-            .chars()
-            .forEach(c -> {
-                switch (c) {
-                case '\\':
-                    s.append("\\\\");
-                    break;
-                case '"':
-                    s.append("\\\"");
-                    break;
-                case '\r':
-                    s.append("\\r");
-                    break;
-                case '\n':
-                    s.append("\\n");
-                    break;
-                case '\t':
-                    s.append("\\t");
-                    break;
-                default:
-                    s.append((char) c);
-                    break;
-                }
-            });
-        return s.toString();
+        return escape(text.toString(), scriptEscapes);
+    }
+
+    /**
+     * String escape(", \r, \n, \t) to output
+     *
+     * @param <T> Output type
+     * @param text target
+     * @param out output
+     * @return output
+     * @throws IOException IO error
+     */
+    public static <T extends Appendable> T scriptEscape(CharSequence text, T out) throws IOException {
+        escape(text, scriptEscapes, out);
+        return out;
     }
 
     /**
@@ -2833,6 +2919,44 @@ public class Tool {
      * @param set setter
      */
     public static void mail(String subject, String body, Consumer<Mail> set) {
+        try {
+            Transport.send(message(subject, body, set));
+        } catch (MessagingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * send in background(see {@link Outbox})
+     *
+     * @param subject Mail subject
+     * @param body Mail body
+     * @param to To e-mail address
+     * @return Completed when sent or given up
+     */
+    public static CompletableFuture<Void> mailAsync(String subject, String body, String... to) {
+        return mailAsync(subject, body, mail -> mail.to(to));
+    }
+
+    /**
+     * send in background(see {@link Outbox})
+     *
+     * @param subject Mail subject
+     * @param body Mail body
+     * @param set setter
+     * @return Completed when sent or given up
+     */
+    public static CompletableFuture<Void> mailAsync(String subject, String body, Consumer<Mail> set) {
+        return Outbox.enqueue(message(subject, body, set));
+    }
+
+    /**
+     * @param subject Mail subject
+     * @param body Mail body
+     * @param set setter
+     * @return Message
+     */
+    public static MimeMessage message(String subject, String body, Consumer<Mail> set) {
         Mail mail = new Mail();
         set.accept(mail);
         MimeMessage message = new MimeMessage(javax.mail.Session.getInstance(mail.properties, mail.authenticator));
@@ -2845,7 +2969,7 @@ public class Tool {
             message.setSubject(subject, Sys.Mail.charset);
             message.setText(body, Sys.Mail.charset);
             message.setHeader("Content-Transfer-Encoding", Sys.Mail.encoding);
-            Transport.send(message);
+            return message;
         } catch (MessagingException e) {
             throw new RuntimeException(e);
         }
@@ -1,9 +1,15 @@
 package framework;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
@@ -354,7 +360,7 @@ public class Xml {
                             do {
                                 skipUntil('<');
                                 eat("<");
-                            } while (index < lastIndex && !tag.equals(subSequence(index, index + tag.length())));
+                            } while (index < lastIndex && !at(index, tag));
                             end = index - 1;
                             handler.text(name, subSequence(start, end));
                             handler.tagEnd(name);
@@ -395,60 +401,382 @@ public class Xml {
      */
     public static Xml parseMap(String source, Map<String, Function<Xml, Xml>> renders) {
         Xml result = of(null);
-        new Sax().parse(source, new Sax.Handler() {
+        new Sax().parse(source, new Builder(result, renders));
+        return result;
+    }
+
+    /**
+     * parse and write in a single pass(same output as parseMap(source, renders).write(out), only elements that has render attribute are built as tree
+     * and renders can not edit outside of the element)
+     *
+     * @param <T> Output type
+     * @param source Source
+     * @param renders Renders(name: render)
+     * @param out Output
+     * @return Output
+     * @throws IOException IO error
+     */
+    public static <T extends Appendable> T rewrite(String source, Map<String, Function<Xml, Xml>> renders, T out) throws IOException {
+        try {
+            Rewriter rewriter = new Rewriter(new Trim(out), renders);
+            new Sax().parse(source, rewriter);
+            rewriter.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return out;
+    }
+
+    /**
+     * parse and write in a single pass(not close stream)
+     *
+     * @param source Source
+     * @param renders Renders(name: render)
+     * @param out Output
+     * @param charset Charset
+     * @throws IOException IO error
+     * @see #rewrite(String, Map, Appendable)
+     */
+    public static void rewrite(String source, Map<String, Function<Xml, Xml>> renders, OutputStream out, Charset charset) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+        rewrite(source, renders, writer);
+        writer.flush();
+    }
+
+    /**
+     * Tree builder(apply render at end of element that has render attribute)
+     */
+    static class Builder implements Sax.Handler {
+
+        /**
+         * Renders(name: render, null if not apply)
+         */
+        final Map<String, Function<Xml, Xml>> renders;
+
+        /**
+         * Current node
+         */
+        Xml xml;
+
+        /**
+         * @param xml Parent node
+         * @param renders Renders(name: render, null if not apply)
+         */
+        Builder(Xml xml, Map<String, Function<Xml, Xml>> renders) {
+            this.xml = xml;
+            this.renders = renders;
+        }
 
-            Xml xml = result;
+        @Override
+        public void tagStart(CharSequence tag) {
+            xml = xml.child(tag.toString());
+        }
 
-            @Override
-            public void tagStart(CharSequence tag) {
-                xml = xml.child(tag.toString());
+        @Override
+        public void attribute(CharSequence tag, CharSequence name, CharSequence value) {
+            String v = value.toString();
+            xml.attr(name.toString(), v);
+        }
+
+        @Override
+        public void comment(CharSequence tag, CharSequence comment) {
+            if (isReserveComment) {
+                xml.child(new Xml(comment, Type.comment));
             }
+        }
 
-            @Override
-            public void attribute(CharSequence tag, CharSequence name, CharSequence value) {
-                String v = value.toString();
-                xml.attr(name.toString(), v);
+        @Override
+        public void control(CharSequence tag, CharSequence control) {
+            xml.child(new Xml(control, Type.control));
+        }
+
+        @Override
+        public void text(CharSequence tag, CharSequence text) {
+            xml.child(new Xml(text, Type.html));
+        }
+
+        @Override
+        public void tagEnd(CharSequence tag) {
+            Xml self = xml;
+            xml = xml.parent;
+            if (self.attributes == null || renders == null) {
+                return;
+            }
+            String render = self.attributes.get(attribute);
+            if (render != null) {
+                Function<Xml, Xml> r = renders.get(render);
+                if (r == null) {
+                    r = Function.identity();
+                }
+                self.attributes.remove(attribute);
+                int i = xml.children.indexOf(self);
+                Xml x = xml.children.get(i);
+                xml.children.remove(i);
+                xml.children.add(i, Tool.peek(r.apply(x), j -> j.parent = xml));
             }
+        }
+    }
+
+    /**
+     * Streaming writer(only elements that has render attribute are built as tree by {@link Builder})
+     */
+    static class Rewriter implements Sax.Handler {
+
+        /**
+         * Open element
+         */
+        static class Level {
+
+            /**
+             * Element without children(parent of written nodes)
+             */
+            final Xml xml;
+
+            /**
+             * Indent of children
+             */
+            final String indent;
+
+            /**
+             * True if has tag child
+             */
+            boolean isNewline;
+
+            /**
+             * @param xml Element without children
+             * @param indent Indent of children
+             */
+            Level(Xml xml, String indent) {
+                this.xml = xml;
+                this.indent = indent;
+            }
+        }
+
+        /**
+         * Output
+         */
+        final Appendable out;
+
+        /**
+         * Renders(name: render, null if not apply)
+         */
+        final Map<String, Function<Xml, Xml>> renders;
+
+        /**
+         * Open elements
+         */
+        final Deque<Level> levels = new LinkedList<>();
+
+        /**
+         * Start tag that attributes are not completed
+         */
+        Xml pending;
+
+        /**
+         * Tree builder of rendering element(null if streaming)
+         */
+        Builder builder;
+
+        /**
+         * Depth in rendering element
+         */
+        int depth;
+
+        /**
+         * @param out Output
+         * @param renders Renders(name: render, null if not apply)
+         */
+        Rewriter(Appendable out, Map<String, Function<Xml, Xml>> renders) {
+            this.out = out;
+            this.renders = renders;
+            levels.push(new Level(of(null), ""));
+        }
+
+        /**
+         * write pending start tag or start building
+         *
+         * @param hasChild True if pending has child
+         * @return True if pending was written as empty element
+         * @throws IOException IO error
+         */
+        boolean flush(boolean hasChild) throws IOException {
+            return flush(hasChild, renders != null);
+        }
+
+        /**
+         * write pending start tag or start building
+         *
+         * @param hasChild True if pending has child
+         * @param isRender True if start building when pending has render attribute
+         * @return True if pending was written as empty element
+         * @throws IOException IO error
+         */
+        boolean flush(boolean hasChild, boolean isRender) throws IOException {
+            Xml xml = pending;
+            if (xml == null) {
+                return false;
+            }
+            pending = null;
+            Level level = levels.peek();
+            if (isRender && xml.attributes != null && xml.attributes.containsKey(attribute)) {
+                builder = new Builder(level.xml.child(xml), renders);
+                depth = 1;
+                return false;
+            }
+            boolean single = isSingle(xml);
+            if (!single) {
+                out.append(newline)
+                    .append(level.indent);
+            }
+            out.append('<')
+                .append(xml.content);
+            if (xml.attributes != null) {
+                for (Map.Entry<String, String> i : xml.attributes.entrySet()) {
+                    out.append(' ')
+                        .append(i.getKey())
+                        .append("=\"")
+                        .append(i.getValue())
+                        .append('"');
+                }
+            }
+            level.isNewline = true;
+            if (!hasChild) {
+                out.append(single ? " />" : "></" + xml.content + ">");
+                return true;
+            }
+            out.append('>');
+            levels.push(new Level(xml, level.indent + indent));
+            return false;
+        }
+
+        /**
+         * @param xml Text node
+         * @throws IOException IO error
+         */
+        void write(Xml xml) throws IOException {
+            Level level = levels.peek();
+            xml.parent = level.xml;
+            xml.write(out, level.indent, Xml::isSingle);
+        }
 
-            @Override
-            public void comment(CharSequence tag, CharSequence comment) {
-                if (isReserveComment) {
-                    xml.child(new Xml(comment, Type.comment));
+        /**
+         * write rendered nodes
+         *
+         * @throws IOException IO error
+         */
+        void written() throws IOException {
+            Level level = levels.peek();
+            for (Xml xml : level.xml.children) {
+                xml.write(out, level.indent, Xml::isSingle);
+                if (!xml.type.isText()) {
+                    level.isNewline = true;
                 }
             }
+            level.xml.clear();
+            builder = null;
+        }
+
+        /**
+         * close unclosed elements at end of source(not apply render same as tree)
+         *
+         * @throws IOException IO error
+         */
+        void end() throws IOException {
+            if (builder != null) {
+                written();
+            }
+            flush(false, false);
+            while (levels.size() > 1) {
+                close();
+            }
+        }
+
+        /**
+         * write end tag of current element
+         *
+         * @throws IOException IO error
+         */
+        void close() throws IOException {
+            Level level = levels.pop();
+            if (level.isNewline) {
+                out.append(newline)
+                    .append(levels.peek().indent);
+            }
+            out.append("</")
+                .append(level.xml.content)
+                .append('>');
+        }
 
-            @Override
-            public void control(CharSequence tag, CharSequence control) {
-                xml.child(new Xml(control, Type.control));
+        @Override
+        public void tagStart(CharSequence tag) {
+            if (builder == null) {
+                Try.r(() -> flush(true))
+                    .run();
+            }
+            if (builder != null) {
+                depth++;
+                builder.tagStart(tag);
+                return;
             }
+            pending = of(tag.toString());
+        }
 
-            @Override
-            public void text(CharSequence tag, CharSequence text) {
-                xml.child(new Xml(text, Type.html));
+        @Override
+        public void attribute(CharSequence tag, CharSequence name, CharSequence value) {
+            (builder == null ? pending : builder.xml).attr(name.toString(), value.toString());
+        }
+
+        @Override
+        public void comment(CharSequence tag, CharSequence comment) {
+            if (isReserveComment) {
+                text(new Xml(comment, Type.comment));
             }
+        }
+
+        @Override
+        public void control(CharSequence tag, CharSequence control) {
+            text(new Xml(control, Type.control));
+        }
+
+        @Override
+        public void text(CharSequence tag, CharSequence text) {
+            text(new Xml(text, Type.html));
+        }
 
-            @Override
-            public void tagEnd(CharSequence tag) {
-                Xml self = xml;
-                xml = xml.parent;
-                if (self.attributes == null || renders == null) {
+        /**
+         * @param xml Text node
+         */
+        void text(Xml xml) {
+            Try.r(() -> {
+                if (builder == null) {
+                    flush(true);
+                }
+                if (builder != null) {
+                    builder.xml.child(xml);
+                } else {
+                    write(xml);
+                }
+            })
+                .run();
+        }
+
+        @Override
+        public void tagEnd(CharSequence tag) {
+            Try.r(() -> {
+                if (builder == null && flush(false)) {
                     return;
                 }
-                String render = self.attributes.get(attribute);
-                if (render != null) {
-                    Function<Xml, Xml> r = renders.get(render);
-                    if (r == null) {
-                        r = Function.identity();
+                if (builder != null) {
+                    builder.tagEnd(tag);
+                    if (--depth <= 0) {
+                        written();
                     }
-                    self.attributes.remove(attribute);
-                    int i = xml.children.indexOf(self);
-                    Xml x = xml.children.get(i);
-                    xml.children.remove(i);
-                    xml.children.add(i, Tool.peek(r.apply(x), j -> j.parent = xml));
+                    return;
                 }
-            }
-        });
-        return result;
+                close();
+            })
+                .run();
+        }
     }
 
     /**
@@ -475,11 +803,16 @@ public class Xml {
      */
     @Override
     public String toString() {
-        return root().toString("", xml -> Tool.string(xml.content)
-            .map(String::toLowerCase)
-            .map(singles::contains)
-            .orElse(false))
-            .trim();
+        StringBuilder s = root().toString(new StringBuilder(), "", Xml::isSingle);
+        int end = s.length();
+        int start = 0;
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return s.substring(start, end);
     }
 
     /**
@@ -488,65 +821,215 @@ public class Xml {
      * @return String
      */
     public String toString(String indent, Function<Xml, Boolean> isSingle) {
-        StringBuilder s = new StringBuilder();
+        return toString(new StringBuilder(), indent, isSingle).toString();
+    }
+
+    /**
+     * @param s Output
+     * @param indent Indent
+     * @param isSingle True if single tag
+     * @return Output
+     */
+    StringBuilder toString(StringBuilder s, String indent, Function<Xml, Boolean> isSingle) {
+        return Try.s(() -> write(s, indent, isSingle))
+            .get();
+    }
+
+    /**
+     * @param xml Node
+     * @return True if HTML no-child tag
+     */
+    static boolean isSingle(Xml xml) {
+        return xml.content != null && singles.contains(xml.content.toLowerCase());
+    }
+
+    /**
+     * write whole tree(same as {@link #toString()})
+     *
+     * @param <T> Output type
+     * @param out Output
+     * @return Output
+     * @throws IOException IO error
+     */
+    public <T extends Appendable> T write(T out) throws IOException {
+        root().write(new Trim(out), "", Xml::isSingle);
+        return out;
+    }
+
+    /**
+     * write whole tree(same as {@link #toString()}, not close stream)
+     *
+     * @param out Output
+     * @param charset Charset
+     * @throws IOException IO error
+     */
+    public void write(OutputStream out, Charset charset) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+        write(writer);
+        writer.flush();
+    }
+
+    /**
+     * write node in a single pass(same as {@link #toString(String, Function)})
+     *
+     * @param <T> Output type
+     * @param out Output
+     * @param indent Indent
+     * @param isSingle True if single tag
+     * @return Output
+     * @throws IOException IO error
+     */
+    public <T extends Appendable> T write(T out, String indent, Function<Xml, Boolean> isSingle) throws IOException {
         if (type.isText()) {
             if (parent != null && parent.isNull()) {
-                s.append(newline)
+                out.append(newline)
                     .append(indent);
             }
             if (type == Type.comment) {
-                return s.append("<!--")
+                out.append("<!--")
                     .append(content)
-                    .append("-->")
-                    .toString();
+                    .append("-->");
+            } else if (type.isEscape()) {
+                Tool.htmlEscape(content == null ? "" : content, out);
+            } else {
+                out.append(content);
             }
-            return s.append(type.isEscape() ? Tool.htmlEscape(content) : content)
-                .toString();
+            return out;
         }
         boolean isNull = isNull();
         boolean single = isSingle.apply(this);
         if (!isNull) {
             if (!single) {
-                s.append(newline)
+                out.append(newline)
                     .append(indent);
             }
-            s.append('<')
+            out.append('<')
                 .append(content);
             if (attributes != null && !attributes.isEmpty()) {
-                attributes.entrySet()
-                    .forEach(i -> s.append(' ')
+                for (Map.Entry<String, String> i : attributes.entrySet()) {
+                    out.append(' ')
                         .append(i.getKey())
                         .append("=\"")
                         .append(i.getValue())
-                        .append('"'));
+                        .append('"');
+                }
             }
         }
         boolean noChild = children == null || children.isEmpty();
         if (!isNull) {
             if (noChild && single) {
-                return s.append(" />")
-                    .toString();
+                out.append(" />");
+                return out;
             }
-            s.append('>');
+            out.append('>');
         }
         boolean isNewline = false;
         if (!noChild) {
+            String childIndent = isNull ? indent : indent + Xml.indent;
             for (Xml child : children) {
-                s.append(child.toString(isNull ? indent : indent + Xml.indent, isSingle));
+                child.write(out, childIndent, isSingle);
                 if (!child.type.isText()) {
                     isNewline = true;
                 }
             }
         }
         if (isNewline && !isNull) {
-            s.append(newline)
+            out.append(newline)
                 .append(indent);
         }
-        return isNull ? s.toString()
-                : s.append("</")
-                    .append(content)
-                    .append('>')
-                    .toString();
+        if (!isNull) {
+            out.append("</")
+                .append(content)
+                .append('>');
+        }
+        return out;
+    }
+
+    /**
+     * Output that drops leading and trailing whitespace(same as {@link String#trim()})
+     */
+    static class Trim implements Appendable {
+
+        /**
+         * Output
+         */
+        final Appendable out;
+
+        /**
+         * Whitespace not written yet
+         */
+        final StringBuilder pending = new StringBuilder();
+
+        /**
+         * True if non-whitespace written
+         */
+        boolean started;
+
+        /**
+         * @param out Output
+         */
+        Trim(Appendable out) {
+            this.out = out;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Appendable#append(java.lang.CharSequence)
+         */
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            CharSequence s = String.valueOf(csq);
+            return append(s, 0, s.length());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Appendable#append(java.lang.CharSequence, int, int)
+         */
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            CharSequence s = csq == null ? "null" : csq;
+            if (started && pending.length() <= 0 && end > start && s.charAt(end - 1) > ' ') {
+                out.append(s, start, end);
+                return this;
+            }
+            int last = end - 1;
+            while (last >= start && s.charAt(last) <= ' ') {
+                last--;
+            }
+            if (last < start) {
+                if (started) {
+                    pending.append(s, start, end);
+                }
+                return this;
+            }
+            int first = start;
+            if (!started) {
+                while (s.charAt(first) <= ' ') {
+                    first++;
+                }
+                started = true;
+            }
+            if (pending.length() > 0) {
+                out.append(pending);
+                pending.setLength(0);
+            }
+            out.append(s, first, last + 1);
+            pending.append(s, last + 1, end);
+            return this;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Appendable#append(char)
+         */
+        @Override
+        public Appendable append(char c) throws IOException {
+            return append(String.valueOf(c), 0, 1);
+        }
     }
 
     /**
@@ -744,10 +1227,7 @@ public class Xml {
      */
     public String innerHtml() {
         return children().stream()
-            .map(child -> child.toString("", xml -> Tool.string(xml.content)
-                .map(String::toLowerCase)
-                .map(singles::contains)
-                .orElse(false))
+            .map(child -> child.toString("", Xml::isSingle)
                 .trim())
             .collect(Collectors.joining(newline));
     }
@@ -756,10 +1236,7 @@ public class Xml {
      * @return Outer HTML
      */
     public String outerHtml() {
-        return toString("", xml -> Tool.string(xml.content)
-            .map(String::toLowerCase)
-            .map(singles::contains)
-            .orElse(false)).trim();
+        return toString("", Xml::isSingle).trim();
     }
 
     /**
@@ -0,0 +1,39 @@
+package framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * cache whole response of GET/HEAD route(status 200 only, concurrent misses wait for one computation)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+
+    /**
+     * @return Time to live seconds
+     */
+    int value() default 5;
+
+    /**
+     * @return Parameter names of key(all parameters if empty)
+     */
+    String[] params() default {};
+
+    /**
+     * @return Request header names of key(also sent as Vary)
+     */
+    String[] headers() default {};
+
+    /**
+     * @return Add roles of session account to key(Cache-Control is private if true, also private if {@link Only} or logged in)
+     */
+    boolean role() default false;
+
+    /**
+     * @return Max entries of the route
+     */
+    int max() default 100;
+}
@@ -1,5 +1,6 @@
 package framework.annotation;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.lang.annotation.ElementType;
@@ -11,6 +12,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.text.MessageFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -21,7 +23,9 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -33,6 +37,10 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
@@ -42,10 +50,10 @@ import java.util.stream.Stream;
 import app.config.Sys;
 import framework.Db;
 import framework.Formatter;
+import framework.Index;
 import framework.Log;
 import framework.Message;
 import framework.Reflector;
-import framework.Session;
 import framework.Tool;
 import framework.Try;
 import framework.Tuple;
@@ -62,6 +70,145 @@ public @interface Config {
      */
     String[] value() default {};
 
+    /**
+     * Immutable configuration(published atomically by {@link Injector})
+     */
+    final class Snapshot {
+
+        /**
+         * Version(increment on publish)
+         */
+        public final long version;
+
+        /**
+         * Source properties(class: (locale prefix: properties), not modify after publish)
+         */
+        final Map<Class<?>, Map<String, Properties>> sources;
+
+        /**
+         * Merged properties cache
+         */
+        final Map<Tuple<Class<?>, Locale>, Properties> cache = new ConcurrentHashMap<>();
+
+        /**
+         * Message tables(locale: (name: text))
+         */
+        final Map<Locale, Map<String, Text>> messages = new ConcurrentHashMap<>();
+
+        /**
+         * @param version Version
+         * @param sources Source properties(class: (locale prefix: properties))
+         */
+        Snapshot(long version, Map<Class<?>, Map<String, Properties>> sources) {
+            this.version = version;
+            this.sources = sources;
+        }
+
+        /**
+         * @param clazz Class
+         * @param locale locale
+         * @return Properties(merged by locale prefix, copy)
+         */
+        public Properties getSource(Class<?> clazz, Locale locale) {
+            return Injector.copy(merged(clazz, locale));
+        }
+
+        /**
+         * @param clazz Class
+         * @param locale locale
+         * @return Properties(merged by locale prefix, shared: not modify)
+         */
+        Properties merged(Class<?> clazz, Locale locale) {
+            Map<String, Properties> map = Objects.requireNonNull(sources.get(clazz));
+            return cache.computeIfAbsent(Tuple.of(clazz, locale), t -> {
+                Properties p = new Properties();
+                map.entrySet()
+                    .stream()
+                    .filter(pair -> locale.toString()
+                        .startsWith(pair.getKey()))
+                    .sorted((a, b) -> a.getKey()
+                        .compareTo(b.getKey()))
+                    .map(Map.Entry::getValue)
+                    .forEach(p::putAll);
+                return p;
+            });
+        }
+
+        /**
+         * @param name Message name(e.g. Sys.Alert.required)
+         * @param locale Locale
+         * @return Message text(empty if not a message)
+         */
+        public Optional<Text> message(String name, Locale locale) {
+            return Optional.ofNullable(messages.computeIfAbsent(locale, this::messages)
+                .get(name));
+        }
+
+        /**
+         * @param locale Locale
+         * @return Message table(name: text)
+         */
+        Map<String, Text> messages(Locale locale) {
+            Map<String, Text> table = new HashMap<>();
+            sources.keySet()
+                .forEach(clazz -> merged(clazz, locale).forEach((key, value) -> {
+                    Field field = Injector.getField((String) key);
+                    if (field != null && field.isEnumConstant() && Message.class.isAssignableFrom(field.getType())) {
+                        table.put((String) key, new Text((String) value));
+                    }
+                }));
+            return Collections.unmodifiableMap(table);
+        }
+    }
+
+    /**
+     * Message text(pattern is parsed once)
+     */
+    final class Text {
+
+        /**
+         * Text
+         */
+        public final String text;
+
+        /**
+         * Parsed pattern(null if invalid pattern)
+         */
+        final MessageFormat format;
+
+        /**
+         * True if format has no sub format(stateless, shareable)
+         */
+        final boolean isShareable;
+
+        /**
+         * @param text Text
+         */
+        Text(String text) {
+            this.text = text;
+            MessageFormat f;
+            try {
+                f = new MessageFormat(text);
+            } catch (IllegalArgumentException e) {
+                f = null;
+            }
+            format = f;
+            isShareable = f != null && Stream.of(f.getFormats())
+                .allMatch(Objects::isNull);
+        }
+
+        /**
+         * @param values Values
+         * @return Formatted text
+         */
+        public String format(Object... values) {
+            if (format == null) {
+                return new MessageFormat(text).format(values); // throw IllegalArgumentException
+            }
+            return (isShareable ? format : (MessageFormat) format.clone()).format(values);
+        }
+    }
+
     /**
      * properties inject to static fields
      */
@@ -72,8 +219,26 @@ public @interface Config {
          * @param clazz target class(get source properties by annotation)
          */
         public static void inject(Class<?> clazz) {
+            if (!defaultSources.containsKey(clazz)) {
+                defaultSources.put(clazz, inject(clazz, new Properties(), ""));
+                defaultMap.put(clazz, String.join(Letters.CRLF, dumpConfig(clazz, true)));
+            }
+            Map<String, Long> watched = new ConcurrentHashMap<>();
+            bases.put(clazz, load(clazz, watched));
+            files.put(clazz, watched);
+            publish(Tool.list(clazz));
+        }
 
-            Properties sourceProperties = inject(clazz, new Properties(), "");
+        /**
+         * load config files
+         *
+         * @param clazz target class(get source properties by annotation)
+         * @param watched loaded file paths(path: last modified)
+         * @return source properties(locale prefix: properties)
+         */
+        static Map<String, Properties> load(Class<?> clazz, Map<String, Long> watched) {
+            Properties sourceProperties = new Properties();
+            sourceProperties.putAll(defaultSources.get(clazz));
 
             /* load config files form Config or classname.config */
             String[] fs = Tool.of(clazz.getAnnotation(Config.class))
@@ -82,7 +247,7 @@ public @interface Config {
                 .orElse(Tool.array(Tool.fullName(clazz)
                     .toLowerCase(Locale.ENGLISH) + ".config"));
             for (String f : fs) {
-                sourceProperties.putAll(getProperties(f));
+                sourceProperties.putAll(getProperties(f, watched));
             }
 
             /* resolve variables */
@@ -104,7 +269,6 @@ public @interface Config {
                 }
             }
 
-            defaultMap.put(clazz, String.join(Letters.CRLF, dumpConfig(clazz, true)));
             Map<String, Properties> propertiesMap = Tool.map("", sourceProperties);
             Stream.of(fs)
                 .map(s -> Tuple.of(Tool.getFolder(s), Tool.getName(s), Tool.getExtension(s)))
@@ -116,7 +280,7 @@ public @interface Config {
                         .stream()
                         .map(t -> Tuple.of(t.r.l, t.r.r))
                         .collect(Collectors.toList());
-                    try (Stream<String> list = Tool.getResources(folder)) {
+                    try (Stream<String> list = Index.resources(folder)) {
                         list.map(i -> Tuple.of(i, nameExtension.stream()
                             .filter(ne -> i.startsWith(ne.l) && i.endsWith(ne.r))
                             .findFirst()
@@ -125,12 +289,171 @@ public @interface Config {
                             .map(t -> Tuple.of(t.l, folder.length() + t.r.l.length() + 1, t.l.length() - t.r.r.length()))
                             .filter(t -> t.r.l < t.r.r)
                             .forEach(t -> propertiesMap.compute(t.l
-                                .substring(t.r.l, t.r.r), (k, v) -> v == null ? getProperties(t.l) : Tool.peek(v, vv -> vv.putAll(getProperties(t.l)))));
+                                .substring(t.r.l, t.r.r), (k, v) -> v == null ? getProperties(t.l, watched)
+                                        : Tool.peek(v, vv -> vv.putAll(getProperties(t.l, watched)))));
                     }
                 });
-            sourceMap.put(clazz, propertiesMap);
+            return propertiesMap;
+        }
 
-            inject(clazz, getSource(clazz, Session.currentLocale()), "");
+        /**
+         * build and publish new snapshot, then inject to static fields(by default locale, all changed values are parsed
+         * before assigned)
+         *
+         * @param targets Classes to inject
+         */
+        static synchronized void publish(Collection<Class<?>> targets) {
+            Snapshot previous = snapshot.get();
+            Map<Class<?>, Map<String, Properties>> sources = new LinkedHashMap<>();
+            bases.forEach((clazz, base) -> sources.put(clazz, base.entrySet()
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> copy(e.getValue())))));
+            List<List<String>> others = new ArrayList<>();
+            overrides.values()
+                .forEach(rows -> rows.forEach(row -> {
+                    String name = row.get(0);
+                    Map<String, Properties> map = sources.get(classCache.get(Tool.splitAt(name, "[.]", 0)));
+                    if (map == null) {
+                        others.add(row);
+                    } else {
+                        map.computeIfAbsent(row.get(2), k -> new Properties())
+                            .setProperty(name, row.get(1));
+                    }
+                }));
+            Snapshot next = new Snapshot(previous.version + 1, sources);
+            Locale locale = Locale.getDefault();
+            List<Runnable> changes = new ArrayList<>();
+            List<Class<?>> added = new ArrayList<>();
+            targets.forEach(clazz -> {
+                if (previous.sources.containsKey(clazz)) {
+                    changes(previous.merged(clazz, locale), next.merged(clazz, locale), changes);
+                } else {
+                    added.add(clazz);
+                }
+            });
+            snapshot.set(next);
+            changes.forEach(Runnable::run);
+            added.forEach(clazz -> inject(clazz, next.merged(clazz, locale), ""));
+            /* not config class */
+            others.forEach(row -> Tool.of(getField(row.get(0)))
+                .ifPresent(field -> {
+                    if (row.get(2)
+                        .isEmpty() && !Message.class.isAssignableFrom(field.getDeclaringClass())) {
+                        set(field, row.get(0), row.get(1));
+                    }
+                }));
+        }
+
+        /**
+         * @param before Previous properties
+         * @param after Next properties
+         * @param changes Assignments of changed static fields(values are already parsed)
+         */
+        static void changes(Properties before, Properties after, List<Runnable> changes) {
+            after.stringPropertyNames()
+                .forEach(key -> {
+                    String raw = after.getProperty(key);
+                    if (raw.equals(before.getProperty(key))) {
+                        return;
+                    }
+                    Field field = getField(key);
+                    if (field == null || !Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) || field.isEnumConstant()) {
+                        return;
+                    }
+                    configKeys.add(key);
+                    Object value = parse(field, raw);
+                    changes.add(() -> assign(field, value));
+                });
+        }
+
+        /**
+         * @param properties Properties
+         * @return Copied properties
+         */
+        static Properties copy(Properties properties) {
+            Properties p = new Properties();
+            p.putAll(properties);
+            return p;
+        }
+
+        /**
+         * replace override layer and publish
+         *
+         * @param layer Layer name
+         * @param rows Rows(name, value, locale)
+         * @return True if changed
+         */
+        static synchronized boolean override(String layer, List<List<String>> rows) {
+            if (rows.equals(overrides.get(layer))) {
+                return false;
+            }
+            overrides.put(layer, rows);
+            publish(classes.isEmpty() ? bases.keySet() : classes);
+            return true;
+        }
+
+        /**
+         * @return Current snapshot
+         */
+        public static Snapshot snapshot() {
+            return snapshot.get();
+        }
+
+        /**
+         * reload config files and database config if changed
+         *
+         * @return True if new snapshot published
+         */
+        public static synchronized boolean refresh() {
+            List<Class<?>> modified = files.entrySet()
+                .stream()
+                .filter(e -> e.getValue()
+                    .entrySet()
+                    .stream()
+                    .anyMatch(i -> lastModified(i.getKey()) != i.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+            modified.forEach(clazz -> {
+                Map<String, Long> watched = new ConcurrentHashMap<>();
+                bases.put(clazz, load(clazz, watched));
+                files.put(clazz, watched);
+            });
+            long version = snapshot.get().version;
+            if (!override(DB, readDb()) && !modified.isEmpty()) {
+                publish(classes.isEmpty() ? bases.keySet() : classes);
+            }
+            if (version == snapshot.get().version) {
+                return false;
+            }
+            Log.info("config reloaded: version " + snapshot.get().version);
+            return true;
+        }
+
+        /**
+         * start watcher(disabled if Sys.config_watch_seconds &lt;= 0)
+         *
+         * @return Watcher(must to shutdown)
+         */
+        public static Optional<ScheduledExecutorService> watch() {
+            int seconds = Sys.config_watch_seconds;
+            if (seconds <= 0) {
+                return Optional.empty();
+            }
+            ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(r -> Tool.peek(new Thread(r, "config-watcher"), t -> t.setDaemon(true)));
+            watcher.scheduleWithFixedDelay(Try.r(Injector::refresh, e -> Log.warning(e, () -> "config watch error")), seconds, seconds, TimeUnit.SECONDS);
+            Log.info("config watcher started: every " + seconds + " seconds");
+            return Optional.of(watcher);
+        }
+
+        /**
+         * @param path Config file path
+         * @return Last modified millis(0 if not found or not a file)
+         */
+        static long lastModified(String path) {
+            return Tool.toURL(path)
+                .filter(url -> "file".equals(url.getProtocol()))
+                .map(Try.f(url -> new File(url.toURI()).lastModified()))
+                .orElse(0L);
         }
 
         /**
@@ -140,23 +463,28 @@ public @interface Config {
          * @param value Value
          * @param locale Locale
          */
-        public static void set(String name, String value, String locale) {
-            Tool.of(getField(name))
-                .ifPresent(field -> {
-                    if (locale.isEmpty() && !Message.class.isAssignableFrom(field.getDeclaringClass())) {
-                        set(field, name, value);
-                    }
-                });
-            Tool.of(classCache.get(Tool.splitAt(name, "[.]", 0)))
-                .map(clazz -> sourceMap.get(clazz)
-                    .computeIfAbsent(locale, k -> new Properties()))
-                .ifPresent(map -> map.put(name, value));
+        public static synchronized void set(String name, String value, String locale) {
+            List<List<String>> rows = new ArrayList<>(overrides.get(SET));
+            rows.removeIf(row -> row.get(0)
+                .equals(name)
+                && row.get(2)
+                    .equals(locale));
+            rows.add(Arrays.asList(name, value, locale));
+            override(SET, rows);
         }
 
         /**
          * Load database config
          */
         public static void loadDb() {
+            override(DB, readDb());
+        }
+
+        /**
+         * @return Active rows of t_config(name, value, locale)
+         */
+        static List<List<String>> readDb() {
+            List<List<String>> rows = new ArrayList<>();
             try (Db db = Db.connect()) {
                 String now = Tool.now(14);
                 db.from("t_config")
@@ -171,23 +499,24 @@ public @interface Config {
                             .orElse("");
                         String locale = Tool.string(rs.getString("locale"))
                             .orElse("");
-                        set(name, value, locale);
+                        rows.add(Arrays.asList(name, value, locale));
                     });
-                sourceCache.clear();
             }
+            return rows;
         }
 
         /**
          * Load system properties
          */
         public static void loadSystemProperties() {
+            List<List<String>> rows = new ArrayList<>();
             System.getProperties()
                 .forEach((name, value) -> {
                     if (configKeys.contains(name) || ((String) name).startsWith("Sys.Db.")) { // overwrite only
-                        set((String) name, (String) value, "");
+                        rows.add(Arrays.asList((String) name, (String) value, ""));
                     }
                 });
-            sourceCache.clear();
+            override(SYSTEM, rows);
         }
 
         /**
@@ -205,18 +534,19 @@ public @interface Config {
          * @return message dump
          */
         public static String[] dumpMessage() {
-            Set<Locale> locales = sourceMap.entrySet()
+            Snapshot current = snapshot.get();
+            Set<Locale> locales = current.sources.entrySet()
                 .stream()
                 .flatMap(entry -> entry.getValue()
                     .keySet()
                     .stream())
                 .map(Locale::forLanguageTag)
                 .collect(Collectors.toSet());
-            Set<Class<?>> classes = sourceMap.keySet();
+            Set<Class<?>> classes = current.sources.keySet();
             return locales.stream()
                 .flatMap(locale -> Stream.concat(Stream.of("[" + Tool.string(locale)
                     .orElse("default") + "]"), classes.stream()
-                        .flatMap(clazz -> dumpMessage(getSource(clazz, locale), true).stream())))
+                        .flatMap(clazz -> dumpMessage(current.getSource(clazz, locale), true).stream())))
                 .toArray(String[]::new);
         }
 
@@ -268,6 +598,11 @@ public @interface Config {
          */
         @SuppressWarnings("unchecked")
         public static <T> Optional<T> getValue(String name, Locale locale) {
+            Optional<Text> message = getMessage(name, locale);
+            if (message.isPresent()) {
+                T text = (T) message.get().text;
+                return Optional.of(text);
+            }
             Field field = getField(name);
             if (field == null) {
                 return Optional.empty();
@@ -280,6 +615,16 @@ public @interface Config {
             }
         }
 
+        /**
+         * @param name Message name(e.g. Sys.Alert.required)
+         * @param locale locale
+         * @return Message text(empty if not a message)
+         */
+        public static Optional<Text> getMessage(String name, Locale locale) {
+            return snapshot.get()
+                .message(name, locale);
+        }
+
         /**
          * @param clazz Class
          * @return Default settings
@@ -294,19 +639,8 @@ public @interface Config {
          * @return Properties
          */
         public static Properties getSource(Class<?> clazz, Locale locale) {
-            Map<String, Properties> map = Objects.requireNonNull(sourceMap.get(clazz));
-            return sourceCache.computeIfAbsent(Tuple.of(clazz, locale), t -> {
-                Properties p = new Properties();
-                map.entrySet()
-                    .stream()
-                    .filter(pair -> locale.toString()
-                        .startsWith(pair.getKey()))
-                    .sorted((a, b) -> a.getKey()
-                        .compareTo(b.getKey()))
-                    .map(Map.Entry::getValue)
-                    .forEach(p::putAll);
-                return p;
-            });
+            return snapshot.get()
+                .getSource(clazz, locale);
         }
 
         /**
@@ -332,14 +666,45 @@ public @interface Config {
         static final Map<Class<?>, String> defaultMap = new ConcurrentHashMap<>();
 
         /**
-         * source properties(class: (locale prefix: properties))
+         * default properties(class: properties of initial static fields)
+         */
+        static final Map<Class<?>, Properties> defaultSources = new ConcurrentHashMap<>();
+
+        /**
+         * properties from config files(class: (locale prefix: properties))
+         */
+        static final Map<Class<?>, Map<String, Properties>> bases = new ConcurrentHashMap<>();
+
+        /**
+         * loaded config files(class: (path: last modified))
+         */
+        static final Map<Class<?>, Map<String, Long>> files = new ConcurrentHashMap<>();
+
+        /**
+         * Override layer of system properties
+         */
+        static final String SYSTEM = "system";
+
+        /**
+         * Override layer of database
+         */
+        static final String DB = "db";
+
+        /**
+         * Override layer of {@link #set(String, String, String)}
          */
-        static final Map<Class<?>, Map<String, Properties>> sourceMap = new ConcurrentHashMap<>();
+        static final String SET = "set";
 
         /**
-         * source cache
+         * Override layers(layer: rows(name, value, locale), applied in order)
          */
-        static final Map<Tuple<Class<?>, Locale>, Properties> sourceCache = new ConcurrentHashMap<>();
+        static final Map<String, List<List<String>>> overrides = Tool.peek(new LinkedHashMap<>(), map -> Stream.of(SYSTEM, DB, SET)
+            .forEach(layer -> map.put(layer, Collections.emptyList())));
+
+        /**
+         * Current snapshot
+         */
+        static final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, Collections.emptyMap()));
 
         /**
          * class cache
@@ -414,6 +779,27 @@ public @interface Config {
          */
         static void set(Field field, String key, String text) {
             configKeys.add(key);
+            assign(field, parse(field, text));
+        }
+
+        /**
+         * @param field Field
+         * @param value Value
+         */
+        static void assign(Field field, Object value) {
+            try {
+                field.set(null, value);
+            } catch (IllegalArgumentException | IllegalAccessException | SecurityException e) {
+                throw new InternalError(e);
+            }
+        }
+
+        /**
+         * @param field Field
+         * @param text Value
+         * @return Value of field type
+         */
+        static Object parse(Field field, String text) {
             Class<?> type = field.getType();
             Object value;
             if (type == Optional.class) {
@@ -446,11 +832,7 @@ public @interface Config {
             } else {
                 value = getValue(field, type, text);
             }
-            try {
-                field.set(null, value);
-            } catch (IllegalArgumentException | IllegalAccessException | SecurityException e) {
-                throw new InternalError(e);
-            }
+            return value;
         }
 
         /**
@@ -536,9 +918,11 @@ public @interface Config {
          * inner use
          * 
          * @param path Properties file path
+         * @param watched loaded file paths(path: last modified)
          * @return Properties
          */
-        static Properties getProperties(String path) {
+        static Properties getProperties(String path, Map<String, Long> watched) {
+            watched.put(path, lastModified(path));
             Properties p = new Properties();
             Tool.ifPresentOr(Tool.toURL(path), url -> {
                 Log.info("config load: " + url);
@@ -756,7 +1140,7 @@ public @interface Config {
 		 * @param packages configuration class packages
 		 */
 		public static void setup(String... packages) {
-	        try (Stream<Class<?>> cs = Tool.getClasses(Sys.class.getPackage()
+	        try (Stream<Class<?>> cs = Index.classes(Config.class, Sys.class.getPackage()
 	            .getName())
 	            .filter(c -> Tool.fullName(c)
 	                .indexOf('.') < 0)) {
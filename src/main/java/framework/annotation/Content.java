@@ -67,6 +67,11 @@ public @interface Content {
      */
     String TSV = "text/tab-separated-values";
 
+    /**
+     * text/event-stream
+     */
+    String EVENT_STREAM = "text/event-stream";
+
     /**
      * application/pdf
      */
@@ -4,6 +4,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.regex.Pattern;
 
 import framework.AbstractValidator;
 import framework.annotation.Validator.ErrorAppender;
@@ -32,13 +33,16 @@ public @interface Matches {
 
 	@SuppressWarnings("javadoc")
 	class Validator extends AbstractValidator<Matches> {
+		final Pattern pattern;
+
 		public Validator(Matches annotation) {
 			super(annotation);
+			pattern = Pattern.compile(annotation.value());
 		}
 
 		@Override
 		protected void validate(String name, String value, ErrorAppender appender) {
-			if (value != null && !value.matches(annotation.value())) {
+			if (value != null && !pattern.matcher(value).matches()) {
 				appender.addError(name, value, annotation.message(), "value", annotation.value());
 			}
 		}
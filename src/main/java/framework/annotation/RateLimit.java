@@ -0,0 +1,48 @@
+package framework.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * limit request rate per client(excess requests are rejected with 429)
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * @return Requests per period
+     */
+    int value();
+
+    /**
+     * @return Period seconds
+     */
+    int seconds() default 1;
+
+    /**
+     * @return Max requests at once(same as value if 0, ignored by Redis store)
+     */
+    int burst() default 0;
+
+    /**
+     * @return Client key
+     */
+    By by() default By.ACCOUNT;
+
+    /**
+     * client key
+     */
+    enum By {
+        /**
+         * Remote IP
+         */
+        IP,
+        /**
+         * Account id if logged in, else remote IP
+         */
+        ACCOUNT,
+    }
+}
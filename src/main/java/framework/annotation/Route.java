@@ -27,6 +27,11 @@ public @interface Route {
      */
     Method[] method() default {};
 
+    /**
+     * @return Timeout seconds of asynchronous result(CompletionStage, Sys.async_timeout_seconds if 0, no timeout if negative)
+     */
+    int timeout() default 0;
+
     /**
      * http method
      */
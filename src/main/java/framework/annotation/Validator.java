@@ -5,6 +5,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -23,6 +25,7 @@ import java.util.stream.Stream;
 
 import framework.AbstractValidator;
 import framework.Application;
+import framework.Binder;
 import framework.Formatter;
 import framework.Reflector;
 import framework.Session;
@@ -46,6 +49,40 @@ public @interface Validator {
 	 * Factory constructor
 	 */
 	class Manager {
+		/**
+		 * Validators of field or parameter
+		 */
+		static final Map<AnnotatedElement, List<AbstractValidator<?>>> validators = new ConcurrentHashMap<>();
+
+		/**
+		 * Validation plans(class, valid group, [field name, validators])
+		 */
+		static final Map<Class<?>, Map<Class<? extends All>, List<Tuple<String, List<AbstractValidator<?>>>>>> plans = new ConcurrentHashMap<>();
+
+		/**
+		 * @param element Field or parameter
+		 * @return Validators of annotations(cached)
+		 */
+		public static List<AbstractValidator<?>> validators(AnnotatedElement element) {
+			return validators.computeIfAbsent(element, e -> Collections.unmodifiableList(Stream.of(e.getAnnotations())//
+					.filter(a -> a.annotationType().getAnnotation(Validator.class) != null)//
+					.map(a -> instance(a).orElse(null))//
+					.filter(Objects::nonNull)//
+					.collect(Collectors.toList())));
+		}
+
+		/**
+		 * @param clazz Target class
+		 * @param valid Valid
+		 * @return Field names and validators of the group(cached)
+		 */
+		public static List<Tuple<String, List<AbstractValidator<?>>>> plan(Class<?> clazz, Class<? extends All> valid) {
+			return plans.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>()).computeIfAbsent(valid, k -> Collections.unmodifiableList(Reflector.fields(clazz)
+					.entrySet().stream()//
+					.map(e -> Tuple.of(e.getKey(), validators(e.getValue()).stream().filter(v -> v.isTarget(valid)).collect(Collectors.toList())))//
+					.collect(Collectors.toList())));
+		}
+
 		/**
 		 * @param annotation Target annotation
 		 * @return Validator instance
@@ -70,10 +107,23 @@ public @interface Validator {
 		 * @param parameterizedType Generic type
 		 */
 		public static void validateClass(Collection<AbstractValidator<?>> validators, Class<? extends All> valid, Class<?> clazz, String parameterName, Map<String, List<String>> parameters, ErrorAppender errors, Type... parameterizedType) {
+			validateClass(validators, valid, clazz, parameterName, new Binder.Tree(parameters), errors, parameterizedType);
+		}
+
+		/**
+		 * @param validators All field Validators
+		 * @param valid      Valid
+		 * @param clazz      Target class
+		 * @param parameterName ParameterName
+		 * @param tree       Target values
+		 * @param errors     Errors
+		 * @param parameterizedType Generic type
+		 */
+		public static void validateClass(Collection<AbstractValidator<?>> validators, Class<? extends All> valid, Class<?> clazz, String parameterName, Binder.Tree tree, ErrorAppender errors, Type... parameterizedType) {
+			Map<String, List<String>> parameters = tree.parameters;
 			if(Iterable.class.isAssignableFrom(clazz)) {
 				AtomicInteger index = new AtomicInteger();
-				parameters.entrySet().stream()//
-					.filter(e -> e.getKey().startsWith(parameterName))//match prefix
+				tree.entries(parameterName).stream()//match name, name[...] and name.xxx
 					.flatMap(e -> {//parse index, rest prefix, and value
 						String key = e.getKey();
 						int begin = key.indexOf('[');
@@ -88,15 +138,16 @@ public @interface Validator {
 					});
 				return;
 			}
-			Reflector.fields(clazz).forEach((name, field) -> {
-				String fullName = parameterName + "." + name;
+			for (Tuple<String, List<AbstractValidator<?>>> step : plan(clazz, valid)) {
+				String fullName = parameterName + "." + step.l;
 				String value = Tool.getJoin(parameters, fullName, ",").orElseGet(() -> Tool.getJoin(parameters, fullName + "[]", ",").orElse(null));
-				Stream.concat(validators.stream(), Stream.of(field.getAnnotations())//
-					.filter(a -> a.annotationType().getAnnotation(Validator.class) != null)//
-					.map(a -> Manager.instance(a).orElse(null))//
-					.filter(Objects::nonNull))//
-					.forEach(v -> v.validate(valid, fullName, value, errors));
-			});
+				for (AbstractValidator<?> v : validators) {
+					v.validate(valid, fullName, value, errors);
+				}
+				for (AbstractValidator<?> v : step.r) {
+					v.validate(valid, fullName, value, errors);
+				}
+			}
 		}
 
 		/**
@@ -110,6 +161,18 @@ public @interface Validator {
 		public static void validateClass(Class<? extends All> valid, Class<?> clazz, String parameterName, Map<String, List<String>> parameters, ErrorAppender errors, Type... parameterizedType) {
 			validateClass(Application.current().map(a -> a.globalValidators).orElseGet(Collections::emptySet), valid, clazz, parameterName, parameters, errors, parameterizedType);
 		}
+
+		/**
+		 * @param valid      Valid
+		 * @param clazz      Target class
+		 * @param parameterName ParameterName
+		 * @param tree       Target values
+		 * @param errors     Errors
+		 * @param parameterizedType Generic type
+		 */
+		public static void validateClass(Class<? extends All> valid, Class<?> clazz, String parameterName, Binder.Tree tree, ErrorAppender errors, Type... parameterizedType) {
+			validateClass(Application.current().map(a -> a.globalValidators).orElseGet(Collections::emptySet), valid, clazz, parameterName, tree, errors, parameterizedType);
+		}
 	}
 
     /**
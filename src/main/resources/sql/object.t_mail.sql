@@ -0,0 +1,7 @@
+CREATE TABLE t_mail(
+id VARCHAR(64) NOT NULL,
+message BLOB NOT NULL,
+attempts INT DEFAULT 0 NOT NULL,
+error VARCHAR(1024),
+created_at TIMESTAMP NOT NULL,
+PRIMARY KEY(id));
@@ -0,0 +1,141 @@
+package framework;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import app.config.Sys;
+
+/**
+ * AccessLog test
+ */
+public class TestAccessLog extends Tester {
+
+    /**
+     * @param folder Folder
+     */
+    static void delete(Path folder) {
+        Try.r(() -> {
+            try (Stream<Path> files = Files.list(folder)) {
+                files.forEach(Try.c(Files::delete));
+            }
+            Files.delete(folder);
+        })
+            .run();
+    }
+
+    /**
+     * @param id Session id
+     * @return Session(new instance per call, as per request)
+     */
+    static Session session(String id) {
+        return new TestConfig.Stub(Locale.ROOT) {
+            @Override
+            public String toString() {
+                return id;
+            }
+        };
+    }
+
+    {
+        group("AccessLog", g -> {
+            boolean enabled = Sys.AccessLog.enabled;
+            String folder = Sys.AccessLog.folder;
+            int bytes = Sys.AccessLog.buffer_bytes;
+            Path temp = Try.s(() -> Files.createTempDirectory("access"))
+                .get();
+            beforeEach(() -> {
+                Sys.AccessLog.enabled = true;
+                Sys.AccessLog.folder = temp.toString();
+            });
+            afterEach(() -> {
+                AccessLog.shutdown();
+                Sys.AccessLog.enabled = enabled;
+                Sys.AccessLog.folder = folder;
+                Sys.AccessLog.buffer_bytes = bytes;
+            });
+            expect(g + ":string", n -> AccessLog.string(new StringBuilder(), "a\"b\\c\n\u0001").toString()).toEqual("\"a\\\"b\\\\c\\n\\u0001\"");
+            expect(g + ":hex", n -> AccessLog.hex(new StringBuilder(), 0xABC).toString()).toEqual("00000abc");
+            expect(g + ":encode", n -> {
+                AccessLog.Encoder encoder = new AccessLog.Encoder();
+                encoder.text.append("aé日\uD83D\uDE00");
+                int length = encoder.encode();
+                return new String(encoder.bytes, 0, length, StandardCharsets.UTF_8);
+            }).toEqual("aé日\uD83D\uDE00");
+            expect(g + ":time", n -> AccessLog.time(new StringBuilder(), 1234567890012L).toString()
+                .matches("\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d\\.012")).toEqual(true);
+            expect(g + ":write", n -> {
+                Request request = new TestTiming.Stub();
+                request.route = "/test";
+                AccessLog.write(request, null, 200, 12, null);
+                AccessLog.flush();
+                String line = new String(Try.s(() -> Files.readAllBytes(Paths.get(temp.toString(), Sys.AccessLog.file_pattern.format(LocalDate.now()))))
+                    .get(), StandardCharsets.UTF_8);
+                return line.replaceAll("\"(time|duration_ms|request)\":[^,]+,", "");
+            }).toEqual("{\"method\":\"GET\",\"path\":\"/test\",\"route\":\"/test\",\"status\":200,\"bytes\":12,\"ip\":\"127.0.0.1\",\"session\":\"00000000\"}\n");
+            expect(g + ":ids", n -> {
+                Path file = Paths.get(temp.toString(), Sys.AccessLog.file_pattern.format(LocalDate.now()));
+                Try.r(() -> Files.deleteIfExists(file))
+                    .run();
+                Request first = new TestTiming.Stub();
+                Request second = new TestTiming.Stub();
+                AccessLog.write(first, session("id1"), 200, 0, null);
+                AccessLog.write(second, session("id1"), 200, 0, null);
+                AccessLog.flush();
+                List<String> lines = Try.s(() -> Files.readAllLines(file))
+                    .get();
+                Function<String, String> session = line -> line.replaceAll(".*\"session\":\"([^\"]+)\".*", "$1");
+                return lines.get(0)
+                    .contains("\"request\":" + first.number + ",")
+                        + ":" + lines.get(1)
+                            .contains("\"request\":" + second.number + ",")
+                        + ":" + (first.number != second.number) + ":" + session.apply(lines.get(0))
+                            .equals(session.apply(lines.get(1)));
+            }).toEqual("true:true:true:true");
+            expect(g + ":swap", n -> {
+                Sys.AccessLog.buffer_bytes = 1024;
+                Path file = Paths.get(temp.toString(), Sys.AccessLog.file_pattern.format(LocalDate.now()));
+                Try.r(() -> Files.deleteIfExists(file))
+                    .run();
+                Request request = new TestTiming.Stub();
+                for (int i = 0; i < 100; i++) {
+                    request.route = "/" + i;
+                    AccessLog.write(request, null, 200, 0, null);
+                }
+                request.route = String.join("", Collections.nCopies(2000, "x"));
+                AccessLog.write(request, null, 200, 0, null);
+                AccessLog.flush();
+                List<String> lines = Try.s(() -> Files.readAllLines(file))
+                    .get();
+                return lines.size() + ":" + IntStream.range(0, 100)
+                    .allMatch(i -> lines.get(i)
+                        .contains("\"route\":\"/" + i + "\""))
+                        + ":" + lines.get(100)
+                            .contains(request.route);
+            }).toEqual("101:true:true");
+            expect(g + ":rotate", n -> {
+                AccessLog.write(new TestTiming.Stub(), null, 404, 0, null);
+                Path old = temp.resolve("old.log");
+                Try.r(() -> Files.write(old, "old\n".getBytes(StandardCharsets.UTF_8)))
+                    .run();
+                synchronized (AccessLog.lock) {
+                    AccessLog.close();
+                    AccessLog.path = old;
+                }
+                AccessLog.flush();
+                AccessLog.shutdown();
+                String result = Files.exists(old) + ":" + Files.exists(temp.resolve("old.log.gz"));
+                delete(temp);
+                return result;
+            }).toEqual("false:true");
+        });
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Binder test
@@ -253,6 +254,19 @@ public class TestBinder extends Tester {
                     eq.accept(LocalDate.of(2001, 2, 3), o.birthday);
                     eq.accept(o.gender, User.Gender.FEMALE);
                 });
+        expect("Tree", n -> new Binder.Tree(new Parser.Url().parse("c[0].id=1&cc=2&c.name=abc&c=3")).entries("c")
+            .stream()
+            .map(Map.Entry::getKey)
+            .collect(Collectors.joining(","))).toEqual("c[0].id,c.name,c");
+        expect("List<Class> large", n -> {
+            StringBuilder s = new StringBuilder("x=0");
+            for (int i = 0; i < 500; i++) {
+                s.append("&c[").append(i).append("].id=").append(i).append("&c[").append(i).append("].name=n").append(i);
+            }
+            @SuppressWarnings("unchecked")
+            List<User> list = (List<User>) binder(s.toString()).bind("c", List.class, User.class);
+            return list.size() + ":" + list.get(499).id + ":" + list.get(499).name;
+        }).toEqual("500:499:n499");
     }
 
     @SuppressWarnings("javadoc")
@@ -0,0 +1,116 @@
+package framework;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import app.config.Sys;
+import framework.annotation.Config;
+
+/**
+ * Config test
+ */
+public class TestConfig extends Tester {
+
+    /**
+     * Session of a locale
+     */
+    static class Stub extends Session {
+
+        /**
+         * @param locale Locale
+         */
+        Stub(Locale locale) {
+            this.locale = locale;
+        }
+
+        @Override
+        public Stream<String> names() {
+            return Stream.empty();
+        }
+
+        @Override
+        public <T extends Serializable> Optional<T> getAttr(String name) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void setAttr(String name, Serializable value) {
+        }
+
+        @Override
+        public void removeAttr(String name) {
+        }
+    }
+
+    static {
+        Config.Injector.inject(Sys.class);
+    }
+
+    {
+        group("snapshot", g -> {
+            afterEach(() -> Config.Injector.set("Sys.format_max_depth", "8", ""));
+            expect(g + ":version", n -> {
+                long version = Config.Injector.snapshot().version;
+                Config.Injector.set("Sys.format_max_depth", "3", "");
+                return Config.Injector.snapshot().version - version;
+            }).toEqual(1L);
+            expect(g + ":field", n -> {
+                Config.Injector.set("Sys.format_max_depth", "3", "");
+                return Sys.format_max_depth;
+            }).toEqual(3);
+            expect(g + ":immutable", n -> {
+                Config.Snapshot before = Config.Injector.snapshot();
+                Config.Injector.set("Sys.format_max_depth", "3", "");
+                return before.getSource(Sys.class, Locale.ROOT)
+                    .getProperty("Sys.format_max_depth") + ":"
+                        + Config.Injector.snapshot()
+                            .getSource(Sys.class, Locale.ROOT)
+                            .getProperty("Sys.format_max_depth");
+            }).toEqual("8:3");
+            expect(g + ":locale", n -> {
+                Config.Injector.set("Sys.format_max_depth", "5", "ja");
+                return Sys.format_max_depth + ":" + Config.Injector.getSource(Sys.class, Locale.JAPANESE)
+                    .getProperty("Sys.format_max_depth");
+            }).toEqual("8:5");
+            expect(g + ":session locale", n -> {
+                Config.Injector.set("Sys.format_max_depth", "5", Locale.JAPANESE.toString());
+                Session.CURRENT.set(new Stub(Locale.JAPANESE));
+                try {
+                    Config.Injector.set("Sys.format_max_depth", "4", "");
+                } finally {
+                    Session.CURRENT.remove();
+                }
+                return Sys.format_max_depth;
+            }).toEqual(4);
+            expect(g + ":copy", n -> {
+                Config.Injector.getSource(Sys.class, Locale.ROOT)
+                    .setProperty("Sys.format_max_depth", "1");
+                return Config.Injector.getSource(Sys.class, Locale.ROOT)
+                    .getProperty("Sys.format_max_depth");
+            }).toEqual("8");
+        });
+
+        group("message", g -> {
+            afterEach(() -> Config.Injector.set("Sys.Alert.error", "System error!", ""));
+            expect(g + ":text", n -> Config.Injector.getMessage("Sys.Alert.error", Locale.ROOT)
+                .map(i -> i.text)
+                .orElse(null)).toEqual("System error!");
+            expect(g + ":not message", n -> Config.Injector.getMessage("Sys.format_max_depth", Locale.ROOT)
+                .isPresent()).toEqual(false);
+            expect(g + ":enum", n -> {
+                Config.Injector.set("Sys.Alert.error", "{0} failed", "");
+                return Sys.Alert.error.message(Locale.ROOT) + ":" + Sys.Alert.error.format(Locale.ROOT, "Save");
+            }).toEqual("{0} failed:Save failed");
+            expect(g + ":formatter", n -> {
+                Config.Injector.set("Sys.Alert.error", "{0} failed({1})", "");
+                return Formatter.format("{Sys.Alert.error:Save:1}", Formatter::excludeForHtml, Tool::htmlEscape, Locale.ROOT, null);
+            }).toEqual("Save failed(1)");
+            expect(g + ":sub format", n -> {
+                Config.Injector.set("Sys.Alert.error", "{0,number,#.0}", "");
+                return Sys.Alert.error.format(Locale.ROOT, 1.25) + ":" + Sys.Alert.error.format(Locale.ROOT, 2);
+            }).toEqual("1.2:2.0");
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import framework.annotation.Join;
+
+/**
+ * Db test(SQL generation and H2 in memory)
+ */
+public class TestDb extends Tester {
+    {
+        List<String> names = Tool.list("id", "name", "value");
+        List<String> values = Tool.list("1", "'a'", "'b'");
+        Map<String, String> updates = Tool.map("value", null, "name", "'c'");
+        group("upsert", g -> {
+            expect(g + ":mysql", n -> new Db.Builder().upsert("t", names, 1, values, updates))
+                .toEqual("INSERT INTO t(id, name, value) VALUES(1, 'a', 'b') ON DUPLICATE KEY UPDATE value = VALUES(value), name = 'c'");
+            expect(g + ":mysql:keyOnly", n -> new Db.Builder().upsert("t", names, 1, values, Tool.map()))
+                .toEqual("INSERT INTO t(id, name, value) VALUES(1, 'a', 'b') ON DUPLICATE KEY UPDATE id = id");
+            expect(g + ":postgresql", n -> new Db.PostgresqlBuilder().upsert("t", names, 2, values, Tool.map("value", null)))
+                .toEqual("INSERT INTO t(id, name, value) VALUES(1, 'a', 'b') ON CONFLICT (id, name) DO UPDATE SET value = EXCLUDED.value");
+            expect(g + ":postgresql:keyOnly", n -> new Db.PostgresqlBuilder().upsert("t", names, 1, values, Tool.map()))
+                .toEqual("INSERT INTO t(id, name, value) VALUES(1, 'a', 'b') ON CONFLICT (id) DO NOTHING");
+            expect(g + ":postgresql:returning", n -> new Db.PostgresqlBuilder().upsertReturning("UPSERT").get()).toEqual("UPSERT RETURNING (xmax = 0)");
+            expect(g + ":h2", n -> new Db.H2Builder().upsert("t", names, 1, values, Tool.map("value", null)))
+                .toEqual("MERGE INTO t D__ USING (SELECT 1 AS id, 'a' AS name, 'b' AS value) S__ ON (D__.id = S__.id)"
+                        + " WHEN MATCHED THEN UPDATE SET value = S__.value WHEN NOT MATCHED THEN INSERT (id, name, value) VALUES (S__.id, S__.name, S__.value)");
+            expect(g + ":h2:returning", n -> new Db.H2Builder().upsertReturning("UPSERT").isPresent()).toEqual(false);
+            expect(g + ":oracle", n -> new Db.OracleBuilder().upsert("t", names, 2, values, Tool.map()))
+                .toEqual("MERGE INTO t D__ USING (SELECT 1 AS id, 'a' AS name, 'b' AS value FROM DUAL) S__ ON (D__.id = S__.id AND D__.name = S__.name)"
+                        + " WHEN NOT MATCHED THEN INSERT (id, name, value) VALUES (S__.id, S__.name, S__.value)");
+            expect(g + ":sqlserver", n -> new Db.SqlserverBuilder().upsertReturning(new Db.SqlserverBuilder().upsert("t", names, 1, values, Tool.map("value", null))).get())
+                .toEqual("MERGE INTO t WITH (HOLDLOCK) D__ USING (SELECT 1 AS id, 'a' AS name, 'b' AS value) S__ ON (D__.id = S__.id)"
+                        + " WHEN MATCHED THEN UPDATE SET value = S__.value WHEN NOT MATCHED THEN INSERT (id, name, value) VALUES (S__.id, S__.name, S__.value)"
+                        + " OUTPUT CASE WHEN $action = 'INSERT' THEN 1 ELSE 0 END;");
+        });
+
+        group("batch", g -> {
+            expect(g + ":once", n -> {
+                try (Db db = h2("batch")) {
+                    db.executeOne("CREATE TABLE t_batch(id INT PRIMARY KEY)");
+                    long before = Metrics.db.count();
+                    int[] rows = db.executeBatch(Tool.list("INSERT INTO t_batch VALUES(1)", "INSERT INTO t_batch VALUES(2)", "INSERT INTO t_batch VALUES(3)"));
+                    return rows.length + ":" + (Metrics.db.count() - before) + ":" + count(db, "t_batch");
+                }
+            }).toEqual("3:1:3");
+            expect(g + ":explainReset", n -> new Db.SqlserverBuilder().explain("SELECT 1") + ":" + new Db.SqlserverBuilder().explainReset() + ":"
+                    + new Db.Builder().explainReset()).toEqual("[SET SHOWPLAN_TEXT ON, SELECT 1]:[SET SHOWPLAN_TEXT OFF]:[]");
+        });
+
+        group("save", g -> {
+            expect(g + ":h2", n -> {
+                try (Db db = h2("save")) {
+                    db.executeOne("CREATE TABLE t_save(id INT PRIMARY KEY, name VARCHAR(10))");
+                    String[] columns = { "id", "name" };
+                    boolean inserted = db.save("t_save", columns, 1, 1, "a");
+                    boolean updated = db.save("t_save", columns, 1, 1, "b");
+                    int duplicate = db.executeOne(db.getBuilder()
+                        .insertIfAbsent("t_save", Tool.list(columns), 1, Tool.list("1", "'c'")));
+                    int added = db.executeOne(db.getBuilder()
+                        .insertIfAbsent("t_save", Tool.list(columns), 1, Tool.list("2", "'c'")));
+                    return inserted + ":" + updated + ":" + duplicate + ":" + added + ":" + db.stream("SELECT name FROM t_save ORDER BY id")
+                        .map(Try.f(rs -> rs.getString(1)))
+                        .collect(Collectors.joining(","));
+                }
+            }).toEqual("true:false:0:1:b,c");
+            expect(g + ":mysql", n -> new Db.Builder().insertIfAbsent("t", names, 1, values))
+                .toEqual("INSERT IGNORE INTO t(id, name, value) VALUES(1, 'a', 'b')");
+        });
+
+        group("join", g -> {
+            expect(g + ":pairs", n -> Db.pairs("id : account_id", "name")
+                .stream()
+                .map(pair -> pair[0] + "/" + pair[1])
+                .collect(Collectors.joining(","))).toEqual("id/account_id,name/name");
+            expect(g + ":children", n -> Db.joinSql(new Db.Builder(), join("children"), Item.class, Db.pairs("id:parent_id"), Tool.list(Tool.list(1), Tool.list(2))))
+                .toEqual("SELECT * FROM item WHERE parent_id IN (1, 2) AND (deleted = 0)");
+            expect(g + ":relation", n -> Db.joinSql(new Db.Builder(), join("tags"), Tag.class, Db.pairs("id:item_id", "kind"), Tool.list(Tool.list(1, "a"))))
+                .toEqual("SELECT T__.*, R__.item_id AS J__0, R__.kind AS J__1 FROM Tag T__ INNER JOIN item_tag R__ ON T__.id = R__.tag_id"
+                        + " WHERE ((R__.item_id = 1 AND R__.kind = 'a'))");
+            expect(g + ":load", n -> {
+                try (Db db = h2("join")) {
+                    db.executeOne("CREATE TABLE item(id INT PRIMARY KEY, parent_id INT, deleted INT)");
+                    db.executeOne("INSERT INTO item VALUES(1, NULL, 0), (2, 1, 0), (3, 1, 1), (4, 2, 0)");
+                    db.executeOne("CREATE TABLE tag(id INT PRIMARY KEY)");
+                    db.executeOne("INSERT INTO tag VALUES(10), (11)");
+                    db.executeOne("CREATE TABLE item_tag(item_id DECIMAL(10, 2), tag_id INT)");
+                    db.executeOne("INSERT INTO item_tag VALUES(1, 10), (1, 11), (2, 11)");
+                    return db.findAll(Item.class)
+                        .map(item -> item.id + item.children.stream()
+                            .map(i -> String.valueOf(i.id))
+                            .collect(Collectors.joining(",", "[", "]"))
+                                + item.tags.stream()
+                                    .map(i -> String.valueOf(i.id))
+                                    .sorted()
+                                    .collect(Collectors.joining(",", "[", "]")))
+                        .collect(Collectors.joining(" "));
+                }
+            }).toEqual("1[2][10,11] 2[4][11] 3[][] 4[][]");
+        });
+
+        group("replica", g -> {
+            expect(g + ":roundRobin", n -> {
+                Db.Replicas replicas = new Db.Replicas(Tool.list(null, null, null));
+                return IntStream.range(0, 4)
+                    .mapToObj(i -> String.valueOf(replicas.select(Db.Selection.ROUND_ROBIN)))
+                    .collect(Collectors.joining(","));
+            }).toEqual("0,1,2,0");
+            expect(g + ":leastLoaded", n -> {
+                Db.Replicas replicas = new Db.Replicas(Tool.list(null, null, null));
+                replicas.actives[0].set(2);
+                replicas.actives[1].set(1);
+                replicas.actives[2].set(1);
+                return IntStream.range(0, 3)
+                    .mapToObj(i -> String.valueOf(replicas.select(Db.Selection.LEAST_LOADED)))
+                    .collect(Collectors.joining(","));
+            }).toEqual("1,1,2");
+            expect(g + ":readYourWrites", n -> {
+                Db.replicaMap.put("test", Optional.of(new Db.Replicas(Tool.list(Try.s(() -> Db.createDataSource(url("replica"), null))
+                    .get()))));
+                try (Db replica = h2("replica"); Db db = h2("primary")) {
+                    replica.executeOne("CREATE TABLE t_rw(id INT)");
+                    db.executeOne("CREATE TABLE t_rw(id INT)");
+                    db.suffix = "test";
+                    boolean before = db.reader() != db;
+                    db.executeOne("INSERT INTO t_rw VALUES(1)");
+                    boolean after = db.reader() == db;
+                    return before + ":" + after + ":" + count(db.reader(), "t_rw");
+                } finally {
+                    Db.replicaMap.remove("test");
+                }
+            }).toEqual("true:true:1");
+            expect(g + ":primary", n -> {
+                Db.replicaMap.put("test", Optional.of(new Db.Replicas(Tool.list(Try.s(() -> Db.createDataSource(url("replica"), null))
+                    .get()))));
+                try (Db db = h2("primary")) {
+                    db.suffix = "test";
+                    return db.primary()
+                        .reader() == db;
+                } finally {
+                    Db.replicaMap.remove("test");
+                }
+            }).toEqual(true);
+            expect(g + ":lastWrite", n -> {
+                Db.replicaMap.put("test", Optional.of(new Db.Replicas(Tool.list(Try.s(() -> Db.createDataSource(url("replica"), null))
+                    .get()))));
+                List<Long> saved = new ArrayList<>();
+                int[] loads = { 0 };
+                Db.lastWrite.set(new Db.LastWrite(() -> {
+                    loads[0]++;
+                    return Optional.empty();
+                }, saved::add));
+                try {
+                    boolean before;
+                    try (Db db = h2("primary")) {
+                        db.executeOne("CREATE TABLE t_lw(id INT)");
+                        db.suffix = "test";
+                        before = db.reader() != db;
+                        db.executeOne("INSERT INTO t_lw VALUES(1)");
+                    }
+                    try (Db db = h2("primary")) {
+                        db.suffix = "test";
+                        return before + ":" + saved.size() + ":" + (db.reader() == db) + ":" + loads[0];
+                    }
+                } finally {
+                    Db.lastWrite.remove();
+                    Db.replicaMap.remove("test");
+                }
+            }).toEqual("true:1:true:1");
+        });
+    }
+
+    /**
+     * @param name In-memory database name
+     * @return Connection string
+     */
+    static String url(String name) {
+        return "jdbc:h2:mem:" + name;
+    }
+
+    /**
+     * @param name In-memory database name
+     * @return Database
+     */
+    static Db h2(String name) {
+        return Tool.val(Try.s(() -> Db.createDataSource(url(name), null))
+            .get(), trio -> new Db(Try.s(trio.l::getConnection)
+                .get(), trio.r.l, trio.r.r));
+    }
+
+    /**
+     * @param db Database
+     * @param table Table
+     * @return Row count
+     */
+    static long count(Db db, String table) {
+        return db.stream("SELECT COUNT(*) FROM " + table)
+            .map(Try.f(rs -> rs.getLong(1)))
+            .findFirst()
+            .orElse(-1L);
+    }
+
+    /**
+     * @param name Field name of Item
+     * @return Join
+     */
+    static Join join(String name) {
+        return Reflector.field(Item.class, name)
+            .get()
+            .getAnnotation(Join.class);
+    }
+
+    /**
+     * join test model
+     */
+    static class Item {
+        /**
+         * id
+         */
+        long id;
+
+        /**
+         * children
+         */
+        @Join(table = "item", from = "id:parent_id", value = "deleted = 0")
+        List<Item> children;
+
+        /**
+         * tags
+         */
+        @Join(table = "item_tag", from = "id:item_id", to = "id:tag_id")
+        List<Tag> tags;
+    }
+
+    /**
+     * join test model
+     */
+    static class Tag {
+        /**
+         * id
+         */
+        int id;
+    }
+}
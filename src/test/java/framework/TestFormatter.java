@@ -0,0 +1,64 @@
+package framework;
+
+import java.util.Locale;
+import java.util.Map;
+
+import app.config.Sys;
+import framework.Try.TriFunction;
+
+/**
+ * Formatter test
+ */
+public class TestFormatter extends Tester {
+
+    /**
+     * Values
+     */
+    static final Map<String, String> values = Tool.map("a", "A", "b", "B", "n", "{b}", "m", "${a}-{b}", "loop", "x{loop}");
+
+    /**
+     * Convert by values(not found: as is)
+     */
+    static final TriFunction<String, Integer, Integer, String> convert = (before, prefix, suffix) -> values.getOrDefault(before.substring(prefix, before.length() - suffix), before);
+
+    /**
+     * @param text Text
+     * @return Formatted text
+     */
+    static String sql(String text) {
+        return Formatter.format(convert, text, Formatter::excludeForSql, null, Locale.ROOT, null);
+    }
+
+    {
+        group("format", g -> {
+            expect(g + ":plain", n -> sql("SELECT 1")).toEqual("SELECT 1");
+            expect(g + ":prefix", n -> Formatter.format(convert, "${a} #{a} {a} <!--{a}--> /*{a}*/ {/*a*/}", null, null, Locale.ROOT, null)).toEqual("A A A A A A");
+            expect(g + ":inner", n -> sql("x{{a}}y")).toEqual("x{A}y");
+            expect(g + ":nested", n -> sql("{n} {m}")).toEqual("B A-B");
+            expect(g + ":exclude", n -> sql("'{a}' {a} -- {b}\n{b}")).toEqual("'{a}' A -- {b}\nB");
+            expect(g + ":unknown", n -> sql("{x} {a")).toEqual("{x} {a");
+            expect(g + ":single pass", n -> {
+                Formatter formatter = new Formatter(null, null, Locale.ROOT, null);
+                return formatter.format("{n}", convert);
+            }).toEqual("{b}");
+        });
+
+        group("escape", g -> {
+            expect(g + ":newline", n -> Formatter.scriptEscape("a\nb\"")).toEqual("a\\nb\"");
+            expect(g + ":newline empty", n -> Formatter.scriptEscape("")).toNull();
+        });
+
+        group("depth", g -> {
+            int depth = Sys.format_max_depth;
+            afterEach(() -> Sys.format_max_depth = depth);
+            expect(g + ":limit", n -> {
+                Sys.format_max_depth = 3;
+                return sql("{loop}");
+            }).toEqual("xxxx{loop}");
+            expect(g + ":zero", n -> {
+                Sys.format_max_depth = 0;
+                return sql("{n}");
+            }).toEqual("{b}");
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package framework;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index test
+ */
+public class TestIndex extends Tester {
+    /**
+     * @param text Index text
+     * @return Kind to names
+     */
+    static Map<String, Set<String>> read(String text) {
+        Map<String, Set<String>> index = new TreeMap<>();
+        Try.r(() -> Index.read(new StringReader(text), index))
+            .run();
+        return index;
+    }
+
+    {
+        group("read", g -> {
+            expect(g + ":lines", n -> read("# comment\nRoute\tapp.controller.Main\npackage\tapp.controller\nRoute\tapp.controller.Sub$Inner\n").toString())
+                .toEqual("{Route=[app.controller.Main, app.controller.Sub$Inner], package=[app.controller]}");
+            expect(g + ":write", n -> {
+                StringWriter writer = new StringWriter();
+                Try.r(() -> Index.write(writer, read("folder\tsql\nresource\tsql/a.sql\n")))
+                    .run();
+                return read(writer.toString()).toString();
+            }).toEqual("{folder=[sql], resource=[sql/a.sql]}");
+        });
+
+        group("covers", g -> {
+            Map<String, Set<String>> index = read("package\tapp.controller\nfolder\tsql\n");
+            expect(g + ":same", n -> Index.covers(index, Index.PACKAGE, "app.controller", '.')).toEqual(true);
+            expect(g + ":parent", n -> Index.covers(index, Index.PACKAGE, "app", '.')).toEqual(true);
+            expect(g + ":child", n -> Index.covers(index, Index.FOLDER, "sql/h2", '/')).toEqual(true);
+            expect(g + ":other", n -> Index.covers(index, Index.PACKAGE, "app.model", '.')).toEqual(false);
+            expect(g + ":prefix", n -> Index.covers(index, Index.FOLDER, "sq", '/')).toEqual(false);
+            expect(g + ":not indexed", n -> Index.covers(null, Index.PACKAGE, "app", '.')).toEqual(false);
+        });
+    }
+}
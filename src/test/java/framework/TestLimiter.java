@@ -0,0 +1,92 @@
+package framework;
+
+import app.config.Sys;
+
+/**
+ * Limiter test
+ */
+public class TestLimiter extends Tester {
+    {
+        group("Limit", g -> {
+            Limiter.Algorithm algorithm = Sys.Limit.algorithm;
+            afterEach(() -> Sys.Limit.algorithm = algorithm);
+            expect(g + ":acquire", n -> {
+                Limiter.Limit limit = new Limiter.Limit("test", 2);
+                Limiter.Permit a = limit.acquire(1.0);
+                Limiter.Permit b = limit.acquire(1.0);
+                Limiter.Permit c = limit.acquire(1.0);
+                return (a != null) + ":" + (b != null) + ":" + (c == null) + ":" + limit.inflight() + ":" + limit.accepted.sum() + ":" + limit.rejected.sum();
+            }).toEqual("true:true:true:2:2:1");
+            expect(g + ":ratio", n -> {
+                Limiter.Limit limit = new Limiter.Limit("test", 10);
+                int count = 0;
+                while (limit.acquire(0.8) != null) {
+                    count++;
+                }
+                return count + ":" + (limit.acquire(1.0) != null);
+            }).toEqual("8:true");
+            expect(g + ":release", n -> {
+                Sys.Limit.algorithm = Limiter.Algorithm.FIXED;
+                Limiter.Limit limit = new Limiter.Limit("test", 1);
+                limit.acquire(1.0)
+                    .close();
+                return limit.inflight() + ":" + (limit.acquire(1.0) != null) + ":" + limit.limit();
+            }).toEqual("0:true:1");
+            expect(g + ":aimd", n -> {
+                Sys.Limit.algorithm = Limiter.Algorithm.AIMD;
+                Limiter.Limit limit = new Limiter.Limit("test", 10);
+                limit.update(1000000L, 5, false);
+                String increased = String.valueOf(limit.limit());
+                limit.update(Sys.Limit.aimd_timeout_millis * 2000000L, 5, false);
+                return increased + ":" + limit.limit();
+            }).toEqual("11:9");
+            expect(g + ":gradient", n -> {
+                Sys.Limit.algorithm = Limiter.Algorithm.GRADIENT;
+                Limiter.Limit limit = new Limiter.Limit("test", 100);
+                for (int i = 0; i < 10; i++) {
+                    limit.update(1000000L, 100, false);
+                }
+                int grown = limit.limit();
+                for (int i = 0; i < 10; i++) {
+                    limit.update(100000000L, 100, false);
+                }
+                return (grown > 100) + ":" + (limit.limit() < grown);
+            }).toEqual("true:true");
+            expect(g + ":idle", n -> {
+                Sys.Limit.algorithm = Limiter.Algorithm.GRADIENT;
+                Limiter.Limit limit = new Limiter.Limit("test", 100);
+                for (int i = 0; i < 10; i++) {
+                    limit.update(1000000L, 1, false);
+                }
+                return limit.limit();
+            }).toEqual(100);
+        });
+
+        group("defer", g -> {
+            Limiter.Algorithm algorithm = Sys.Limit.algorithm;
+            beforeEach(Limiter.holdings::remove);
+            afterEach(() -> Sys.Limit.algorithm = algorithm);
+            expect(g + ":completion", n -> {
+                Sys.Limit.algorithm = Limiter.Algorithm.FIXED;
+                Limiter.Limit limit = new Limiter.Limit("test", 2);
+                Limiter.Permit permit = limit.acquire(1.0);
+                Runnable release = Limiter.defer();
+                permit.close();
+                int returned = limit.inflight();
+                release.run();
+                release.run();
+                return returned + ":" + limit.inflight() + ":" + Limiter.holdings.get()
+                    .size();
+            }).toEqual("1:0:0");
+            expect(g + ":resume", n -> {
+                Sys.Limit.algorithm = Limiter.Algorithm.FIXED;
+                Limiter.Limit limit = new Limiter.Limit("test", 2);
+                Limiter.Permit permit = limit.acquire(1.0);
+                Limiter.defer();
+                Limiter.resume();
+                permit.close();
+                return limit.inflight();
+            }).toEqual(0);
+        });
+    }
+}
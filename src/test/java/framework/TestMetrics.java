@@ -0,0 +1,33 @@
+package framework;
+
+import framework.annotation.Route;
+
+/**
+ * Metrics test
+ */
+public class TestMetrics extends Tester {
+    {
+        group("Histogram", g -> {
+            expect(g + ":index", n -> Metrics.Histogram.index(15) + ":" + Metrics.Histogram.index(16) + ":" + Metrics.Histogram.index(33)).toEqual("15:16:32");
+            expect(g + ":upper", n -> Metrics.Histogram.upper(15) + ":" + Metrics.Histogram.upper(16) + ":" + Metrics.Histogram.upper(32)).toEqual("15:16:33");
+            expect(g + ":empty", n -> new Metrics.Histogram().percentile(0.5)).toEqual(0L);
+            expect(g + ":percentile", n -> {
+                Metrics.Histogram h = new Metrics.Histogram();
+                for (int i = 1; i <= 1000; i++) {
+                    h.record(i * 1000L);
+                }
+                long p50 = h.percentile(0.5);
+                long p99 = h.percentile(0.99);
+                return h.count() + ":" + h.max() + ":" + (p50 >= 500 && p50 <= 500 * 1.07) + ":" + (p99 >= 990 && p99 <= 1000);
+            }).toEqual("1000:1000:true:true");
+        });
+
+        group("prometheus", g -> {
+            expect(g + ":route", n -> {
+                Metrics.timer("/test/(?<id>[0-9]+)", Route.Method.GET).record(200, 1500000);
+                return Metrics.prometheus().contains("http_requests_total{route=\"/test/(?<id>[0-9]+)\",method=\"GET\",status=\"2xx\"} 1\n");
+            }).toEqual(true);
+            expect(g + ":seconds", n -> Metrics.seconds(new StringBuilder(), 1500).toString()).toEqual("0.001500");
+        });
+    }
+}
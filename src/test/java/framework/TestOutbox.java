@@ -0,0 +1,146 @@
+package framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+
+import app.config.Sys;
+
+/**
+ * Outbox test(local sender stub)
+ */
+public class TestOutbox extends Tester {
+
+    /**
+     * Sender stub
+     */
+    static class Stub implements Outbox.Sender {
+
+        /**
+         * Connection count
+         */
+        static int connects;
+
+        /**
+         * Messages to fail
+         */
+        static int failures;
+
+        /**
+         * Sent messages
+         */
+        static final List<MimeMessage> sent = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Send millis
+         */
+        static long delay;
+
+        /**
+         * Connected
+         */
+        boolean connected = true;
+
+        /**
+         * constructor
+         */
+        Stub() {
+            connects++;
+        }
+
+        @Override
+        public void send(MimeMessage message) throws MessagingException {
+            Try.r(() -> Thread.sleep(delay))
+                .run();
+            if (failures > 0) {
+                failures--;
+                throw new MessagingException("stub failure");
+            }
+            sent.add(message);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public void close() {
+            connected = false;
+        }
+    }
+
+    {
+        group("Outbox", g -> {
+            Supplier<Outbox.Sender> factory = Outbox.factory;
+            int batch = Sys.Mail.outbox_batch;
+            int retries = Sys.Mail.outbox_retries;
+            long retry = Sys.Mail.outbox_retry_millis;
+            beforeEach(() -> {
+                Outbox.factory = Stub::new;
+                Sys.Mail.outbox_retry_millis = 1;
+                Stub.connects = 0;
+                Stub.failures = 0;
+                Stub.delay = 0;
+                Stub.sent.clear();
+            });
+            afterEach(() -> {
+                Outbox.shutdown();
+                Outbox.factory = factory;
+                Sys.Mail.outbox_batch = batch;
+                Sys.Mail.outbox_retries = retries;
+                Sys.Mail.outbox_retry_millis = retry;
+            });
+            expect(g + ":reuse", n -> {
+                Sys.Mail.outbox_batch = 3;
+                List<MimeMessage> messages = IntStream.range(0, 5)
+                    .mapToObj(i -> new MimeMessage((javax.mail.Session) null))
+                    .collect(Collectors.toList());
+                messages.stream()
+                    .map(Outbox::enqueue)
+                    .collect(Collectors.toList())
+                    .forEach(Try.c(f -> f.get(5, TimeUnit.SECONDS)));
+                return Stub.sent.size() + ":" + Stub.connects + ":" + Outbox.depth();
+            }).toEqual("5:2:0");
+            expect(g + ":retry", n -> {
+                Stub.failures = 2;
+                long retried = Outbox.retried.sum();
+                Try.s(() -> Outbox.enqueue(new MimeMessage((javax.mail.Session) null))
+                    .get(5, TimeUnit.SECONDS))
+                    .get();
+                return Stub.sent.size() + ":" + Stub.connects + ":" + (Outbox.retried.sum() - retried);
+            }).toEqual("1:3:2");
+            expect(g + ":give up", n -> {
+                Sys.Mail.outbox_retries = 1;
+                Stub.failures = 2;
+                long failed = Outbox.failed.sum();
+                boolean error = Try.s(() -> Outbox.enqueue(new MimeMessage((javax.mail.Session) null))
+                    .handle((v, e) -> e != null)
+                    .get(5, TimeUnit.SECONDS))
+                    .get();
+                return error + ":" + Stub.sent.size() + ":" + (Outbox.failed.sum() - failed) + ":" + Outbox.depth();
+            }).toEqual("true:0:1:0");
+            expect(g + ":shutdown", n -> {
+                Stub.delay = 300;
+                CompletableFuture<Void> future = Outbox.enqueue(new MimeMessage((javax.mail.Session) null));
+                Try.r(() -> Thread.sleep(100))
+                    .run();
+                Outbox.shutdown();
+                return future.isDone() + ":" + Stub.sent.size() + ":" + Outbox.depth() + ":" + Outbox.queue.size();
+            }).toEqual("true:1:0:0");
+            expect(g + ":backoff", n -> {
+                Sys.Mail.outbox_retry_millis = 1000;
+                long third = Outbox.backoff(3);
+                return (third >= 4000 && third <= 4400) + ":" + (Outbox.backoff(40) <= Sys.Mail.outbox_retry_max_millis * 11 / 10);
+            }).toEqual("true:true");
+        });
+    }
+}
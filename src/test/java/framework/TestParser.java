@@ -1,8 +1,15 @@
 package framework;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
+import app.config.Sys;
+
 /**
  * Parser test
  */
@@ -29,6 +36,32 @@ public class TestParser extends Tester {
             expect(g + ":a=&a=2", from).toEqual(to("a", Tool.list("", "2")));
             expect(g + ":a=&a=2=3", from).toEqual(to("a", Tool.list("", "2=3")));
             expect(g + ":a=1%262", from).toEqual(to("a", Tool.list("1&2")));
+            expect(g + ":a%5B%5D=x+y&b", from).toEqual(to("a[]", Tool.list("x y"), "b", Tool.list("")));
+            expect(g + ":a=%E3%81%82%ZZ%4", from).toEqual(to("a", Tool.list("\u3042%ZZ%4")));
+            expect(g + ":&&a=1&", from).toEqual(to("a", Tool.list("1")));
+        });
+
+        group("limit", g -> {
+            int count = Sys.request_max_parameters;
+            long bytes = Sys.request_max_form_bytes;
+            afterEach(() -> {
+                Sys.request_max_parameters = count;
+                Sys.request_max_form_bytes = bytes;
+            });
+            expect(g + ":count", n -> {
+                Sys.request_max_parameters = 2;
+                return Tool.json(new Parser.Url().parse("a=1&b=2&c=3"));
+            }).toEqual(to("a", Tool.list("1"), "b", Tool.list("2")));
+            expect(g + ":bytes", n -> {
+                Sys.request_max_form_bytes = 4;
+                return Tool.json(new Parser.Url().parse("a=1&b=2"));
+            }).toEqual(to("a", Tool.list("1")));
+            expect(g + ":stream", n -> {
+                Map<String, List<String>> parameters = new LinkedHashMap<>();
+                Try.r(() -> Parser.Url.parse(new ByteArrayInputStream("a=%4".getBytes(StandardCharsets.UTF_8)), parameters))
+                    .run();
+                return Tool.json(parameters);
+            }).toEqual(to("a", Tool.list("%4")));
         });
     }
 }
@@ -0,0 +1,98 @@
+package framework;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import app.config.Sys;
+
+/**
+ * QueryCache test
+ */
+public class TestQueryCache extends Tester {
+    /**
+     * @param sql SQL
+     * @return sorted tables
+     */
+    static Set<String> tables(String sql) {
+        return new TreeSet<>(QueryCache.tables(sql));
+    }
+
+    {
+        group("tables", g -> {
+            expect(g + ":single", n -> tables("SELECT * FROM t_account WHERE id = 1")).toEqual(Tool.set("t_account"));
+            expect(g + ":alias", n -> tables("SELECT a.id FROM t_account a ORDER BY 1")).toEqual(Tool.set("t_account"));
+            expect(g + ":comma", n -> tables("SELECT * FROM t_a a, t_b AS b WHERE a.id = b.id")).toEqual(Tool.set("t_a", "t_b"));
+            expect(g + ":join", n -> tables("SELECT * FROM t_a a INNER JOIN \"PUBLIC\".T_B b ON a.id = b.id")).toEqual(Tool.set("t_a", "t_b"));
+            expect(g + ":sub query", n -> tables("SELECT COUNT(*) FROM (SELECT * FROM t_config WHERE id = 'x') T__")).toEqual(Tool.set("t_config"));
+        });
+
+        group("writeTable", g -> {
+            expect(g + ":insert", n -> QueryCache.writeTable("INSERT INTO t_account(id) VALUES(1)").orElse(null)).toEqual("t_account");
+            expect(g + ":insert ignore", n -> QueryCache.writeTable("INSERT IGNORE INTO t_account(id) VALUES(1)").orElse(null)).toEqual("t_account");
+            expect(g + ":update", n -> QueryCache.writeTable("UPDATE t_account SET name = 'a'").orElse(null)).toEqual("t_account");
+            expect(g + ":delete", n -> QueryCache.writeTable("DELETE FROM dbo.t_session WHERE id = 1").orElse(null)).toEqual("t_session");
+            expect(g + ":truncate", n -> QueryCache.writeTable("TRUNCATE TABLE t_config").orElse(null)).toEqual("t_config");
+            expect(g + ":ddl", n -> QueryCache.writeTable("CREATE TABLE t_config(id INT)").isPresent()).toEqual(false);
+        });
+
+        group("Memory", g -> {
+            int max = Sys.Db.cache_max_entries;
+            QueryCache.Eviction eviction = Sys.Db.cache_eviction;
+            afterEach(() -> {
+                Sys.Db.cache_max_entries = max;
+                Sys.Db.cache_eviction = eviction;
+            });
+            expect(g + ":invalidate", n -> {
+                QueryCache.Memory store = new QueryCache.Memory();
+                store.put("a", new QueryCache.Entry(null, Tool.set("t_a"), 60000));
+                store.put("ab", new QueryCache.Entry(null, Tool.set("t_a", "t_b"), 60000));
+                store.put("b", new QueryCache.Entry(null, Tool.set("t_b"), 60000));
+                return store.invalidate("t_a") + ":" + store.size() + ":" + store.get("b").isPresent();
+            }).toEqual("2:1:true");
+            expect(g + ":expire", n -> {
+                QueryCache.Memory store = new QueryCache.Memory();
+                store.put("a", new QueryCache.Entry(null, Tool.set("t_a"), -1));
+                return store.get("a").isPresent() + ":" + store.size();
+            }).toEqual("false:0");
+            expect(g + ":LRU", n -> {
+                Sys.Db.cache_max_entries = 2;
+                Sys.Db.cache_eviction = QueryCache.Eviction.LRU;
+                QueryCache.Memory store = new QueryCache.Memory();
+                store.put("a", new QueryCache.Entry(null, Tool.set("t_a"), 60000));
+                store.put("b", new QueryCache.Entry(null, Tool.set("t_b"), 60000));
+                store.get("a");
+                store.put("c", new QueryCache.Entry(null, Tool.set("t_c"), 60000));
+                return store.get("a").isPresent() + ":" + store.get("b").isPresent() + ":" + store.get("c").isPresent();
+            }).toEqual("true:false:true");
+            expect(g + ":LFU", n -> {
+                Sys.Db.cache_max_entries = 2;
+                Sys.Db.cache_eviction = QueryCache.Eviction.LFU;
+                QueryCache.Memory store = new QueryCache.Memory();
+                store.put("a", new QueryCache.Entry(null, Tool.set("t_a"), 60000));
+                store.put("b", new QueryCache.Entry(null, Tool.set("t_b"), 60000));
+                store.get("a");
+                store.get("a");
+                store.get("b");
+                store.put("c", new QueryCache.Entry(null, Tool.set("t_c"), 60000));
+                return store.get("a").isPresent() + ":" + store.get("b").isPresent() + ":" + store.get("c").isPresent();
+            }).toEqual("true:false:true");
+        });
+
+        group("version", g -> {
+            expect(g + ":invalidate", n -> {
+                Set<String> tables = Tool.set("t_version_a", "t_version_b");
+                long version = QueryCache.version(tables);
+                QueryCache.invalidate("t_version_c");
+                boolean other = version == QueryCache.version(tables);
+                QueryCache.invalidate("PUBLIC.T_VERSION_B");
+                return other + ":" + (version == QueryCache.version(tables));
+            }).toEqual("true:false");
+            expect(g + ":clear", n -> {
+                Set<String> tables = Tool.set("t_version_a");
+                long version = QueryCache.version(tables);
+                QueryCache.clear();
+                return version == QueryCache.version(tables);
+            }).toEqual(false);
+        });
+    }
+}
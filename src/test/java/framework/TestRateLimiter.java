@@ -0,0 +1,110 @@
+package framework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+
+import app.config.Sys;
+
+/**
+ * RateLimiter test
+ */
+public class TestRateLimiter extends Tester {
+
+    /**
+     * @param decision Decision
+     * @return Text
+     */
+    static String text(RateLimiter.Decision decision) {
+        return decision.allowed + ":" + decision.limit + ":" + decision.remaining + ":" + decision.reset;
+    }
+
+    {
+        long second = 1000000000L;
+        group("Memory", g -> {
+            expect(g + ":burst", n -> {
+                RateLimiter.Memory store = new RateLimiter.Memory();
+                StringBuilder s = new StringBuilder();
+                for (int i = 0; i < 4; i++) {
+                    s.append(text(store.acquire("a", 1, 1, 3, 0))).append(' ');
+                }
+                return s.toString()
+                    .trim();
+            }).toEqual("true:3:2:1 true:3:1:2 true:3:0:3 false:3:0:1");
+            expect(g + ":refill", n -> {
+                RateLimiter.Memory store = new RateLimiter.Memory();
+                store.acquire("a", 2, 1, 2, 0);
+                store.acquire("a", 2, 1, 2, 0);
+                String denied = text(store.acquire("a", 2, 1, 2, 0));
+                return denied + " " + text(store.acquire("a", 2, 1, 2, second / 2));
+            }).toEqual("false:2:0:1 true:2:0:1");
+            expect(g + ":keys", n -> {
+                RateLimiter.Memory store = new RateLimiter.Memory();
+                store.acquire("a", 1, 1, 1, 0);
+                String denied = text(store.acquire("a", 1, 1, 1, 0));
+                return denied + " " + text(store.acquire("b", 1, 1, 1, 0));
+            }).toEqual("false:1:0:1 true:1:0:1");
+            expect(g + ":sweep", n -> {
+                RateLimiter.Memory store = new RateLimiter.Memory();
+                store.swept.set(0);
+                store.acquire("a", 1, 1, 1, 0);
+                store.acquire("b", 1, 1, 1, 0);
+                store.sweep(Sys.Limit.rate_idle_seconds * second + 1);
+                return store.buckets.size();
+            }).toEqual(0);
+            expect(g + ":max", n -> {
+                int max = Sys.Limit.rate_max_keys;
+                Sys.Limit.rate_max_keys = 1;
+                try {
+                    RateLimiter.Memory store = new RateLimiter.Memory();
+                    store.acquire("a", 1, 1, 1, 0);
+                    String allowed = text(store.acquire("b", 1, 1, 1, 0));
+                    return allowed + " " + text(store.acquire("b", 1, 1, 1, 0)) + " " + store.buckets.keySet();
+                } finally {
+                    Sys.Limit.rate_max_keys = max;
+                }
+            }).toEqual("true:1:0:1 false:1:0:1 [b]");
+        });
+
+        group("ip", g -> {
+            boolean trust = Sys.Limit.rate_trust_forwarded;
+            afterEach(() -> Sys.Limit.rate_trust_forwarded = trust);
+            TestTiming.Stub request = new TestTiming.Stub() {
+                @Override
+                public Map<String, List<String>> getHeaders() {
+                    return Tool.map("X-FORWARDED-FOR", Tool.list("10.0.0.1"));
+                }
+            };
+            expect(g + ":peer", n -> RateLimiter.ip(request)).toEqual("127.0.0.1");
+            expect(g + ":forwarded", n -> {
+                Sys.Limit.rate_trust_forwarded = true;
+                return RateLimiter.ip(request);
+            }).toEqual("10.0.0.1");
+        });
+
+        group("RedisStore", g -> {
+            expect(g + ":timeout", n -> {
+                String host = Sys.Limit.rate_redis_host;
+                int port = Sys.Limit.rate_redis_port;
+                try (ServerSocket hung = new ServerSocket(0)) {
+                    Sys.Limit.rate_redis_host = "127.0.0.1";
+                    Sys.Limit.rate_redis_port = hung.getLocalPort();
+                    long start = System.nanoTime();
+                    RateLimiter.Decision decision = new RateLimiter.RedisStore().acquire("a", 1, 1, 1);
+                    return decision.allowed + ":" + (System.nanoTime() - start < 5 * second);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    Sys.Limit.rate_redis_host = host;
+                    Sys.Limit.rate_redis_port = port;
+                }
+            }).toEqual("true:true");
+        });
+
+        group("Status", g -> {
+            expect(g + ":429", n -> Response.Status.Too_Many_Requests.toString()).toEqual("429 Too Many Requests");
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import app.config.Sys;
+
+/**
+ * Response test
+ */
+public class TestResponse extends Tester {
+
+    /**
+     * @param stream Stream
+     * @return Written text after closed
+     */
+    static String run(Response.Chunked stream) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean[] closed = { false };
+        stream.open(out, StandardCharsets.UTF_8, () -> closed[0] = true);
+        Try.s(() -> stream.done.await(5, TimeUnit.SECONDS))
+            .get();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8) + (closed[0] ? "|closed" : "");
+    }
+
+    {
+        group("Chunked", g -> {
+            expect(g + ":flush", n -> run(new Response.Chunked(s -> {
+                s.write("a").write("b");
+                s.flush();
+                s.write("c").close();
+                s.write("d").flush();
+            }))).toEqual("abc|closed");
+            expect(g + ":async", n -> run(new Response.Chunked(s -> new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    s.write(String.valueOf(i % 10)).flush();
+                }
+                s.close();
+            }).start())).length()).toEqual(100 + "|closed".length());
+            expect(g + ":onClose", n -> {
+                StringBuilder log = new StringBuilder();
+                run(new Response.Chunked(s -> s.onClose(() -> log.append("closed"))
+                    .close()));
+                return log.toString();
+            }).toEqual("closed");
+            expect(g + ":writeTimeout", n -> {
+                boolean[] closed = { false };
+                OutputStream blocked = new OutputStream() {
+                    @Override
+                    public synchronized void write(int b) throws IOException {
+                        while (!closed[0]) {
+                            Try.r(this::wait)
+                                .run();
+                        }
+                        throw new IOException("closed");
+                    }
+                };
+                Response.Chunked stream = new Response.Chunked(s -> {
+                });
+                stream.open(blocked, StandardCharsets.UTF_8, () -> {
+                    synchronized (blocked) {
+                        closed[0] = true;
+                        blocked.notifyAll();
+                    }
+                });
+                stream.write("a")
+                    .flush();
+                while (!stream.writing) {
+                    Try.r(() -> Thread.sleep(1))
+                        .run();
+                }
+                stream.writeStart -= TimeUnit.SECONDS.toNanos(Sys.stream_write_timeout_seconds + 1);
+                Response.Chunked.watch();
+                boolean released = Try.s(() -> stream.done.await(5, TimeUnit.SECONDS))
+                    .get();
+                for (int i = 0; stream.writing && i < 5000; i++) {
+                    Try.r(() -> Thread.sleep(1))
+                        .run();
+                }
+                return released + ":" + closed[0] + ":" + stream.isOpen() + ":" + stream.writing;
+            }).toEqual("true:true:false:false");
+        });
+
+        group("Events", g -> {
+            expect(g + ":send", n -> run(new Response.Events(s -> s.retry(1000)
+                .send("tick", "1", "a\nb")
+                .send(2)
+                .comment("")
+                .close()))).toEqual("retry: 1000\n\nevent: tick\nid: 1\ndata: a\ndata: b\n\ndata: 2\n\n:\n\n|closed");
+        });
+    }
+}
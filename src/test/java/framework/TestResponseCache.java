@@ -0,0 +1,171 @@
+package framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import framework.annotation.Cached;
+import framework.annotation.Only;
+
+/**
+ * ResponseCache test
+ */
+public class TestResponseCache extends Tester {
+
+    /**
+     * Response to memory
+     */
+    static class Stub extends Response {
+
+        /**
+         * Sent body
+         */
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        @Override
+        protected void writeResponse(Consumer<Supplier<OutputStream>> writeBody) {
+            if (content != null) {
+                writeBody.accept(() -> out);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return status.code + " " + headers.get("Cache-Control") + " " + new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Last created response
+     */
+    static Stub last;
+
+    /**
+     * cached route
+     */
+    @Cached(value = 60, params = "id", headers = "Accept-Language", max = 1)
+    static void route() {
+    }
+
+    /**
+     * cached route for logged in users
+     */
+    @Only
+    @Cached(60)
+    static void only() {
+    }
+
+    /**
+     * @return Setting
+     */
+    static Method method() {
+        return method("route");
+    }
+
+    /**
+     * @param name Method name
+     * @return Route method
+     */
+    static Method method(String name) {
+        return Try.s(() -> TestResponseCache.class.getDeclaredMethod(name))
+            .get();
+    }
+
+    /**
+     * @param store Entries
+     * @param ifNoneMatch If-None-Match header
+     * @return Call
+     */
+    static ResponseCache.Call call(ResponseCache.Store store, String ifNoneMatch) {
+        return new ResponseCache.Call(method().getAnnotation(Cached.class), store, "key", ifNoneMatch, false);
+    }
+
+    /**
+     * @param call Call
+     * @param status Status
+     * @param body Body
+     * @return Sent response
+     */
+    static String compute(ResponseCache.Call call, Response.Status status, String body) {
+        Response response = Response.of(body.getBytes(StandardCharsets.UTF_8))
+            .status(status);
+        response.cache = call;
+        response.flush();
+        return last.toString();
+    }
+
+    {
+        Supplier<Response> factory = Response.factory;
+        group("ResponseCache", g -> {
+            beforeEach(() -> Response.factory = () -> last = new Stub());
+            afterEach(() -> Response.factory = factory);
+            expect(g + ":key", n -> {
+                Map<String, List<String>> parameters = Tool.map("id", Tool.list("1"), "page", Tool.list("2"));
+                String key = ResponseCache.key(method(), "/a", method().getAnnotation(Cached.class), parameters, name -> "ja", "");
+                return key.substring(key.indexOf(' ') + 1);
+            }).toEqual("/a\nid=[1]\n:accept-language=ja\n@");
+            expect(g + ":miss", n -> {
+                ResponseCache.Call call = call(new ResponseCache.Store(1), null);
+                return call.replay() + " " + compute(call, Response.Status.OK, "abc");
+            }).toEqual("false 200 [public, max-age=60] abc");
+            expect(g + ":private", n -> {
+                Method only = method("only");
+                ResponseCache.Call call = new ResponseCache.Call(only.getAnnotation(Cached.class), new ResponseCache.Store(1), "key", null, ResponseCache
+                    .isPrivate(only, only.getAnnotation(Cached.class), null));
+                return call.replay() + " " + compute(call, Response.Status.OK, "abc") + " " + ResponseCache.isPrivate(method(), method().getAnnotation(Cached.class), null);
+            }).toEqual("false 200 [private, max-age=60] abc false");
+            expect(g + ":hit", n -> {
+                ResponseCache.Store store = new ResponseCache.Store(1);
+                ResponseCache.Call call = call(store, null);
+                call.replay();
+                compute(call, Response.Status.OK, "abc");
+                return call(store, null).replay() + " " + last + " " + last.headers.get("ETag")
+                    .equals(Tool.list(store.get("key").etag));
+            }).toEqual("true 200 [public, max-age=60] abc true");
+            expect(g + ":serverTiming", n -> {
+                ResponseCache.Store store = new ResponseCache.Store(1);
+                ResponseCache.Call call = call(store, null);
+                call.replay();
+                Response response = Response.of("abc".getBytes(StandardCharsets.UTF_8))
+                    .setHeader("Server-Timing", "app;dur=1");
+                response.cache = call;
+                response.flush();
+                return store.get("key").headers.containsKey("Server-Timing");
+            }).toEqual(false);
+            expect(g + ":notModified", n -> {
+                ResponseCache.Store store = new ResponseCache.Store(1);
+                ResponseCache.Call call = call(store, null);
+                call.replay();
+                compute(call, Response.Status.OK, "abc");
+                String etag = store.get("key").etag;
+                return call(store, etag).replay() + " " + last.status.code + " " + last.out.size();
+            }).toEqual("true 304 0");
+            expect(g + ":error", n -> {
+                ResponseCache.Store store = new ResponseCache.Store(1);
+                ResponseCache.Call call = call(store, null);
+                call.replay();
+                compute(call, Response.Status.Not_Found, "none");
+                return store.size() + " " + ResponseCache.computing.containsKey("key");
+            }).toEqual("0 false");
+            expect(g + ":collapse", n -> {
+                ResponseCache.Store store = new ResponseCache.Store(1);
+                ResponseCache.Call call = call(store, null);
+                call.replay();
+                long collapsed = ResponseCache.collapsed.sum();
+                CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(() -> call(store, null).replay());
+                while (ResponseCache.collapsed.sum() == collapsed) {
+                    Try.r(() -> Thread.sleep(1))
+                        .run();
+                }
+                compute(call, Response.Status.OK, "abc");
+                return other.join() + " " + (ResponseCache.collapsed.sum() - collapsed);
+            }).toEqual("true 1");
+        });
+    }
+}
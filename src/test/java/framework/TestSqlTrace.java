@@ -0,0 +1,38 @@
+package framework;
+
+/**
+ * SqlTrace test
+ */
+public class TestSqlTrace extends Tester {
+    {
+        group("fingerprint", g -> {
+            expect(g + ":literal", n -> SqlTrace.fingerprint("SELECT * FROM t WHERE id = 12 AND name = 'it''s' AND code = N'x'"))
+                .toEqual("SELECT * FROM t WHERE id = ? AND name = ? AND code = ?");
+            expect(g + ":identifier", n -> SqlTrace.fingerprint("SELECT col1, t2.x FROM t2")).toEqual("SELECT col1, t2.x FROM t2");
+            expect(g + ":number", n -> SqlTrace.fingerprint("SELECT 1.5e3 FROM t LIMIT 10 OFFSET 20")).toEqual("SELECT ? FROM t LIMIT ? OFFSET ?");
+            expect(g + ":list", n -> SqlTrace.fingerprint("SELECT * FROM t WHERE id IN (1, 2,3)")).toEqual("SELECT * FROM t WHERE id IN (?)");
+            expect(g + ":space", n -> SqlTrace.fingerprint(" SELECT\n\t*  FROM t ")).toEqual("SELECT * FROM t");
+        });
+
+        group("record", g -> {
+            afterEach(SqlTrace::clear);
+            expect(g + ":aggregate", n -> {
+                SqlTrace.record(null, "SELECT * FROM t WHERE id = 1", 1000, 2000000, 1000000, 1);
+                SqlTrace.record(null, "SELECT * FROM t WHERE id = 2", 1000, 4000000, 1000000, 3);
+                SqlTrace.Stats stats = SqlTrace.top(1)
+                    .get(0);
+                return stats.fingerprint + ":" + stats.count() + ":" + stats.rows() + ":" + stats.slows();
+            }).toEqual("SELECT * FROM t WHERE id = ?:2:4:0");
+            expect(g + ":slow", n -> {
+                SqlTrace.record(null, "DELETE FROM t WHERE id = ?", () -> "DELETE FROM t WHERE id = 9", 0, 2000000000L, 0, 1);
+                SqlTrace.Stats stats = SqlTrace.top(1)
+                    .get(0);
+                return stats.slows() + ":" + stats.sample();
+            }).toEqual("1:DELETE FROM t WHERE id = 9");
+            expect(g + ":report", n -> {
+                SqlTrace.record(null, "UPDATE t SET a = 1", 0, 1500000, 0, 2);
+                return SqlTrace.report(10);
+            }).toEqual("total=1.500ms count=1 p50=1.500ms p99=1.500ms max=1.500ms rows=2 slows=0 UPDATE t SET a = ?");
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package framework;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import app.config.Sys;
+import framework.annotation.Route;
+
+/**
+ * Timing test
+ */
+public class TestTiming extends Tester {
+
+    /**
+     * Request without server
+     */
+    static class Stub extends Request {
+
+        @Override
+        public String getPath() {
+            return "/test";
+        }
+
+        @Override
+        public String getQuery() {
+            return null;
+        }
+
+        @Override
+        public Route.Method getMethod() {
+            return Route.Method.GET;
+        }
+
+        @Override
+        public Map<String, Tuple<byte[], File>> getFiles() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Map<String, List<String>> getParameters() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        protected String getRemoteAddr() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public Stream<String> names() {
+            return Stream.empty();
+        }
+
+        @Override
+        public <T> Optional<T> getAttr(String name) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void setAttr(String name, Object value) {
+        }
+
+        @Override
+        public void removeAttr(String name) {
+        }
+    }
+
+    {
+        group("Timing", g -> {
+            boolean serverTiming = Sys.server_timing;
+            double ratio = Sys.timing_sample_ratio;
+            beforeEach(() -> Request.CURRENT.set(new Stub()));
+            afterEach(() -> {
+                Request.CURRENT.remove();
+                Sys.server_timing = serverTiming;
+                Sys.timing_sample_ratio = ratio;
+            });
+            expect(g + ":millis", n -> Timing.millis(new StringBuilder(), 12034567).toString() + " " + Timing.millis(new StringBuilder(), 5000)).toEqual("12.034 0.005");
+            expect(g + ":disabled", n -> {
+                Sys.server_timing = false;
+                Sys.timing_sample_ratio = 0;
+                Timing.begin(Request.CURRENT.get());
+                Timing.record(Timing.Phase.DB, 1000000);
+                return Timing.current() == null;
+            }).toEqual(true);
+            expect(g + ":header", n -> {
+                Sys.server_timing = true;
+                Sys.timing_sample_ratio = 0;
+                Timing.begin(Request.CURRENT.get());
+                Timing.record(Timing.Phase.ROUTE, 100000);
+                Timing.record(Timing.Phase.DB, 1000000);
+                Timing.record(Timing.Phase.DB, 2000000);
+                Timing.record(Timing.Phase.RENDER, 5000000);
+                String header = Timing.current()
+                    .format(Timing.Phase.RENDER)
+                    .toString();
+                return header.substring(0, header.indexOf("total;dur=") + 10) + ":" + (Timing.end() == null) + ":" + (Timing.current() == null);
+            }).toEqual("route;dur=0.100, db;dur=3.000;desc=\"2\", total;dur=:true:true");
+            expect(g + ":sampled", n -> {
+                Sys.server_timing = false;
+                Sys.timing_sample_ratio = 1;
+                long count = Timing.Phase.ACTION.histogram.count();
+                Timing.begin(Request.CURRENT.get());
+                Timing.record(Timing.Phase.ACTION, 2000000);
+                return Timing.end()
+                    .startsWith("app;dur=2.000, total;dur=") + ":" + (Timing.Phase.ACTION.histogram.count() - count);
+            }).toEqual("true:1");
+            expect(g + ":otherRequest", n -> {
+                Sys.server_timing = true;
+                Timing.begin(new Stub());
+                Timing.record(Timing.Phase.DB, 1000000);
+                return Timing.current() == null;
+            }).toEqual(true);
+        });
+    }
+}
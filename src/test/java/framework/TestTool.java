@@ -108,5 +108,17 @@ public class TestTool extends Tester {
             expect(g + ":a,,b", n -> Tool.path("a", "", "b").apply("/")).toEqual("a/b");
             expect(g + ":a,b,", n -> Tool.path("a", "b", "").apply("/")).toEqual("a/b");
         });
+
+        group("escape", g -> {
+            String clean = "plain text";
+            expect(g + ":html", n -> Tool.htmlEscape("<a href=\"x\">'q' & </a>")).toEqual("&lt;a href=&quot;x&quot;&gt;&#39;q&#39; &amp; &lt;/a&gt;");
+            expect(g + ":html clean", n -> Tool.htmlEscape(clean) == clean).toEqual(true);
+            expect(g + ":html empty", n -> Tool.htmlEscape("")).toNull();
+            expect(g + ":html append", n -> Try.s(() -> Tool.htmlEscape("a<b", new StringBuilder("[")))
+                .get()
+                .toString()).toEqual("[a&lt;b");
+            expect(g + ":script", n -> Tool.scriptEscape("a\"b\\c\r\n\t")).toEqual("a\\\"b\\\\c\\r\\n\\t");
+            expect(g + ":script clean", n -> Tool.scriptEscape(clean) == clean).toEqual(true);
+        });
     }
 }
@@ -209,6 +209,11 @@ public class TestValidator extends Tester {
 				eq.accept(required, Tool.getFirst(errors, "data.name").orElse(null));
 			});
 		});
+		group("plan", g -> {
+			expect(g + ":cached", n -> Validator.Manager.plan(Data.class, All.class) == Validator.Manager.plan(Data.class, All.class)).toEqual(true);
+			expect(g + ":steps", n -> Validator.Manager.plan(Data.class, All.class).stream().map(t -> t.l + ":" + t.r.size()).sorted()
+					.reduce((a, b) -> a + "," + b).orElse("")).toEqual("id:1,name:1");
+		});
 		group("digit", g -> {
 			expect(g + ":ok", n -> {
 				Errors errors = new Errors();
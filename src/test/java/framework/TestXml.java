@@ -0,0 +1,78 @@
+package framework;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Xml test
+ */
+public class TestXml extends Tester {
+
+    /**
+     * Renders
+     */
+    static final Map<String, Function<Xml, Xml>> renders = new HashMap<>();
+    static {
+        renders.put("text", x -> x.text("a < b"));
+        renders.put("rows", x -> x.repeat(Stream.of(1, 2), (y, i) -> y.text(i)));
+        renders.put("attr", x -> x.attr("class", "c"));
+    }
+
+    /**
+     * @param source Source
+     * @param renders Renders
+     * @return Streaming result
+     */
+    static String rewrite(String source, Map<String, Function<Xml, Xml>> renders) {
+        return Try.s(() -> Xml.rewrite(source, renders, new StringBuilder()))
+            .get()
+            .toString();
+    }
+
+    /**
+     * @param source Source
+     * @param renders Renders
+     * @return True if same as tree
+     */
+    static boolean same(String source, Map<String, Function<Xml, Xml>> renders) {
+        return Xml.parseMap(source, renders)
+            .toString()
+            .equals(rewrite(source, renders));
+    }
+
+    {
+        group("write", g -> {
+            String html = "<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>a &amp; b</title></head><body><!-- c --><div id=\"x\">text <b>bold</b> tail </div><br></body></html>";
+            expect(g + ":string", n -> Xml.parse("<div>  <p>a</p>  </div>")
+                .toString()).toEqual("<div>\r\n  <p>a</p>\r\n</div>");
+            expect(g + ":escape", n -> Xml.of("p")
+                .text("<a & 'b'>")
+                .toString()).toEqual("<p>&lt;a &amp; &#39;b&#39;&gt;</p>");
+            expect(g + ":appendable", n -> Try.s(() -> Xml.parse(html)
+                .write(new StringBuilder()))
+                .get()
+                .toString()).toEqual(Xml.parse(html)
+                    .toString());
+            expect(g + ":stream", n -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Try.r(() -> Xml.parse(html)
+                    .write(out, StandardCharsets.UTF_8))
+                    .run();
+                return new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }).toEqual(Xml.parse(html)
+                .toString());
+        });
+
+        group("rewrite", g -> {
+            expect(g + ":plain", n -> same("<!DOCTYPE html>\n<html><body>  <ul><li>1<li>2 &lt; 3</ul><img src=\"a\"><div/></body></html>", null)).toEqual(true);
+            expect(g + ":render", n -> same("<div><p data-render=\"text\">x</p><ul><li data-render=\"rows\">x</li></ul><span data-render=\"none\"></span></div>", renders)).toEqual(true);
+            expect(g + ":nested", n -> same("<div data-render=\"attr\"><p data-render=\"text\">x</p></div>text", renders)).toEqual(true);
+            expect(g + ":unclosed", n -> same("<div><p data-render=\"text\">x<i>y", renders)).toEqual(true);
+            expect(g + ":result", n -> rewrite("<p data-render=\"text\">x</p>", renders)).toEqual("<p>a &lt; b</p>");
+        });
+    }
+}